@@ -39,9 +39,12 @@ public class Bishop extends ChessPiece
             return false;
         }
         
-       //bishops can move diagonally on multiple squares, but cant jump over a piece
-        if(Math.abs(this.column-column)==Math.abs(this.row-row) && 
-                board.clearDiagonalPath(this, row, column))
+        /*bishops can move diagonally on multiple squares, but cant jump over a piece, 
+         * so the move is valid if the final square is one the bishop attacks*/
+        long attacks = SlidingAttacks.bishopAttacks(BitBoard.getSquare(this.row, this.column),
+                board.getOccupied());
+        
+        if((attacks & (1L << BitBoard.getSquare(row, column))) != 0)
         {
             return true;
         }
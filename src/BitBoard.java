@@ -0,0 +1,1783 @@
+/**
+ * Class models a chess board as a set of bitboards. Instead of keeping chess
+ * piece objects in a 2D array, the position is stored as twelve 64 bit
+ * words, one for each combination of player colour and piece type. Bit
+ * number row*8+column of a word is set if that square holds a piece of that
+ * colour and type.
+ *
+ * The class offers the same operations as the ChessBoard class (getting the
+ * piece on a square, moving a piece, castling, promoting a pawn, and checking
+ * for check, check mate and stalemate), but all rule checks are done with a
+ * few word operations instead of walking lists of piece objects.
+ * @version 1.0
+ */
+public class BitBoard
+{
+    /**A chess board is an 8x8 board.*/
+    private static final int SIZE_OF_BOARD = 8;
+
+    /**The number of squares on the board.*/
+    private static final int SQUARES = SIZE_OF_BOARD * SIZE_OF_BOARD;
+
+    /**The number of different piece types a player has.*/
+    private static final int PIECE_TYPES = 6;
+
+    /**The number of moves that can be made with makeMove and not yet taken
+     * back at the same time.*/
+    public static final int MAX_UNDO = 512;
+
+    /**Piece code of a square that holds no piece.*/
+    public static final int EMPTY = -1;
+
+    /**Castling right flags. A right is lost once the king or the rook
+     * involved moves, or once the rook is captured.*/
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+
+    /**Cached values of the enumerated types, so that we do not make a new
+     * array every time we turn an index back into a type.*/
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final ChessPlayer[] PLAYERS = ChessPlayer.values();
+
+    /**The letter of each piece code in Forsyth-Edwards Notation: upper case
+     * for white pieces and lower case for black ones.*/
+    private static final String FEN_PIECES = "KQRBNPkqrbnp";
+
+    /**The castling right flags in the order their letters are written in
+     * Forsyth-Edwards Notation, and the letters.*/
+    private static final int[] FEN_CASTLING_RIGHTS = {WHITE_KING_SIDE, WHITE_QUEEN_SIDE,
+        BLACK_KING_SIDE, BLACK_QUEEN_SIDE};
+    private static final String FEN_CASTLING = "KQkq";
+
+    /**A player never has more than 16 pieces.*/
+    private static final int MAX_PIECES = 16;
+
+    /**The squares on the first and the last column.*/
+    private static final long COLUMN_A = 0x0101010101010101L;
+    private static final long COLUMN_H = COLUMN_A << 7;
+
+    /**The squares a knight on a given square can jump to.*/
+    private static final long[] KNIGHT_ATTACKS = new long[SQUARES];
+
+    /**The squares a king on a given square can step to.*/
+    private static final long[] KING_ATTACKS = new long[SQUARES];
+
+    /**The squares a pawn of a given colour on a given square attacks. The
+     * first index is the ordinal of the player.*/
+    private static final long[][] PAWN_ATTACKS = new long[2][SQUARES];
+
+    /**For every square, the castling rights that are kept when a piece
+     * moves from or to that square. Moving the king or a rook, or capturing
+     * a rook on its starting square, clears the matching rights.*/
+    private static final int[] CASTLING_MASK = new int[SQUARES];
+
+    /**The abbreviations used when printing the board, in the same order as
+     * the piece codes. They are the same as the ones of the ChessPiece
+     * classes.*/
+    private static final String[] PIECE_NAMES = {"WK", "WQ", "WR", "WB", "WKN", "WP",
+        "BK", "BQ", "BR", "BB", "BKN", "BP"};
+
+    static
+    {
+        //steps a knight and a king can make, as row and column changes
+        int[][] knightSteps = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}};
+        int[][] kingSteps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+        for(int square = 0; square < SQUARES; square++)
+        {
+            int row = square / SIZE_OF_BOARD;
+            int column = square % SIZE_OF_BOARD;
+
+            KNIGHT_ATTACKS[square] = stepAttacks(row, column, knightSteps);
+            KING_ATTACKS[square] = stepAttacks(row, column, kingSteps);
+
+            //white pawns capture towards larger rows, black ones towards smaller rows
+            PAWN_ATTACKS[ChessPlayer.white.ordinal()][square] =
+                    stepAttacks(row, column, new int[][] {{1, 1}, {1, -1}});
+            PAWN_ATTACKS[ChessPlayer.black.ordinal()][square] =
+                    stepAttacks(row, column, new int[][] {{-1, 1}, {-1, -1}});
+
+            CASTLING_MASK[square] = WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE;
+        }
+
+        //squares the kings and rooks start on
+        CASTLING_MASK[4] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASK[0] &= ~WHITE_QUEEN_SIDE;
+        CASTLING_MASK[7] &= ~WHITE_KING_SIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASK[56] &= ~BLACK_QUEEN_SIDE;
+        CASTLING_MASK[63] &= ~BLACK_KING_SIDE;
+    }
+
+    /**One word for each colour and piece type, indexed by the piece code.*/
+    private final long[] pieces = new long[2 * PIECE_TYPES];
+
+    /**All the pieces of each player, indexed by the ordinal of the player.*/
+    private final long[] playerPieces = new long[2];
+
+    /**All the pieces on the board.*/
+    private long occupied;
+
+    /**The piece code of the piece on each square, or EMPTY. Keeping this
+     * next to the bitboards means finding what is on a square does not need
+     * a search through the twelve words.*/
+    private final int[] squares = new int[SQUARES];
+
+    /**The squares attacked by the pieces of each player, indexed by the
+     * ordinal of the player. The king of the other player is left out of the
+     * occupied squares, so a square behind that king on the line of a
+     * sliding piece counts as attacked. The sets are worked out the first
+     * time they are needed after a change to the pieces, and kept until the
+     * next one.*/
+    private final long[] attacks = new long[2];
+
+    /**Whether the attack set of each player matches the pieces on the
+     * board.*/
+    private final boolean[] attacksValid = new boolean[2];
+
+    /**The castling rights that are still available, as a combination of the
+     * castling right flags.*/
+    private int castlingRights;
+
+    /**The square a pawn can move to with an en passant capture, or -1 if the
+     * last move was not a pawn moving forward 2 spaces.*/
+    private int enPassantSquare;
+
+    /**The player whose turn it is.*/
+    private ChessPlayer sideToMove;
+
+    /**The Zobrist hash of the position, updated with every change to the
+     * pieces, castling rights, en passant square and side to move.*/
+    private long hash;
+
+    /**The Zobrist hash of the pawns alone, used to key the cache of pawn
+     * structure scores. It only changes when a pawn moves, is captured or is
+     * promoted.*/
+    private long pawnHash;
+
+    /**The middlegame and endgame scores of the pieces on their squares for
+     * the white player, and the phase of the game, as given by the
+     * Evaluation class. Like the hash, they are updated with every piece that
+     * is added or removed.*/
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+
+    /**The number of moves since the last capture or pawn move, for the fifty
+     * move rule, and the number of the move being played, which starts at 1
+     * and goes up after each move of the black player.*/
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+
+    /**The undo stack of the moves made with makeMove. For each move, we
+     * keep the move itself, the code of the piece it captured, and the
+     * castling rights, en passant square and halfmove clock from before the
+     * move, which can not be worked out from the move alone.*/
+    private final int[] undoMoves = new int[MAX_UNDO];
+    private final int[] undoCaptured = new int[MAX_UNDO];
+    private final int[] undoCastlingRights = new int[MAX_UNDO];
+    private final int[] undoEnPassant = new int[MAX_UNDO];
+    private final int[] undoHalfmoveClock = new int[MAX_UNDO];
+    private final long[] undoHash = new long[MAX_UNDO];
+
+    /**The number of moves on the undo stack.*/
+    private int undoCount;
+
+    /**
+     * Creates a new bitboard chess board, with the pieces placed the way they
+     * are in the beginning of a chess match.
+     */
+    public BitBoard()
+    {
+        for(int i = 0; i < SQUARES; i++)
+        {
+            squares[i] = EMPTY;
+        }
+
+        //the non-pawn pieces, in the order they are placed on the first row
+        PieceType[] firstRow = {PieceType.rook, PieceType.knight, PieceType.bishop, PieceType.queen,
+            PieceType.king, PieceType.bishop, PieceType.knight, PieceType.rook};
+
+        for(int i = 0; i < SIZE_OF_BOARD; i++)
+        {
+            addPiece(pieceCode(ChessPlayer.white, firstRow[i]), getSquare(0, i));
+            addPiece(pieceCode(ChessPlayer.white, PieceType.pawn), getSquare(1, i));
+            addPiece(pieceCode(ChessPlayer.black, PieceType.pawn), getSquare(6, i));
+            addPiece(pieceCode(ChessPlayer.black, firstRow[i]), getSquare(7, i));
+        }
+
+        setCastlingRights(WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        enPassantSquare = -1;
+        sideToMove = ChessPlayer.white;
+    }
+
+    /**
+     * Creates a copy of a bitboard chess board, with the same position. The
+     * undo stack is not copied, so moves made on the original before the
+     * copy can not be taken back on the copy.
+     * @param other The board to copy.
+     */
+    public BitBoard(BitBoard other)
+    {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.playerPieces, 0, playerPieces, 0, playerPieces.length);
+        System.arraycopy(other.squares, 0, squares, 0, squares.length);
+        occupied = other.occupied;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        sideToMove = other.sideToMove;
+        hash = other.hash;
+        pawnHash = other.pawnHash;
+        middlegameScore = other.middlegameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+    }
+
+    /**
+     * Creates a bitboard chess board with the position given in
+     * Forsyth-Edwards Notation (FEN): the pieces row by row from row 7, the
+     * side to move, the castling rights, the en passant square, and
+     * optionally the halfmove clock and the fullmove number. An EPD record is
+     * read the same way: it has no clocks, and the operations after the
+     * first four fields are ignored. The text is read one character at a
+     * time, without splitting it into strings.
+     *
+     * Castling rights whose king or rook is not on its starting square are
+     * left out, since they could never be used.
+     * @param fen The position.
+     * @return The new board, with an empty undo stack.
+     * @throws IllegalArgumentException Thrown if the text is not a valid
+     * position: a row does not have 8 squares, a player does not have exactly
+     * one king or has more than 16 pieces, a pawn is on the first row of its
+     * player, or a field can not be read.
+     */
+    public static BitBoard fromFen(String fen) throws IllegalArgumentException
+    {
+        BitBoard board = new BitBoard();
+        board.clear();
+
+        int length = fen.length();
+        int index = skipSpaces(fen, 0);
+        int row = SIZE_OF_BOARD - 1;
+        int column = 0;
+
+        //the pieces, from a8 to h8, then a7 to h7 and so on
+        while(index < length && fen.charAt(index) != ' ')
+        {
+            char c = fen.charAt(index++);
+            if(c == '/')
+            {
+                if(column != SIZE_OF_BOARD || row == 0)
+                {
+                    throw new IllegalArgumentException("Row " + (row + 1) + " of the FEN does not have 8 squares!");
+                }
+                row--;
+                column = 0;
+            }
+            else if(c >= '1' && c <= '8')
+            {
+                column += c - '0';
+            }
+            else
+            {
+                int code = FEN_PIECES.indexOf(c);
+                if(code == -1)
+                {
+                    throw new IllegalArgumentException("Unknown piece '" + c + "' in the FEN!");
+                }
+                else if(column < SIZE_OF_BOARD)
+                {
+                    board.addPiece(code, getSquare(row, column));
+                }
+                column++;
+            }
+
+            if(column > SIZE_OF_BOARD)
+            {
+                throw new IllegalArgumentException("Row " + (row + 1) + " of the FEN does not have 8 squares!");
+            }
+        }
+
+        if(row != 0 || column != SIZE_OF_BOARD)
+        {
+            throw new IllegalArgumentException("The FEN does not have 8 rows of 8 squares!");
+        }
+
+        checkSquares(board.squares);
+
+        //the side to move
+        index = skipSpaces(fen, index);
+        char side = (index < length) ? fen.charAt(index++) : ' ';
+        if(side == 'b')
+        {
+            board.setSideToMove(ChessPlayer.black);
+        }
+        else if(side != 'w')
+        {
+            throw new IllegalArgumentException("The side to move in the FEN must be w or b!");
+        }
+
+        //the castling rights, or -
+        index = skipSpaces(fen, index);
+        int rights = 0;
+        if(index < length && fen.charAt(index) == '-')
+        {
+            index++;
+        }
+        else
+        {
+            while(index < length && fen.charAt(index) != ' ')
+            {
+                int right = FEN_CASTLING.indexOf(fen.charAt(index++));
+                if(right == -1)
+                {
+                    throw new IllegalArgumentException("Unknown castling right in the FEN!");
+                }
+                rights |= FEN_CASTLING_RIGHTS[right];
+            }
+        }
+        board.setCastlingRights(rights & board.possibleCastlingRights());
+
+        //the en passant square, or -
+        index = skipSpaces(fen, index);
+        if(index < length && fen.charAt(index) == '-')
+        {
+            index++;
+        }
+        else
+        {
+            if(index + 1 >= length)
+            {
+                throw new IllegalArgumentException("The FEN has no en passant square!");
+            }
+            board.setFenEnPassantSquare(fen.charAt(index) - 'a', fen.charAt(index + 1) - '1');
+            index += 2;
+        }
+
+        //the clocks are optional, and in an EPD record operations come instead
+        index = skipSpaces(fen, index);
+        if(index < length && Character.isDigit(fen.charAt(index)))
+        {
+            board.halfmoveClock = readNumber(fen, index);
+            index = skipSpaces(fen, skipDigits(fen, index));
+
+            if(index < length && Character.isDigit(fen.charAt(index)))
+            {
+                board.fullmoveNumber = Math.max(readNumber(fen, index), 1);
+            }
+        }
+
+        return board;
+    }
+
+    /**
+     * Makes a board from the piece on each square, the side to move, the
+     * castling rights and the en passant square, as read by PositionCodec.
+     * Castling rights whose king or rook is not on its starting square are
+     * left out, like in fromFen.
+     * @param codes The piece code of each square, or EMPTY.
+     * @param sideToMove The player to move.
+     * @param castlingRights A combination of the castling right flags.
+     * @param enPassantSquare The en passant square, or -1.
+     * @return The new board, with an empty undo stack and clocks at their
+     * start.
+     * @throws IllegalArgumentException Thrown if a code is not a piece code,
+     * or the position is not valid, as described for fromFen.
+     */
+    public static BitBoard fromSquares(int[] codes, ChessPlayer sideToMove, int castlingRights,
+            int enPassantSquare) throws IllegalArgumentException
+    {
+        BitBoard board = new BitBoard();
+        board.setSquares(codes, sideToMove, castlingRights, enPassantSquare);
+        return board;
+    }
+
+    /**
+     * Sets up the board from the piece on each square, the side to move, the
+     * castling rights and the en passant square, as done by fromSquares,
+     * without making a new board. The undo stack is emptied and the clocks
+     * are set to their start.
+     * @param codes The piece code of each square, or EMPTY.
+     * @param sideToMove The player to move.
+     * @param castlingRights A combination of the castling right flags.
+     * @param enPassantSquare The en passant square, or -1.
+     * @throws IllegalArgumentException Thrown if a code is not a piece code,
+     * or the position is not valid, as described for fromFen. The board is
+     * not changed then.
+     */
+    public void setSquares(int[] codes, ChessPlayer sideToMove, int castlingRights,
+            int enPassantSquare) throws IllegalArgumentException
+    {
+        checkSquares(codes);
+        if(enPassantSquare != -1)
+        {
+            checkEnPassantSquare(codes, sideToMove, enPassantSquare % SIZE_OF_BOARD,
+                    enPassantSquare / SIZE_OF_BOARD);
+        }
+        clear();
+
+        for(int square = 0; square < SQUARES; square++)
+        {
+            if(codes[square] != EMPTY)
+            {
+                addPiece(codes[square], square);
+            }
+        }
+
+        setSideToMove(sideToMove);
+        setCastlingRights(castlingRights & possibleCastlingRights());
+        setEnPassantSquare(enPassantSquare);
+    }
+
+    /**
+     * Writes the position in Forsyth-Edwards Notation, with all six fields.
+     * @return The position as a FEN string.
+     */
+    public String toFen()
+    {
+        StringBuilder fen = new StringBuilder(90);
+
+        for(int row = SIZE_OF_BOARD - 1; row >= 0; row--)
+        {
+            int empty = 0;
+            for(int column = 0; column < SIZE_OF_BOARD; column++)
+            {
+                int code = squares[getSquare(row, column)];
+                if(code == EMPTY)
+                {
+                    empty++;
+                    continue;
+                }
+
+                if(empty > 0)
+                {
+                    fen.append((char)('0' + empty));
+                    empty = 0;
+                }
+                fen.append(FEN_PIECES.charAt(code));
+            }
+
+            if(empty > 0)
+            {
+                fen.append((char)('0' + empty));
+            }
+            if(row > 0)
+            {
+                fen.append('/');
+            }
+        }
+
+        fen.append(sideToMove == ChessPlayer.white ? " w " : " b ");
+
+        if(castlingRights == 0)
+        {
+            fen.append('-');
+        }
+        for(int i = 0; i < FEN_CASTLING_RIGHTS.length; i++)
+        {
+            if((castlingRights & FEN_CASTLING_RIGHTS[i]) != 0)
+            {
+                fen.append(FEN_CASTLING.charAt(i));
+            }
+        }
+
+        fen.append(' ');
+        if(enPassantSquare == -1)
+        {
+            fen.append('-');
+        }
+        else
+        {
+            fen.append((char)('a' + enPassantSquare % SIZE_OF_BOARD));
+            fen.append((char)('1' + enPassantSquare / SIZE_OF_BOARD));
+        }
+
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    /**
+     * Gets the index of the square at the given coordinates, which is also
+     * the number of the bit that represents that square in a bitboard.
+     * @param row The row of the square.
+     * @param column The column of the square.
+     * @return The index of the square, between 0 and 63.
+     */
+    public static int getSquare(int row, int column)
+    {
+        return row * SIZE_OF_BOARD + column;
+    }
+
+    /**
+     * Gets the code of a piece of the given colour and type. The code is
+     * the index of the bitboard that holds all the pieces of that kind.
+     * @param player The colour of the piece.
+     * @param type The type of the piece.
+     * @return The piece code, between 0 and 11.
+     */
+    public static int pieceCode(ChessPlayer player, PieceType type)
+    {
+        return player.ordinal() * PIECE_TYPES + type.ordinal();
+    }
+
+    /**
+     * Gets the squares a knight on the given square can jump to.
+     * @param square The square of the knight.
+     * @return A bitboard of the squares.
+     */
+    public static long knightAttacks(int square)
+    {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * Gets the squares a king on the given square can step to.
+     * @param square The square of the king.
+     * @return A bitboard of the squares.
+     */
+    public static long kingAttacks(int square)
+    {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Gets the squares a pawn of the given colour on the given square
+     * attacks, which are the squares forward on the diagonal.
+     * @param player The colour of the pawn.
+     * @param square The square of the pawn.
+     * @return A bitboard of the squares.
+     */
+    public static long pawnAttacks(ChessPlayer player, int square)
+    {
+        return PAWN_ATTACKS[player.ordinal()][square];
+    }
+
+    /**
+     * Gets the opponent of the given player.
+     * @param player A player.
+     * @return The other player.
+     */
+    public static ChessPlayer opponent(ChessPlayer player)
+    {
+        return (player == ChessPlayer.white) ? ChessPlayer.black : ChessPlayer.white;
+    }
+
+    /**
+     * Gets the code of the piece on the given square.
+     * @param square The index of the square.
+     * @return The piece code, or EMPTY if there is no piece on the square.
+     */
+    public int getPieceCode(int square)
+    {
+        return squares[square];
+    }
+
+    /**
+     * Gets the type of the piece at the given coordinates.
+     * @param row The row of the square.
+     * @param column The column of the square.
+     * @return The type of the piece on that square, or null if the square
+     * is empty.
+     */
+    public PieceType getPiece(int row, int column)
+    {
+        int code = squares[getSquare(row, column)];
+
+        if(code == EMPTY)
+        {
+            return null;
+        }
+        else
+        {
+            return TYPES[code % PIECE_TYPES];
+        }
+    }
+
+    /**
+     * Gets the colour of the piece at the given coordinates.
+     * @param row The row of the square.
+     * @param column The column of the square.
+     * @return The player that owns the piece on that square, or null if the
+     * square is empty.
+     */
+    public ChessPlayer getPlayer(int row, int column)
+    {
+        int code = squares[getSquare(row, column)];
+
+        if(code == EMPTY)
+        {
+            return null;
+        }
+        else
+        {
+            return PLAYERS[code / PIECE_TYPES];
+        }
+    }
+
+    /**
+     * Gets the bitboard of all the pieces of the given colour and type.
+     * @param player The colour of the pieces.
+     * @param type The type of the pieces.
+     * @return A word with one bit set for each such piece.
+     */
+    public long getPieces(ChessPlayer player, PieceType type)
+    {
+        return pieces[pieceCode(player, type)];
+    }
+
+    /**
+     * Gets the bitboard of all the pieces of the given player.
+     * @param player The colour of the pieces.
+     * @return A word with one bit set for each piece of that player.
+     */
+    public long getPlayerPieces(ChessPlayer player)
+    {
+        return playerPieces[player.ordinal()];
+    }
+
+    /**
+     * Gets the bitboard of all the pieces on the board.
+     * @return A word with one bit set for each occupied square.
+     */
+    public long getOccupied()
+    {
+        return occupied;
+    }
+
+    /**
+     * Gets the castling rights that are still available.
+     * @return A combination of the castling right flags of this class.
+     */
+    public int getCastlingRights()
+    {
+        return castlingRights;
+    }
+
+    /**
+     * Gets the square a pawn could move to with an en passant capture.
+     * @return The index of the square, or -1 if no en passant capture is
+     * possible.
+     */
+    public int getEnPassantSquare()
+    {
+        return enPassantSquare;
+    }
+
+    /**
+     * Gets the Zobrist hash of the position. Two positions with the same
+     * pieces on the same squares, the same castling rights, en passant
+     * column and side to move have the same hash. The en passant column only
+     * counts if a pawn of the side to move can take en passant, so a pawn
+     * that has just moved 2 spaces does not change the hash otherwise.
+     * @return The 64 bit hash of the position.
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * Gets the Zobrist hash of the pawns of both players, which is the
+     * exclusive or of the keys of the pawns on their squares. Positions with
+     * the same pawns have the same pawn hash, whatever the other pieces.
+     * @return The 64 bit pawn hash.
+     */
+    public long getPawnHash()
+    {
+        return pawnHash;
+    }
+
+    /**
+     * Gets the number of moves since the last capture or pawn move.
+     * @return The halfmove clock.
+     */
+    public int getHalfmoveClock()
+    {
+        return halfmoveClock;
+    }
+
+    /**
+     * Gets the number of the move being played. It starts at 1 and goes up
+     * after each move of the black player.
+     * @return The fullmove number.
+     */
+    public int getFullmoveNumber()
+    {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Gets the sum of the middlegame values of all the pieces on their
+     * squares, as given by Evaluation.middlegameScore.
+     * @return The score for the white player.
+     */
+    public int getMiddlegameScore()
+    {
+        return middlegameScore;
+    }
+
+    /**
+     * Gets the sum of the endgame values of all the pieces on their squares,
+     * as given by Evaluation.endgameScore.
+     * @return The score for the white player.
+     */
+    public int getEndgameScore()
+    {
+        return endgameScore;
+    }
+
+    /**
+     * Gets the phase of the game: the sum of the phase weights of all the
+     * pieces, as given by Evaluation.phaseWeight.
+     * @return The phase, Evaluation.MAX_PHASE at the start of a game unless
+     * pawns have been promoted.
+     */
+    public int getPhase()
+    {
+        return phase;
+    }
+
+    /**
+     * Gets the player whose turn it is. After a piece is moved, a castling
+     * move or a promotion, it is the turn of the opponent of the player who
+     * did it.
+     * @return The player to move.
+     */
+    public ChessPlayer getSideToMove()
+    {
+        return sideToMove;
+    }
+
+    /**
+     * Moves the piece at the given start coordinates to the given end
+     * coordinates. It ensures the move is valid, that the appropriate enemy
+     * piece is removed, and that the castling and en passant state reflect
+     * the move.
+     * @param row The row of the piece to be moved.
+     * @param column The column of the piece to be moved.
+     * @param endRow The row of the square where the piece will be moved.
+     * @param endColumn The column of the square where the piece will be moved.
+     * @return True if the piece was moved, false if the move is not valid
+     * (nothing happens in this case).
+     */
+    public boolean movePiece(int row, int column, int endRow, int endColumn)
+    {
+        if(!onBoard(row, column) || !onBoard(endRow, endColumn))
+        {
+            return false;
+        }
+
+        int from = getSquare(row, column);
+        int to = getSquare(endRow, endColumn);
+        int code = squares[from];
+
+        //there must be a piece to move, and players are not allowed to skip a move
+        if(code == EMPTY || from == to)
+        {
+            return false;
+        }
+
+        ChessPlayer player = PLAYERS[code / PIECE_TYPES];
+        PieceType type = TYPES[code % PIECE_TYPES];
+
+        //a piece can not be moved over another piece of the same colour
+        if((playerPieces[player.ordinal()] & (1L << to)) != 0)
+        {
+            return false;
+        }
+
+        int flags = ((occupied & (1L << to)) != 0) ? Move.CAPTURE : 0;
+        if(type == PieceType.pawn)
+        {
+            int direction = (player == ChessPlayer.white) ? 1 : -1;
+            int startRow = (player == ChessPlayer.white) ? 1 : SIZE_OF_BOARD - 2;
+            long target = 1L << to;
+
+            //simple move forward, a pawn can not capture a piece this way
+            boolean forward = endRow == row + direction && endColumn == column &&
+                    (occupied & target) == 0;
+
+            /*move forward 2 spaces if the pawn is still on its starting row,
+             * both the square it jumps over and the final square must be empty*/
+            boolean doubleForward = row == startRow && endRow == row + 2 * direction &&
+                    endColumn == column && (occupied & target) == 0 &&
+                    (occupied & (1L << getSquare(row + direction, column))) == 0;
+
+            //capture an enemy piece one space forward on the diagonal
+            boolean capture = (PAWN_ATTACKS[player.ordinal()][from] & target) != 0 &&
+                    (occupied & target) != 0;
+
+            //en passant capture of a pawn that has just moved 2 spaces
+            boolean enPassant = to == enPassantSquare &&
+                    (PAWN_ATTACKS[player.ordinal()][from] & target) != 0;
+
+            if(!forward && !doubleForward && !capture && !enPassant)
+            {
+                return false;
+            }
+            else if(doubleForward)
+            {
+                flags |= Move.DOUBLE_PUSH;
+            }
+            else if(enPassant)
+            {
+                flags |= Move.CAPTURE | Move.EN_PASSANT;
+            }
+        }
+        else if(type == PieceType.king)
+        {
+            /*kings move one square and are not allowed to be moved to a
+             * square where they would be in check*/
+            if((KING_ATTACKS[from] & (1L << to)) == 0 || isInCheck(player, endRow, endColumn))
+            {
+                return false;
+            }
+        }
+        else if((pieceAttacks(code, from, occupied) & (1L << to)) == 0)
+        {
+            return false;
+        }
+
+        /*a pawn that reaches the last row stays a pawn until it is promoted
+         * with the promotePawn method, like on the ChessBoard class*/
+        applyMove(Move.create(from, to, null, flags));
+        return true;
+    }
+
+    /**
+     * Does the castling move, moving the king 2 squares towards a rook while
+     * moving the rook to the square the king passed over. The same conditions
+     * as in the castling method of the ChessBoard class are checked.
+     * @param player The player who wants to castle.
+     * @param rookColumn The column of the rook to castle with.
+     * @return True if the pieces were moved, false if castling with that
+     * rook is not possible (nothing happens in this case).
+     */
+    public boolean castling(ChessPlayer player, int rookColumn)
+    {
+        //based on the player, we select the row on which the king and the rooks start
+        int rookRow = (player == ChessPlayer.white) ? 0 : SIZE_OF_BOARD - 1;
+
+        //only the rooks in the corners can castle, and only if neither they nor the king moved
+        int right;
+        if(rookColumn == 0)
+        {
+            right = (player == ChessPlayer.white) ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+        }
+        else if(rookColumn == SIZE_OF_BOARD - 1)
+        {
+            right = (player == ChessPlayer.white) ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+        }
+        else
+        {
+            return false;
+        }
+
+        int kingSquare = getSquare(rookRow, 4);
+        int rookSquare = getSquare(rookRow, rookColumn);
+
+        /*the castling right only tells us the pieces did not move, we still
+         * need the king and the rook to be on their squares*/
+        if((castlingRights & right) == 0 ||
+                squares[kingSquare] != pieceCode(player, PieceType.king) ||
+                squares[rookSquare] != pieceCode(player, PieceType.rook))
+        {
+            return false;
+        }
+
+        //there must be no pieces on the squares between the king and the rook
+        long between = rayBetween(kingSquare, rookSquare);
+        if((occupied & between) != 0)
+        {
+            return false;
+        }
+
+        /*the king must not currently be in check, and it must not jump over or
+         * land on a square that is in check*/
+        int direction = (rookColumn == 0) ? -1 : 1;
+        for(int i = 0; i <= 2; i++)
+        {
+            if(isInCheck(player, rookRow, 4 + i * direction))
+            {
+                return false;
+            }
+        }
+
+        //move the king 2 squares towards the rook, applyMove moves the rook as well
+        applyMove(Move.create(kingSquare, getSquare(rookRow, 4 + 2 * direction), null, Move.CASTLE));
+        return true;
+    }
+
+    /**
+     * Promotes a pawn at the given coordinates on the board to the given
+     * piece type.
+     * @param type The type of the new chess piece you want.
+     * @param row The row of the pawn you want to promote.
+     * @param column The column of the pawn you want to promote.
+     * @return True if the pawn was promoted, false if the piece at the given
+     * coordinates can not be promoted (nothing happens in this case).
+     */
+    public boolean promotePawn(PieceType type, int row, int column)
+    {
+        int square = getSquare(row, column);
+        int code = squares[square];
+
+        //a pawn can not stay a pawn, and can not become a king
+        if(code == EMPTY || type == PieceType.king || type == PieceType.pawn)
+        {
+            return false;
+        }
+
+        //only a pawn that reached the row opposite its starting end of the board can be promoted
+        ChessPlayer player = PLAYERS[code / PIECE_TYPES];
+        int lastRow = (player == ChessPlayer.white) ? SIZE_OF_BOARD - 1 : 0;
+        if(TYPES[code % PIECE_TYPES] != PieceType.pawn || row != lastRow)
+        {
+            return false;
+        }
+
+        setEnPassantSquare(-1);
+        removePiece(square);
+        addPiece(pieceCode(player, type), square);
+        setSideToMove(opponent(player));
+
+        //like a move, a promotion can not be taken back, and neither can the moves before it
+        undoCount = 0;
+        return true;
+    }
+
+    /**
+     * Plays a move on the board without checking that it is valid, so it
+     * must come from the move generator or have been checked before. It
+     * removes captured pieces, moves the rook when castling, promotes a pawn
+     * if the move is a promotion, updates the castling rights and en passant
+     * square, and passes the turn to the other player. The move is
+     * permanent, so moves made with makeMove before it can no longer be
+     * taken back.
+     * @param move The move, packed as described in the Move class.
+     */
+    public void applyMove(int move)
+    {
+        playMove(move);
+        undoCount = 0;
+    }
+
+    /**
+     * Plays a move on the board like applyMove, but keeps what is needed to
+     * take it back with unmakeMove. The move must come from the move
+     * generator or have been checked before.
+     * @param move The move, packed as described in the Move class.
+     * @throws IllegalStateException Thrown if MAX_UNDO moves are already on
+     * the undo stack.
+     */
+    public void makeMove(int move) throws IllegalStateException
+    {
+        if(undoCount == MAX_UNDO)
+        {
+            throw new IllegalStateException("Too many moves to take back!");
+        }
+
+        undoMoves[undoCount] = move;
+        undoCastlingRights[undoCount] = castlingRights;
+        undoEnPassant[undoCount] = enPassantSquare;
+        undoHalfmoveClock[undoCount] = halfmoveClock;
+        undoHash[undoCount] = hash;
+        undoCaptured[undoCount] = playMove(move);
+        undoCount++;
+    }
+
+    /**
+     * Takes back the last move made with makeMove, putting back the moved
+     * and captured pieces and the castling and en passant state.
+     * @throws IllegalStateException Thrown if there is no move to take back.
+     */
+    public void unmakeMove() throws IllegalStateException
+    {
+        if(undoCount == 0)
+        {
+            throw new IllegalStateException("There is no move to take back!");
+        }
+
+        undoCount--;
+        int move = undoMoves[undoCount];
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+
+        //it is the turn of the player who made the move again
+        sideToMove = opponent(sideToMove);
+
+        //a promoted piece goes back to being a pawn
+        int code = squares[to];
+        if(Move.isPromotion(move))
+        {
+            code = pieceCode(sideToMove, PieceType.pawn);
+        }
+
+        removePiece(to);
+        addPiece(code, from);
+
+        if(Move.isCastle(move))
+        {
+            int rookFrom = (to > from) ? to + 1 : to - 2;
+            int rookTo = (from + to) / 2;
+            int rookCode = squares[rookTo];
+            removePiece(rookTo);
+            addPiece(rookCode, rookFrom);
+        }
+        else if(Move.isEnPassant(move))
+        {
+            addPiece(pieceCode(opponent(sideToMove), PieceType.pawn),
+                    getSquare(from / SIZE_OF_BOARD, to % SIZE_OF_BOARD));
+        }
+        else if(undoCaptured[undoCount] != EMPTY)
+        {
+            addPiece(undoCaptured[undoCount], to);
+        }
+
+        castlingRights = undoCastlingRights[undoCount];
+        enPassantSquare = undoEnPassant[undoCount];
+        halfmoveClock = undoHalfmoveClock[undoCount];
+        if(sideToMove == ChessPlayer.black)
+        {
+            fullmoveNumber--;
+        }
+
+        //the hash is put back as a whole, instead of undoing each xor
+        hash = undoHash[undoCount];
+    }
+
+    /**
+     * Passes the turn to the other player without moving a piece, which is
+     * not a legal move in chess but is used by the search to find out how
+     * good a position is even if the player to move does nothing. No pawn can
+     * be captured en passant after it. The player to move must not be in
+     * check.
+     * @throws IllegalStateException Thrown if MAX_UNDO moves are already on
+     * the undo stack.
+     */
+    public void makeNullMove() throws IllegalStateException
+    {
+        if(undoCount == MAX_UNDO)
+        {
+            throw new IllegalStateException("Too many moves to take back!");
+        }
+
+        undoMoves[undoCount] = Move.NONE;
+        undoCastlingRights[undoCount] = castlingRights;
+        undoEnPassant[undoCount] = enPassantSquare;
+        undoHalfmoveClock[undoCount] = halfmoveClock;
+        undoHash[undoCount] = hash;
+        undoCaptured[undoCount] = EMPTY;
+        undoCount++;
+
+        setEnPassantSquare(-1);
+        setSideToMove(opponent(sideToMove));
+    }
+
+    /**
+     * Takes back the pass made with makeNullMove.
+     * @throws IllegalStateException Thrown if the last move on the undo stack
+     * is not a pass.
+     */
+    public void unmakeNullMove() throws IllegalStateException
+    {
+        if(undoCount == 0 || undoMoves[undoCount - 1] != Move.NONE)
+        {
+            throw new IllegalStateException("There is no pass to take back!");
+        }
+
+        undoCount--;
+        sideToMove = opponent(sideToMove);
+        enPassantSquare = undoEnPassant[undoCount];
+        hash = undoHash[undoCount];
+    }
+
+    /**
+     * Plays a move on the board, as described for applyMove.
+     * @param move The move, packed as described in the Move class.
+     * @return The code of the piece captured on the square the piece moves
+     * to, or EMPTY if there was none there.
+     */
+    private int playMove(int move)
+    {
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int code = squares[from];
+        int captured = squares[to];
+        ChessPlayer player = PLAYERS[code / PIECE_TYPES];
+
+        //an en passant capture is only possible right after a pawn moved 2 spaces
+        setEnPassantSquare(-1);
+
+        if(Move.isCastle(move))
+        {
+            /*the rook lands on the square the king jumped over, coming from
+             * the corner on the side the king moved towards*/
+            int rookFrom = (to > from) ? to + 1 : to - 2;
+            int rookTo = (from + to) / 2;
+            int rookCode = squares[rookFrom];
+            removePiece(rookFrom);
+            addPiece(rookCode, rookTo);
+        }
+        /*in the en passant move, the captured pawn is not on the square the
+         * pawn moves to, but on the same row as the square the pawn started on*/
+        else if(Move.isEnPassant(move))
+        {
+            removePiece(getSquare(from / SIZE_OF_BOARD, to % SIZE_OF_BOARD));
+        }
+        //if an enemy piece is captured, we remove it from the board
+        else if(captured != EMPTY)
+        {
+            removePiece(to);
+        }
+
+        removePiece(from);
+        if(Move.isPromotion(move))
+        {
+            addPiece(pieceCode(player, Move.getPromotion(move)), to);
+        }
+        else
+        {
+            addPiece(code, to);
+        }
+
+        setCastlingRights(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+
+        if(Move.isDoublePush(move))
+        {
+            setEnPassantSquare((from + to) / 2);
+        }
+
+        //captures and pawn moves can not be taken back, so they restart the count of the fifty move rule
+        if(captured != EMPTY || Move.isEnPassant(move) || code % PIECE_TYPES == PieceType.pawn.ordinal())
+        {
+            halfmoveClock = 0;
+        }
+        else
+        {
+            halfmoveClock++;
+        }
+
+        if(player == ChessPlayer.black)
+        {
+            fullmoveNumber++;
+        }
+
+        setSideToMove(opponent(player));
+        return captured;
+    }
+
+    /**
+     * Finds out if, had a king of the given player been on the given square,
+     * the king would be in check. The king of the player is taken off the
+     * board while checking, so that squares it currently shields from enemy
+     * pieces are seen as being in check.
+     * @param player The player whose king would be in check.
+     * @param row The row of the square.
+     * @param column The column of the square.
+     * @return True if an enemy piece attacks that square.
+     */
+    public boolean isInCheck(ChessPlayer player, int row, int column)
+    {
+        return isAttacked(getSquare(row, column), player);
+    }
+
+    /**
+     * Tells you if the king of the given player is in check where it stands
+     * now. Only the enemy pieces that could reach the king are looked at, so
+     * this does not work out all the squares the enemy attacks, which is
+     * only worth it when many squares are asked about.
+     * @param player The player whose king we check.
+     * @return True if an enemy piece attacks the king.
+     */
+    public boolean isInCheck(ChessPlayer player)
+    {
+        int kingSquare = Long.numberOfTrailingZeros(pieces[pieceCode(player, PieceType.king)]);
+        return attackers(kingSquare, opponent(player), occupied) != 0;
+    }
+
+    /**
+     * Gets all the squares the pieces of a player attack, including squares
+     * held by pieces of that player. The king of the other player is left out
+     * of the occupied squares, so these are the squares that king can not
+     * move to. The set is cached until the pieces on the board change.
+     * @param player The player whose attacks we want.
+     * @return A bitboard of the attacked squares.
+     */
+    public long getAttacks(ChessPlayer player)
+    {
+        int index = player.ordinal();
+
+        if(!attacksValid[index])
+        {
+            attacks[index] = computeAttacks(player);
+            attacksValid[index] = true;
+        }
+
+        return attacks[index];
+    }
+
+    /**
+     * Determines whether the king of the given player is check mated,
+     * meaning it is in check and every square it could move to is in check
+     * too.
+     * @param player The player whose king we check.
+     * @return True if the king of that player is check mated.
+     */
+    public boolean isCheckMate(ChessPlayer player)
+    {
+        int kingSquare = Long.numberOfTrailingZeros(pieces[pieceCode(player, PieceType.king)]);
+
+        if(!isAttacked(kingSquare, player))
+        {
+            return false;
+        }
+
+        return !hasSafeSquare(kingSquare, player);
+    }
+
+    /**
+     * Determines whether the king of the given player is in a stalemate,
+     * meaning the king is not in check, but it can move and every move would
+     * place it in check.
+     * @param player The player whose king we check.
+     * @return True if the king of that player is in a stalemate.
+     */
+    public boolean isStalemate(ChessPlayer player)
+    {
+        int kingSquare = Long.numberOfTrailingZeros(pieces[pieceCode(player, PieceType.king)]);
+
+        /*If the king is surrounded by pieces of the same colour, it has no
+         * squares to move to, but that is not a stalemate.*/
+        long escapes = KING_ATTACKS[kingSquare] & ~playerPieces[player.ordinal()];
+        if(escapes == 0 || isAttacked(kingSquare, player))
+        {
+            return false;
+        }
+
+        return !hasSafeSquare(kingSquare, player);
+    }
+
+    /**
+     * Prints the entire board, in the same format as the printChessBoard
+     * method of the ChessBoard class.
+     */
+    public void printChessBoard()
+    {
+        //white pieces start on rows 0 and 1, so they are displayed at the bottom of the board
+        for(int i = SIZE_OF_BOARD - 1; i >= 0; i--)
+        {
+            System.out.print("\n");
+            System.out.printf("%-5s", i + 1);
+            for(int j = 0; j < SIZE_OF_BOARD; j++)
+            {
+                int code = squares[getSquare(i, j)];
+                if(code != EMPTY)
+                {
+                    System.out.printf("%-5s", " " + PIECE_NAMES[code] + " ");
+                }
+                else
+                {
+                    System.out.printf("%-5s", " 0 ");
+                }
+            }
+            System.out.print("\n\n");
+        }
+
+        //print column letters
+        System.out.print("     ");
+        for(int i = 0; i < SIZE_OF_BOARD; i++)
+        {
+            System.out.printf("%-5s", " " + (char)(i + 97) + " ");
+        }
+
+        System.out.print("\n\n");
+    }
+
+    /**
+     * Checks whether a king of the given player on the given square has at
+     * least one square next to it that it can move to without being in check.
+     * @param kingSquare The square of the king.
+     * @param player The player the king belongs to.
+     * @return True if there is such a square.
+     */
+    private boolean hasSafeSquare(int kingSquare, ChessPlayer player)
+    {
+        long escapes = KING_ATTACKS[kingSquare] & ~playerPieces[player.ordinal()];
+
+        while(escapes != 0)
+        {
+            int square = Long.numberOfTrailingZeros(escapes);
+            escapes &= escapes - 1;
+
+            if(!isAttacked(square, player))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if the given square would be in check for a king of the given
+     * player, with that player's king taken off the board.
+     * @param square The square to check.
+     * @param player The player whose king would be in check.
+     * @return True if an enemy piece attacks the square.
+     */
+    private boolean isAttacked(int square, ChessPlayer player)
+    {
+        return (getAttacks(opponent(player)) & (1L << square)) != 0;
+    }
+
+    /**
+     * Works out all the squares the pieces of a player attack, with the king
+     * of the other player taken off the board.
+     * @param player The player whose attacks we want.
+     * @return A bitboard of the attacked squares.
+     */
+    private long computeAttacks(ChessPlayer player)
+    {
+        int base = player.ordinal() * PIECE_TYPES;
+        long occupancy = occupied & ~pieces[pieceCode(opponent(player), PieceType.king)];
+
+        //all the pawns of a player attack at once, by shifting the whole word
+        long pawns = pieces[base + PieceType.pawn.ordinal()];
+        long result;
+        if(player == ChessPlayer.white)
+        {
+            result = ((pawns & ~COLUMN_A) << 7) | ((pawns & ~COLUMN_H) << 9);
+        }
+        else
+        {
+            result = ((pawns & ~COLUMN_A) >>> 9) | ((pawns & ~COLUMN_H) >>> 7);
+        }
+
+        long others = playerPieces[player.ordinal()] & ~pawns;
+        while(others != 0)
+        {
+            int square = Long.numberOfTrailingZeros(others);
+            others &= others - 1;
+            result |= pieceAttacks(squares[square], square, occupancy);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds all the pieces of the given player that attack the given square,
+     * as if the board had the given occupancy.
+     * @param square The attacked square.
+     * @param attacker The player whose pieces attack the square.
+     * @param occupancy The squares that block sliding pieces.
+     * @return A bitboard of the attacking pieces.
+     */
+    public long attackers(int square, ChessPlayer attacker, long occupancy)
+    {
+        int base = attacker.ordinal() * PIECE_TYPES;
+        long queens = pieces[base + PieceType.queen.ordinal()];
+        long rooks = pieces[base + PieceType.rook.ordinal()] | queens;
+        long bishops = pieces[base + PieceType.bishop.ordinal()] | queens;
+
+        /*Attacks are symmetric: a piece on the square attacks the squares
+         * from which the same kind of piece would attack the square. For pawns
+         * we use the attacks of a pawn of the other colour.*/
+        return (KNIGHT_ATTACKS[square] & pieces[base + PieceType.knight.ordinal()])
+                | (KING_ATTACKS[square] & pieces[base + PieceType.king.ordinal()])
+                | (PAWN_ATTACKS[opponent(attacker).ordinal()][square] & pieces[base + PieceType.pawn.ordinal()])
+                | (SlidingAttacks.rookAttacks(square, occupancy) & rooks)
+                | (SlidingAttacks.bishopAttacks(square, occupancy) & bishops);
+    }
+
+    /**
+     * Gets the squares a piece with the given code on the given square
+     * attacks. Pawns are not handled here, since their moves depend on more
+     * than the squares they attack.
+     * @param code The piece code.
+     * @param square The square of the piece.
+     * @param occupancy The squares that block sliding pieces.
+     * @return A bitboard of the attacked squares.
+     */
+    private static long pieceAttacks(int code, int square, long occupancy)
+    {
+        switch(TYPES[code % PIECE_TYPES])
+        {
+            case knight:
+                return KNIGHT_ATTACKS[square];
+            case king:
+                return KING_ATTACKS[square];
+            case rook:
+                return SlidingAttacks.rookAttacks(square, occupancy);
+            case bishop:
+                return SlidingAttacks.bishopAttacks(square, occupancy);
+            case queen:
+                return SlidingAttacks.queenAttacks(square, occupancy);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Gets the squares strictly between two squares on the same row.
+     * @param square1 The first square.
+     * @param square2 The second square.
+     * @return A bitboard of the squares between them.
+     */
+    private static long rayBetween(int square1, int square2)
+    {
+        int low = Math.min(square1, square2);
+        int high = Math.max(square1, square2);
+
+        //all bits below high, minus the bits up to and including low
+        return ((1L << high) - 1) & ~((1L << (low + 1)) - 1);
+    }
+
+    /**
+     * Gets the squares reachable from the given coordinates with one of the
+     * given steps, without leaving the board.
+     * @param row The starting row.
+     * @param column The starting column.
+     * @param steps The row and column changes of each step.
+     * @return A bitboard of the reachable squares.
+     */
+    private static long stepAttacks(int row, int column, int[][] steps)
+    {
+        long attacks = 0;
+
+        for(int[] step : steps)
+        {
+            if(onBoard(row + step[0], column + step[1]))
+            {
+                attacks |= 1L << getSquare(row + step[0], column + step[1]);
+            }
+        }
+
+        return attacks;
+    }
+
+    /**
+     * Checks if the given coordinates are inside the board.
+     * @param row The row.
+     * @param column The column.
+     * @return True if the coordinates are on the board.
+     */
+    private static boolean onBoard(int row, int column)
+    {
+        return row >= 0 && row < SIZE_OF_BOARD && column >= 0 && column < SIZE_OF_BOARD;
+    }
+
+    /**
+     * Takes all the pieces off the board and resets the rest of the state,
+     * so that a position can be set up from scratch.
+     */
+    private void clear()
+    {
+        setEnPassantSquare(-1);
+        for(int square = 0; square < SQUARES; square++)
+        {
+            if(squares[square] != EMPTY)
+            {
+                removePiece(square);
+            }
+        }
+
+        setCastlingRights(0);
+        setSideToMove(ChessPlayer.white);
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        undoCount = 0;
+    }
+
+    /**
+     * Checks that the pieces of a position set up from a FEN or from the
+     * squares make a position the rest of the class can work with.
+     * @param codes The piece code of each square, or EMPTY.
+     * @throws IllegalArgumentException Thrown if a code is not a piece code,
+     * a player does not have exactly one king or has more than 16 pieces, or
+     * a pawn is on the first row of its player.
+     */
+    private static void checkSquares(int[] codes) throws IllegalArgumentException
+    {
+        int whiteKings = 0;
+        int blackKings = 0;
+        int whitePieces = 0;
+        int blackPieces = 0;
+        int whiteKing = pieceCode(ChessPlayer.white, PieceType.king);
+        int blackKing = pieceCode(ChessPlayer.black, PieceType.king);
+        int whitePawn = pieceCode(ChessPlayer.white, PieceType.pawn);
+        int blackPawn = pieceCode(ChessPlayer.black, PieceType.pawn);
+
+        for(int square = 0; square < SQUARES; square++)
+        {
+            int code = codes[square];
+            if(code == EMPTY)
+            {
+                continue;
+            }
+            else if(code < 0 || code >= FEN_PIECES.length())
+            {
+                throw new IllegalArgumentException("Unknown piece code " + code + "!");
+            }
+
+            if(code / PIECE_TYPES == ChessPlayer.white.ordinal())
+            {
+                whitePieces++;
+            }
+            else
+            {
+                blackPieces++;
+            }
+            if(code == whiteKing)
+            {
+                whiteKings++;
+            }
+            else if(code == blackKing)
+            {
+                blackKings++;
+            }
+            //a pawn may wait on the last row to be promoted, but it can never be on its first row
+            else if((code == whitePawn && square < SIZE_OF_BOARD)
+                    || (code == blackPawn && square >= SQUARES - SIZE_OF_BOARD))
+            {
+                throw new IllegalArgumentException("A pawn can not be on the first row of its player!");
+            }
+        }
+
+        if(whiteKings != 1 || blackKings != 1)
+        {
+            throw new IllegalArgumentException("Each player must have exactly one king!");
+        }
+        else if(whitePieces > MAX_PIECES || blackPieces > MAX_PIECES)
+        {
+            throw new IllegalArgumentException("A player can not have more than 16 pieces!");
+        }
+    }
+
+    /**
+     * Gets the castling rights whose king and rook are on their starting
+     * squares.
+     * @return A combination of the castling right flags.
+     */
+    private int possibleCastlingRights()
+    {
+        int rights = 0;
+        for(ChessPlayer player : PLAYERS)
+        {
+            int row = (player == ChessPlayer.white) ? 0 : SIZE_OF_BOARD - 1;
+            if(squares[getSquare(row, 4)] != pieceCode(player, PieceType.king))
+            {
+                continue;
+            }
+
+            int rook = pieceCode(player, PieceType.rook);
+            if(squares[getSquare(row, SIZE_OF_BOARD - 1)] == rook)
+            {
+                rights |= (player == ChessPlayer.white) ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+            }
+            if(squares[getSquare(row, 0)] == rook)
+            {
+                rights |= (player == ChessPlayer.white) ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+            }
+        }
+
+        return rights;
+    }
+
+    /**
+     * Sets the en passant square read from a FEN, after the side to move.
+     * @param column The column of the square.
+     * @param row The row of the square.
+     * @throws IllegalArgumentException Thrown if the square is not one a pawn
+     * of the player who did not move can have just jumped over.
+     */
+    private void setFenEnPassantSquare(int column, int row) throws IllegalArgumentException
+    {
+        checkEnPassantSquare(squares, sideToMove, column, row);
+        setEnPassantSquare(getSquare(row, column));
+    }
+
+    /**
+     * Checks that a square is one a pawn of the player who did not move can
+     * have just jumped over.
+     * @param codes The piece code of each square, or EMPTY.
+     * @param sideToMove The player to move.
+     * @param column The column of the square.
+     * @param row The row of the square.
+     * @throws IllegalArgumentException Thrown if it is not.
+     */
+    private static void checkEnPassantSquare(int[] codes, ChessPlayer sideToMove, int column, int row)
+            throws IllegalArgumentException
+    {
+        //the pawn jumped over the square, so it stands one row further from its own side
+        int expectedRow = (sideToMove == ChessPlayer.white) ? SIZE_OF_BOARD - 3 : 2;
+        int pawnRow = (sideToMove == ChessPlayer.white) ? row - 1 : row + 1;
+        ChessPlayer pawnPlayer = opponent(sideToMove);
+
+        if(!onBoard(row, column) || row != expectedRow ||
+                codes[getSquare(pawnRow, column)] != pieceCode(pawnPlayer, PieceType.pawn))
+        {
+            throw new IllegalArgumentException("The en passant square of the FEN is not valid!");
+        }
+    }
+
+    /**
+     * Finds the first character of a string from an index that is not a
+     * space.
+     * @param text The string.
+     * @param index The index to start from.
+     * @return The index of the character, or the length of the string.
+     */
+    private static int skipSpaces(String text, int index)
+    {
+        while(index < text.length() && text.charAt(index) == ' ')
+        {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Finds the first character of a string from an index that is not a
+     * digit.
+     * @param text The string.
+     * @param index The index to start from.
+     * @return The index of the character, or the length of the string.
+     */
+    private static int skipDigits(String text, int index)
+    {
+        while(index < text.length() && Character.isDigit(text.charAt(index)))
+        {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Reads the number at an index of a string.
+     * @param text The string.
+     * @param index The index of the first digit.
+     * @return The number.
+     * @throws IllegalArgumentException Thrown if the number is too large.
+     */
+    private static int readNumber(String text, int index) throws IllegalArgumentException
+    {
+        int number = 0;
+        for(int i = index; i < text.length() && Character.isDigit(text.charAt(i)); i++)
+        {
+            number = number * 10 + (text.charAt(i) - '0');
+            if(number > 1_000_000)
+            {
+                throw new IllegalArgumentException("A clock of the FEN is too large!");
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Changes the castling rights, updating the hash.
+     * @param rights The new castling rights.
+     */
+    private void setCastlingRights(int rights)
+    {
+        hash ^= Zobrist.castlingKey(castlingRights) ^ Zobrist.castlingKey(rights);
+        castlingRights = rights;
+    }
+
+    /**
+     * Changes the en passant square, updating the hash. The pieces must not
+     * change while there is an en passant square, since its key depends on
+     * them.
+     * @param square The new en passant square, or -1 for none.
+     */
+    private void setEnPassantSquare(int square)
+    {
+        hash ^= enPassantKey(enPassantSquare) ^ enPassantKey(square);
+        enPassantSquare = square;
+    }
+
+    /**
+     * Gets the key an en passant square adds to the hash: the key of its
+     * column if a pawn can take en passant, and nothing otherwise, so that
+     * the same position always has the same hash.
+     * @param square The en passant square, or -1.
+     * @return The key, or 0.
+     */
+    private long enPassantKey(int square)
+    {
+        if(square == -1)
+        {
+            return 0;
+        }
+
+        //the pawn that jumped over the square can be taken by the enemy pawns attacking the square
+        ChessPlayer jumper = (square / SIZE_OF_BOARD == 2) ? ChessPlayer.white : ChessPlayer.black;
+        long takers = pieces[pieceCode(opponent(jumper), PieceType.pawn)];
+        return ((pawnAttacks(jumper, square) & takers) != 0) ? Zobrist.enPassantKey(square % SIZE_OF_BOARD) : 0;
+    }
+
+    /**
+     * Changes the side to move, updating the hash.
+     * @param player The player whose turn it is.
+     */
+    private void setSideToMove(ChessPlayer player)
+    {
+        if(player != sideToMove)
+        {
+            hash ^= Zobrist.sideKey();
+            sideToMove = player;
+        }
+    }
+
+    /**
+     * Puts a piece with the given code on an empty square.
+     * @param code The piece code.
+     * @param square The square.
+     */
+    private void addPiece(int code, int square)
+    {
+        long bit = 1L << square;
+        pieces[code] |= bit;
+        playerPieces[code / PIECE_TYPES] |= bit;
+        occupied |= bit;
+        squares[square] = code;
+        hash ^= Zobrist.pieceKey(code, square);
+        if(code % PIECE_TYPES == PieceType.pawn.ordinal())
+        {
+            pawnHash ^= Zobrist.pieceKey(code, square);
+        }
+        middlegameScore += Evaluation.middlegameScore(code, square);
+        endgameScore += Evaluation.endgameScore(code, square);
+        phase += Evaluation.phaseWeight(code);
+        attacksValid[0] = false;
+        attacksValid[1] = false;
+    }
+
+    /**
+     * Takes the piece on the given square off the board.
+     * @param square The square, which must not be empty.
+     */
+    private void removePiece(int square)
+    {
+        int code = squares[square];
+        long bit = 1L << square;
+        pieces[code] &= ~bit;
+        playerPieces[code / PIECE_TYPES] &= ~bit;
+        occupied &= ~bit;
+        squares[square] = EMPTY;
+        hash ^= Zobrist.pieceKey(code, square);
+        if(code % PIECE_TYPES == PieceType.pawn.ordinal())
+        {
+            pawnHash ^= Zobrist.pieceKey(code, square);
+        }
+        middlegameScore -= Evaluation.middlegameScore(code, square);
+        endgameScore -= Evaluation.endgameScore(code, square);
+        phase -= Evaluation.phaseWeight(code);
+        attacksValid[0] = false;
+        attacksValid[1] = false;
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 /*Class models a chess board. It has a constructor that sets the pieces the way they
  *  are in the beginning of a chess match, a method to move a piece, a method that 
  *  displays the chess board, a getter for individual pieces, a method for the 
@@ -11,13 +12,54 @@ public class ChessBoard
 	private static final int SIZE_OF_BOARD=8;
 	private ChessPiece [][] chessBoard=new ChessPiece[SIZE_OF_BOARD][SIZE_OF_BOARD];
 	
-	//for checking whether a king is in check or check mate, we need a list of each player's pieces
-	private ArrayList<ChessPiece> whitePieces=new ArrayList<>();
-	private ArrayList<ChessPiece> blackPieces=new ArrayList<>();
+	//a player never has more than 16 pieces, since a pawn is replaced when it is promoted
+	private static final int MAX_PIECES=16;
+	
+	/*the pieces of each player, indexed by the ordinal of the player. Each list is a fixed
+	 * size array with the pieces at the front, and for each square we keep the index of its
+	 * piece in its list, so a piece is added or removed without searching the list. A piece
+	 * is removed by moving the last piece of the list into its place.*/
+	private final ChessPiece[][] pieceLists=new ChessPiece[2][MAX_PIECES];
+	private final int[] pieceCounts=new int[2];
+	private final int[] listIndexes=new int[SIZE_OF_BOARD*SIZE_OF_BOARD];
+	
+	//the king of each player, indexed by the ordinal of the player
+	private final ChessPiece[] kings=new ChessPiece[2];
+	
+	/*the same position kept as bitboards, updated with every move. It is used to look up
+	 * the attacks of pieces, for check detection and for generating the legal moves.*/
+	private final BitBoard position;
+	
+	//the pawn that has just moved 2 spaces, which can be captured en passant in the next move
+	private Pawn enPassantPawn;
+	
+	/*the undo stack of the moves made with makeMove. For each move we keep the move, the
+	 * piece that was moved (the pawn, if the move was a promotion), the piece it captured,
+	 * the pawn that could be captured en passant before the move, and the flags of the moved
+	 * piece and of the castling rook from before the move. This is all that is needed to 
+	 * put the pieces back the way they were, without copying the board.*/
+	private final int[] undoMoves=new int[BitBoard.MAX_UNDO];
+	private final ChessPiece[] undoMovedPieces=new ChessPiece[BitBoard.MAX_UNDO];
+	private final ChessPiece[] undoCapturedPieces=new ChessPiece[BitBoard.MAX_UNDO];
+	private final Pawn[] undoEnPassantPawns=new Pawn[BitBoard.MAX_UNDO];
+	private final boolean[] undoHasMoved=new boolean[BitBoard.MAX_UNDO];
+	private final boolean[] undoMoved2Spaces=new boolean[BitBoard.MAX_UNDO];
+	private final boolean[] undoRookHasMoved=new boolean[BitBoard.MAX_UNDO];
+	
+	//the number of moves on the undo stack
+	private int undoCount;
+	
+	/*the status of the game in the current position, or null if it has not been worked
+	 * out since the last change to the board, and the array the legal moves are written
+	 * to while working it out*/
+	private GameStatus gameStatus;
+	private final int[] statusMoves=new int[MoveGenerator.MAX_MOVES];
 	
 	//constructor for a chess board, adds the pieces for the beginning of the match
 	public ChessBoard()
 	{
+		position=new BitBoard();
+		
 		//add the non-pawn white pieces on the first row
 		chessBoard[0][0]=new Rook(ChessPlayer.white,0,0);
 		chessBoard[0][7]=new Rook(ChessPlayer.white,0,7);
@@ -33,9 +75,9 @@ public class ChessBoard
 		 * the pieces list*/
 		for(int i=0;i<8;i++)
 		{
-			whitePieces.add(chessBoard[0][i]);
+			addToList(chessBoard[0][i]);
 			chessBoard[1][i]=new Pawn(ChessPlayer.white,1,i);
-			whitePieces.add(chessBoard[1][i]);
+			addToList(chessBoard[1][i]);
 		}
 		
 		//add non-pawn black pieces on row 7
@@ -51,12 +93,181 @@ public class ChessBoard
 		//add pawn black pieces to the list, create black pawns and add them to the list
 		for(int i=0;i<8;i++)
 		{
-			blackPieces.add(chessBoard[7][i]);
+			addToList(chessBoard[7][i]);
 			chessBoard[6][i]=new Pawn(ChessPlayer.black,6,i);
-			blackPieces.add(chessBoard[6][i]);
+			addToList(chessBoard[6][i]);
 		}
 	}
 	
+	/**
+	 * Makes a copy of a chess board, with copies of all its pieces in the same places
+	 * and with the same hasMoved and moved2Spaces flags, so that moves made on the copy
+	 * do not change the original. This lets several threads each look ahead from the
+	 * same position on their own board. The undo stack is not copied, so moves made with
+	 * makeMove on the original can not be taken back on the copy.
+	 * @param other The board to copy.
+	 */
+	public ChessBoard(ChessBoard other)
+	{
+		position=new BitBoard(other.position);
+		
+		for(int i=0;i<SIZE_OF_BOARD;i++)
+		{
+			for(int j=0;j<SIZE_OF_BOARD;j++)
+			{
+				ChessPiece piece=other.chessBoard[i][j];
+				if(piece!=null)
+				{
+					ChessPiece copy=copyPiece(piece);
+					chessBoard[i][j]=copy;
+					addToList(copy);
+					
+					if(piece==other.enPassantPawn)
+					{
+						enPassantPawn=(Pawn)copy;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Makes a chess board from a position set up on a bitboard, making a piece object for
+	 * each piece. The flags of the pieces are worked out from the position: a king or a
+	 * rook has not moved if it still has a castling right, a pawn has not moved if it is
+	 * on its starting row, and the pawn that can be captured en passant has moved 2 
+	 * spaces.
+	 * @param position The position, which the board keeps.
+	 */
+	private ChessBoard(BitBoard position)
+	{
+		this.position=position;
+		int rights=position.getCastlingRights();
+		
+		for(int square=0;square<SIZE_OF_BOARD*SIZE_OF_BOARD;square++)
+		{
+			int code=position.getPieceCode(square);
+			if(code==BitBoard.EMPTY)
+			{
+				continue;
+			}
+			
+			int row=square/SIZE_OF_BOARD;
+			int column=square%SIZE_OF_BOARD;
+			ChessPlayer player=position.getPlayer(row, column);
+			PieceType type=position.getPiece(row, column);
+			boolean white=player==ChessPlayer.white;
+			
+			ChessPiece piece;
+			boolean moved;
+			if(type==PieceType.king)
+			{
+				piece=new King(player, row, column);
+				moved=(rights & (white ? BitBoard.WHITE_KING_SIDE | BitBoard.WHITE_QUEEN_SIDE :
+					BitBoard.BLACK_KING_SIDE | BitBoard.BLACK_QUEEN_SIDE))==0;
+			}
+			else if(type==PieceType.pawn)
+			{
+				piece=new Pawn(player, row, column);
+				moved=row!=(white ? 1 : SIZE_OF_BOARD-2);
+			}
+			else
+			{
+				piece=createPiece(type, player, row, column);
+				
+				//only a rook in its corner with the right to castle there has not moved
+				int right=0;
+				if(type==PieceType.rook && column==0)
+				{
+					right=white ? BitBoard.WHITE_QUEEN_SIDE : BitBoard.BLACK_QUEEN_SIDE;
+				}
+				else if(type==PieceType.rook && column==SIZE_OF_BOARD-1)
+				{
+					right=white ? BitBoard.WHITE_KING_SIDE : BitBoard.BLACK_KING_SIDE;
+				}
+				moved=type==PieceType.rook && (rights & right)==0;
+			}
+			
+			piece.undoMove(row, column, moved);
+			chessBoard[row][column]=piece;
+			addToList(piece);
+		}
+		
+		//the pawn that jumped over the en passant square is the one behind it, seen from its player
+		int enPassantSquare=position.getEnPassantSquare();
+		if(enPassantSquare!=-1)
+		{
+			int pawnRow=enPassantSquare/SIZE_OF_BOARD+(position.getSideToMove()==ChessPlayer.white ? -1 : 1);
+			enPassantPawn=(Pawn)chessBoard[pawnRow][enPassantSquare%SIZE_OF_BOARD];
+			enPassantPawn.setMoved2Spaces(true);
+		}
+	}
+	
+	/**
+	 * Makes a chess board with the position given in Forsyth-Edwards Notation (FEN), for
+	 * example "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1". The side to
+	 * move, castling rights, en passant square and clocks are taken from the FEN, and the
+	 * hasMoved and moved2Spaces flags of the pieces are set to match them. An EPD record
+	 * can be given as well, its operations are ignored.
+	 * @param fen The position.
+	 * @return The new board.
+	 * @throws IllegalArgumentException Thrown if the text is not a valid position, as
+	 * described for BitBoard.fromFen.
+	 */
+	public static ChessBoard fromFen(String fen) throws IllegalArgumentException
+	{
+		return new ChessBoard(BitBoard.fromFen(fen));
+	}
+	
+	/**
+	 * Makes a chess board from the piece on each square, the side to move, the castling
+	 * rights and the en passant square, as read by PositionCodec. The hasMoved and
+	 * moved2Spaces flags of the pieces are set to match them, like in fromFen.
+	 * @param codes The piece code of each square, as given by BitBoard.pieceCode, or
+	 * BitBoard.EMPTY.
+	 * @param sideToMove The player to move.
+	 * @param castlingRights A combination of the castling right flags of the BitBoard class.
+	 * @param enPassantSquare The en passant square, or -1.
+	 * @return The new board.
+	 * @throws IllegalArgumentException Thrown if the position is not valid, as described
+	 * for BitBoard.fromSquares.
+	 */
+	public static ChessBoard fromSquares(int[] codes, ChessPlayer sideToMove, int castlingRights,
+			int enPassantSquare) throws IllegalArgumentException
+	{
+		return new ChessBoard(BitBoard.fromSquares(codes, sideToMove, castlingRights, enPassantSquare));
+	}
+	
+	/**
+	 * Writes the position in Forsyth-Edwards Notation, with the side to move, castling
+	 * rights, en passant square and both clocks.
+	 * @return The position as a FEN string.
+	 */
+	public String toFen()
+	{
+		return position.toFen();
+	}
+	
+	/**
+	 * Gets the number of moves since the last capture or pawn move, for the fifty move
+	 * rule.
+	 * @return The halfmove clock.
+	 */
+	public int getHalfmoveClock()
+	{
+		return position.getHalfmoveClock();
+	}
+	
+	/**
+	 * Gets the number of the move being played, which starts at 1 and goes up after each
+	 * move of the black player.
+	 * @return The fullmove number.
+	 */
+	public int getFullmoveNumber()
+	{
+		return position.getFullmoveNumber();
+	}
+	
 	//method returns the piece at the indicated coordinates
 	public ChessPiece getPiece(int row, int column)
 	{
@@ -69,16 +280,161 @@ public class ChessBoard
 		return SIZE_OF_BOARD;
 	}
 	
-	//method returns the list of all white pieces
+	/**
+	 * Gets the bitboard of the occupied squares of the board.
+	 * @return A word where bit row*8+column is set if that square has a piece.
+	 */
+	public long getOccupied()
+	{
+		return position.getOccupied();
+	}
+	
+	/**
+	 * Gets the Zobrist hash of the position, which is updated with a few exclusive ors 
+	 * on every move, castling, promotion and en passant capture. It covers the pieces,
+	 * the side to move, the castling rights and the column of the en passant square, so 
+	 * it can be used to key caches of positions and to find repeated positions.
+	 * @return The 64 bit hash of the position.
+	 */
+	public long getHash()
+	{
+		return position.getHash();
+	}
+	
+	/**
+	 * Gets the code of the piece on a square, without looking at the piece objects.
+	 * @param square The index of the square, row * 8 + column.
+	 * @return The piece code, as given by BitBoard.pieceCode, or BitBoard.EMPTY.
+	 */
+	public int getPieceCode(int square)
+	{
+		return position.getPieceCode(square);
+	}
+	
+	/**
+	 * Gets the castling rights that are still available.
+	 * @return A combination of the castling right flags of the BitBoard class.
+	 */
+	public int getCastlingRights()
+	{
+		return position.getCastlingRights();
+	}
+	
+	/**
+	 * Gets the square a pawn could move to with an en passant capture.
+	 * @return The index of the square, or -1 if the last move was not a double pawn push.
+	 */
+	public int getEnPassantSquare()
+	{
+		return position.getEnPassantSquare();
+	}
+	
+	/**
+	 * Gets the Zobrist hash of the pawns alone. The pawns move much less often than the
+	 * other pieces, so the pawn structure of a position can be evaluated once and looked up
+	 * by this hash afterwards.
+	 * @return The 64 bit hash of the pawns.
+	 */
+	public long getPawnHash()
+	{
+		return position.getPawnHash();
+	}
+	
+	/**
+	 * Gets the middlegame score of the pieces on their squares for the white player,
+	 * which is updated with every move instead of being added up for each evaluation.
+	 * @return The score, as used by the Evaluation class.
+	 */
+	public int getMiddlegameScore()
+	{
+		return position.getMiddlegameScore();
+	}
+	
+	/**
+	 * Gets the endgame score of the pieces on their squares for the white player.
+	 * @return The score, as used by the Evaluation class.
+	 */
+	public int getEndgameScore()
+	{
+		return position.getEndgameScore();
+	}
+	
+	/**
+	 * Gets the phase of the game, which goes down from Evaluation.MAX_PHASE as pieces
+	 * other than pawns are captured.
+	 * @return The phase.
+	 */
+	public int getPhase()
+	{
+		return position.getPhase();
+	}
+	
+	/**
+	 * Gets the bitboard of the pieces of one colour and type.
+	 * @param player The colour of the pieces.
+	 * @param type The type of the pieces.
+	 * @return A word where bit row*8+column is set if that square has such a piece.
+	 */
+	public long getPieces(ChessPlayer player, PieceType type)
+	{
+		return position.getPieces(player, type);
+	}
+	
+	/**
+	 * Gets the bitboard of all the pieces of one colour.
+	 * @param player The colour of the pieces.
+	 * @return A word where bit row*8+column is set if that square has a piece of that colour.
+	 */
+	public long getPlayerPieces(ChessPlayer player)
+	{
+		return position.getPlayerPieces(player);
+	}
+	
+	/**
+	 * Gets the player whose turn it is. After a piece is moved, a castling move or
+	 * a promotion, it is the turn of the opponent of the player who did it.
+	 * @return The player to move.
+	 */
+	public ChessPlayer getSideToMove()
+	{
+		return position.getSideToMove();
+	}
+	
+	/**
+	 * Writes all the legal moves of the player whose turn it is into the given 
+	 * array, packed as described in the Move class. No objects are made, so this 
+	 * can be called as often as needed.
+	 * @param moves The array the moves are written to, starting at index 0. It must
+	 * have room for MoveGenerator.MAX_MOVES moves.
+	 * @return The number of moves written to the array.
+	 */
+	public int generateMoves(int[] moves)
+	{
+		return MoveGenerator.generateLegalMoves(position, moves);
+	}
+	
+	/**
+	 * Writes the legal captures and promotions of the player whose turn it is into the
+	 * given array, packed as described in the Move class.
+	 * @param moves The array the moves are written to, starting at index 0. It must
+	 * have room for MoveGenerator.MAX_MOVES moves.
+	 * @return The number of moves written to the array.
+	 */
+	public int generateCaptures(int[] moves)
+	{
+		return MoveGenerator.generateCaptures(position, moves);
+	}
+	
+	//method returns a new list of all white pieces, changing it does not change the board
 	public ArrayList<ChessPiece> getWhitePieces()
 	{
-		return whitePieces;
+		return getPieceList(ChessPlayer.white);
 	}
 	
-	//method returns the list of all black pieces
+	//method returns a new list of all black pieces, changing it does not change the board
 	public ArrayList<ChessPiece> getBlackPieces()
 	{
-		return blackPieces;
+		return getPieceList(ChessPlayer.black);
 	}
 	
 	/**
@@ -107,34 +463,27 @@ public class ChessBoard
 				}
 			}
 			
-			//if an enemy piece is captured, we remove the captured piece from the appropriate list
+			/*work out the flags of the move, so that it can be played the same way as a move
+			 * from the move generator*/
+			int flags=0;
 			if(chessBoard[row][column]!=null)
 			{
-				getAppropiateList(chessBoard[row][column].getPlayer()).remove(chessBoard[row][column]);
+				flags|=Move.CAPTURE;
 			}
-			/*in the en passant movement, the piece that is captured is not on 
-			 * the square you move your piece to. So, we remove the captured 
-			 * pawn at the correct square from the correct list and remove it 
-			 * from the board*/
+			/*in the en passant movement, the piece that is captured is not on the square
+			 * you move your piece to, so the move must be flagged for it to be removed*/
 			else if(isEnPassantMove(piece, row, column))
 			{
-			    /*Get the pawn that needs to be removed after an en passant
-			     * move and remove it.*/
-			    ChessPiece removedPawn = chessBoard[piece.getRow()][column];
-				getAppropiateList(removedPawn.getPlayer()).remove(removedPawn);
-				
-				chessBoard[piece.getRow()][column]=null;
+				flags|=Move.CAPTURE | Move.EN_PASSANT;
 			}
 			
-			//set the original square of the piece to be empty
-			chessBoard[piece.getRow()][piece.getColumn()]=null;
-			
-			//make necessary changes to the piece to reflect the move
-			piece.move(row, column);
+			if(piece.getType()==PieceType.pawn && Math.abs(row-piece.getRow())==2)
+			{
+				flags|=Move.DOUBLE_PUSH;
+			}
 			
-			//set the piece to its new place on the board, if 
-			//there was an enemy piece on that square, we capture it by replacing it
-			chessBoard[row][column]=piece;
+			applyMove(Move.create(BitBoard.getSquare(piece.getRow(), piece.getColumn()), 
+					BitBoard.getSquare(row, column), null, flags));
 			return true;
 		}
 		else 
@@ -144,9 +493,9 @@ public class ChessBoard
 	}
 	
 	/**
-	 * Moves a piece on the board in the castling move, only used in the 
-     * castling method so its private. Castling would not normally be valid, so we don't
-     * call the valid move method of the piece.
+	 * Moves a piece on the board without validation, used when playing a move that 
+     * was already checked, like a castling move. Castling would not normally be valid,
+     * so we don't call the valid move method of the piece.
 	 * @param piece The piece to be moved
      * @param endRow The row of the square where the piece will be moved.
      * @param endColumn The column of the square where the piece will be moved.
@@ -155,6 +504,7 @@ public class ChessBoard
 	{
 		//set the original square of the piece to be empty
 		chessBoard[piece.getRow()][piece.getColumn()]=null;
+		listIndexes[row*SIZE_OF_BOARD+column]=listIndexes[piece.getRow()*SIZE_OF_BOARD+piece.getColumn()];
 		
 		//make necessary changes to the piece to reflect the move
 		piece.move(row,column);
@@ -163,6 +513,307 @@ public class ChessBoard
 		chessBoard[row][column]=piece;
 	}
 	
+	/**
+	 * Plays a move on the board without checking that it is valid, so it must come from
+	 * generateMoves or have been checked before. The move is permanent: moves made with 
+	 * makeMove before it can no longer be taken back.
+	 * @param move The move, packed as described in the Move class.
+	 */
+	public void applyMove(int move)
+	{
+		undoCount=0;
+		doMove(move);
+		position.applyMove(move);
+	}
+	
+	/**
+	 * Plays a move on the board like applyMove, but keeps what is needed to take it
+	 * back with unmakeMove. This lets you look ahead at the positions after a move
+	 * without copying the board.
+	 * @param move The move, packed as described in the Move class. It must come from
+	 * generateMoves.
+	 * @throws IllegalStateException Thrown if BitBoard.MAX_UNDO moves are already on 
+	 * the undo stack.
+	 */
+	public void makeMove(int move) throws IllegalStateException
+	{
+		if(undoCount==BitBoard.MAX_UNDO)
+		{
+			throw new IllegalStateException("Too many moves to take back!");
+		}
+		
+		doMove(move);
+		position.makeMove(move);
+		undoCount++;
+	}
+	
+	/**
+	 * Takes back the last move made with makeMove. The captured piece is put back on the
+	 * board and in its list, a promoted piece becomes the pawn it was, and the hasMoved,
+	 * moved2Spaces and castling state are exactly what they were before the move.
+	 * @throws IllegalStateException Thrown if there is no move to take back.
+	 */
+	public void unmakeMove() throws IllegalStateException
+	{
+		if(undoCount==0)
+		{
+			throw new IllegalStateException("There is no move to take back!");
+		}
+		
+		undoCount--;
+		position.unmakeMove();
+		gameStatus=null;
+		
+		int move=undoMoves[undoCount];
+		int fromRow=Move.getFrom(move)/SIZE_OF_BOARD;
+		int fromColumn=Move.getFrom(move)%SIZE_OF_BOARD;
+		int toRow=Move.getTo(move)/SIZE_OF_BOARD;
+		int toColumn=Move.getTo(move)%SIZE_OF_BOARD;
+		ChessPiece piece=undoMovedPieces[undoCount];
+		
+		//a promoted piece is replaced by the pawn it was made from
+		if(Move.isPromotion(move))
+		{
+			removeFromList(chessBoard[toRow][toColumn]);
+			addToList(piece);
+		}
+		
+		//put the moved piece back where it was
+		chessBoard[toRow][toColumn]=null;
+		listIndexes[Move.getFrom(move)]=listIndexes[Move.getTo(move)];
+		piece.undoMove(fromRow, fromColumn, undoHasMoved[undoCount]);
+		chessBoard[fromRow][fromColumn]=piece;
+		
+		if(piece.getType()==PieceType.pawn)
+		{
+			((Pawn)piece).setMoved2Spaces(undoMoved2Spaces[undoCount]);
+		}
+		
+		//when castling, the rook goes back to its corner
+		if(Move.isCastle(move))
+		{
+			int rookFrom=(toColumn>fromColumn) ? SIZE_OF_BOARD-1 : 0;
+			int rookTo=(fromColumn+toColumn)/2;
+			ChessPiece rook=chessBoard[toRow][rookTo];
+			
+			chessBoard[toRow][rookTo]=null;
+			listIndexes[toRow*SIZE_OF_BOARD+rookFrom]=listIndexes[toRow*SIZE_OF_BOARD+rookTo];
+			rook.undoMove(toRow, rookFrom, undoRookHasMoved[undoCount]);
+			chessBoard[toRow][rookFrom]=rook;
+		}
+		
+		//the captured piece is put back, for en passant it is next to where the pawn started
+		ChessPiece captured=undoCapturedPieces[undoCount];
+		if(captured!=null)
+		{
+			chessBoard[captured.getRow()][captured.getColumn()]=captured;
+			addToList(captured);
+		}
+		
+		//the pawn that could be captured en passant before the move can be captured again
+		enPassantPawn=undoEnPassantPawns[undoCount];
+		if(enPassantPawn!=null)
+		{
+			enPassantPawn.setMoved2Spaces(true);
+		}
+		
+		//drop the references, so that the stack does not keep pieces alive
+		undoMovedPieces[undoCount]=null;
+		undoCapturedPieces[undoCount]=null;
+		undoEnPassantPawns[undoCount]=null;
+	}
+	
+	/**
+	 * Passes the turn to the other player without moving a piece. This is not a legal
+	 * move, but the search uses it to see if a position is still good when the player to
+	 * move gives the opponent a free move. No pawn can be captured en passant after the
+	 * pass. It is taken back with unmakeNullMove.
+	 * @throws IllegalStateException Thrown if BitBoard.MAX_UNDO moves are already on
+	 * the undo stack.
+	 */
+	public void makeNullMove() throws IllegalStateException
+	{
+		if(undoCount==BitBoard.MAX_UNDO)
+		{
+			throw new IllegalStateException("Too many moves to take back!");
+		}
+	
+		position.makeNullMove();
+		gameStatus=null;
+		undoMoves[undoCount]=Move.NONE;
+		undoEnPassantPawns[undoCount]=enPassantPawn;
+		updateEnPassantPawn(null);
+		undoCount++;
+	}
+	
+	/**
+	 * Takes back the pass made with makeNullMove.
+	 * @throws IllegalStateException Thrown if the last move on the undo stack is not a
+	 * pass.
+	 */
+	public void unmakeNullMove() throws IllegalStateException
+	{
+		if(undoCount==0 || undoMoves[undoCount-1]!=Move.NONE)
+		{
+			throw new IllegalStateException("There is no pass to take back!");
+		}
+	
+		undoCount--;
+		position.unmakeNullMove();
+		gameStatus=null;
+	
+		enPassantPawn=undoEnPassantPawns[undoCount];
+		if(enPassantPawn!=null)
+		{
+			enPassantPawn.setMoved2Spaces(true);
+		}
+		undoEnPassantPawns[undoCount]=null;
+	}
+	
+	/**
+	 * Moves the chess piece objects for a move and stores what is needed to take the
+	 * move back in the slot of the undo stack at undoCount. It does not change the 
+	 * bitboards, the callers do that.
+	 * @param move The move, packed as described in the Move class.
+	 */
+	private void doMove(int move)
+	{
+		gameStatus=null;
+		int fromRow=Move.getFrom(move)/SIZE_OF_BOARD;
+		int fromColumn=Move.getFrom(move)%SIZE_OF_BOARD;
+		int toRow=Move.getTo(move)/SIZE_OF_BOARD;
+		int toColumn=Move.getTo(move)%SIZE_OF_BOARD;
+		ChessPiece piece=chessBoard[fromRow][fromColumn];
+		
+		/*the captured piece is on the square the piece moves to, except for en passant, 
+		 * where it is next to the square the pawn started on*/
+		ChessPiece captured;
+		if(Move.isEnPassant(move))
+		{
+			captured=chessBoard[fromRow][toColumn];
+			chessBoard[fromRow][toColumn]=null;
+		}
+		else
+		{
+			captured=chessBoard[toRow][toColumn];
+		}
+		
+		//if an enemy piece is captured, we remove the captured piece from the appropriate list
+		if(captured!=null)
+		{
+			removeFromList(captured);
+		}
+		
+		undoMoves[undoCount]=move;
+		undoMovedPieces[undoCount]=piece;
+		undoCapturedPieces[undoCount]=captured;
+		undoEnPassantPawns[undoCount]=enPassantPawn;
+		undoHasMoved[undoCount]=piece.hasMoved();
+		undoMoved2Spaces[undoCount]=piece.getType()==PieceType.pawn && ((Pawn)piece).hasMoved2Spaces();
+		
+		/*in the castling move, the rook is moved to the square the king jumps over. The 
+		 * move of the king is the move of the castling move*/
+		if(Move.isCastle(move))
+		{
+			int rookFrom=(toColumn>fromColumn) ? SIZE_OF_BOARD-1 : 0;
+			ChessPiece rook=chessBoard[fromRow][rookFrom];
+			
+			undoRookHasMoved[undoCount]=rook.hasMoved();
+			movePieceNoValidation(rook, fromRow, (fromColumn+toColumn)/2);
+		}
+		
+		//if there was an enemy piece on the final square, it is captured by replacing it
+		movePieceNoValidation(piece, toRow, toColumn);
+		
+		//a promoted pawn is replaced by a new piece of the chosen type
+		if(Move.isPromotion(move))
+		{
+			removeFromList(piece);
+			piece=createPiece(Move.getPromotion(move), piece.getPlayer(), toRow, toColumn);
+			chessBoard[toRow][toColumn]=piece;
+			addToList(piece);
+		}
+		
+		updateEnPassantPawn(piece);
+	}
+	
+	/**
+	 * Makes a new chess piece of the given type, for promoting a pawn or copying a piece.
+	 * @param type The type of the new piece, which can not be a king or a pawn.
+	 * @param player The player the piece belongs to.
+	 * @param row The row of the piece.
+	 * @param column The column of the piece.
+	 * @return The new piece.
+	 */
+	private static ChessPiece createPiece(PieceType type, ChessPlayer player, int row, int column)
+	{
+		if(type==PieceType.bishop)
+		{
+			return new Bishop(player, row, column);
+		}
+		else if(type==PieceType.knight)
+		{
+			return new Knight(player, row, column);
+		}
+		else if(type==PieceType.rook)
+		{
+			return new Rook(player, row, column);
+		}
+		else
+		{
+			return new Queen(player, row, column);
+		}
+	}
+	
+	/**
+	 * Makes a copy of a chess piece, on the same square and with the same flags.
+	 * @param piece The piece to copy.
+	 * @return The new piece.
+	 */
+	private static ChessPiece copyPiece(ChessPiece piece)
+	{
+		ChessPiece copy;
+		if(piece.getType()==PieceType.king)
+		{
+			copy=new King(piece.getPlayer(), piece.getRow(), piece.getColumn());
+		}
+		else if(piece.getType()==PieceType.pawn)
+		{
+			Pawn pawn=new Pawn(piece.getPlayer(), piece.getRow(), piece.getColumn());
+			pawn.setMoved2Spaces(((Pawn)piece).hasMoved2Spaces());
+			copy=pawn;
+		}
+		else
+		{
+			copy=createPiece(piece.getType(), piece.getPlayer(), piece.getRow(), piece.getColumn());
+		}
+		
+		//putting the piece on its own square only sets the flag
+		copy.undoMove(piece.getRow(), piece.getColumn(), piece.hasMoved());
+		return copy;
+	}
+	
+	/**
+	 * Keeps track of which pawn can be captured en passant after a move. Only a pawn 
+	 * that moved 2 spaces in the last move can be captured this way, so the flag of the
+	 * pawn that could be captured before this move is cleared.
+	 * @param movedPiece The piece that was just moved, or null if the move was a
+	 * promotion.
+	 */
+	private void updateEnPassantPawn(ChessPiece movedPiece)
+	{
+		if(enPassantPawn!=null)
+		{
+			enPassantPawn.setMoved2Spaces(false);
+			enPassantPawn=null;
+		}
+		
+		if(movedPiece!=null && movedPiece.getType()==PieceType.pawn && ((Pawn)movedPiece).hasMoved2Spaces())
+		{
+			enPassantPawn=(Pawn)movedPiece;
+		}
+	}
+	
 	/**
 	 * Checks if moving the given piece to the given coordinates would be an 
 	 * en passant move.
@@ -228,8 +879,8 @@ public class ChessBoard
 	public boolean promotePawn(PieceType type, int row, int column)
 	{
 		//canBePromoted checks if the piece at those coordinates is a pawn on the row 
-		//opposite its starting end of the board
-		if(chessBoard[row][column]==null)
+		//opposite its starting end of the board. A pawn can not become a king or stay a pawn
+		if(chessBoard[row][column]==null || type==PieceType.king || type==PieceType.pawn)
 		{
 			return false;
 		}
@@ -237,29 +888,20 @@ public class ChessBoard
 		{
 			ChessPlayer player=chessBoard[row][column].getPlayer();
 			//remove the old piece from the correct list of pieces
-			getAppropiateList(player).remove(chessBoard[row][column]);
+			removeFromList(chessBoard[row][column]);
 			
 			/*Make a new chess piece of the right type and put it on the board.*/
-			if(type == PieceType.bishop)
-			{
-			    chessBoard[row][column] = new Bishop(player, row, column);
-			}
-			else if(type == PieceType.knight)
-			{
-			    chessBoard[row][column] = new Knight(player, row, column);
-			}
-			else if(type == PieceType.rook)
-            {
-                chessBoard[row][column] = new Rook(player, row, column);
-            }
-			else if(type == PieceType.queen)
-            {
-                chessBoard[row][column] = new Queen(player, row, column);
-            }
+			chessBoard[row][column] = createPiece(type, player, row, column);
 			
 			//add the new piece to the proper list
-			getAppropiateList(player).add(chessBoard[row][column]);
+			addToList(chessBoard[row][column]);
+			
+			position.promotePawn(type, row, column);
+			updateEnPassantPawn(null);
+			gameStatus=null;
 			
+			//a promotion can not be taken back, and neither can the moves before it
+			undoCount=0;
 			return true;
 		}
 		//if the old piece cannot be promoted, this move cannot happen
@@ -269,121 +911,22 @@ public class ChessBoard
 		}
 	}
 	
-	//method finds out if there are pieces between the position of this piece and another square 
-    //on the board, both situated diagonally.Private because it is not used in the ChessBoard class
-    public boolean clearDiagonalPath(ChessPiece piece, int finalRow, int finalColumn)
-    {
-        /*We have to figure out in what direction does each axis position change,
-         * if it increases or decreases.*/
-        int xDirection;
-        int yDirection;
-        
-        //the row and column where the piece we want to mve is currently at
-        int row = piece.getRow();
-        int column = piece.getColumn();
-        
-        //set vertical direction
-        if(row<finalRow)
-        {
-            xDirection=1;
-        }
-        else
-        {
-            xDirection=-1;
-        }
-        
-        //set horizontal direction
-        if(column<finalColumn)
-        {
-            yDirection=1;
-        }
-        else
-        {
-            yDirection=-1;
-        }
-        
-        //initialise the coordinates used in the loop, we begin from the next square after the start position
-        int currentRow = row + xDirection;
-        int currentColumn = column + yDirection;
-        
-        //we dont check the final position for a piece
-        while(currentRow!=finalRow && currentColumn!=finalColumn)
-        {
-            if(chessBoard[currentRow][currentColumn]!=null)
-            {
-                return false;
-            }
-            
-            currentRow+=xDirection;
-            currentColumn+=yDirection;
-        }
-        
-        //if it has not returned false by now, the path is clear
-        return true;
-    }
-    
     /*method finds out whether there are any pieces between 2 positions that are either on
-     * the same row or column needed for queen and bishop moves.Public because it is also
-     * used in the method for the castling move in the ChessBoard class.*/
-    public boolean clearLiniarPath(ChessPiece piece, int finalRow, int finalColumn)
+     * the same row or column. Used by the castling method, to check that the squares between
+     * the king and the rook are empty.*/
+    private boolean clearLiniarPath(ChessPiece piece, int finalRow, int finalColumn)
     {
-        //the row and column indexes of the current location of the piece
-        int pieceRow = piece.getRow();
-        int pieceColumn = piece.getColumn();
-        
-        /* we find out which position has smaller coordinates*/
-        int startPoint;
-        int endPoint;
-        
-        //we find out if the line is vertical or horizontal
-        if(pieceRow == finalRow && pieceColumn != finalColumn)
+        //positions that are not on the same row or column have no linear path between them to block
+        if(piece.getRow()!=finalRow && piece.getColumn()!=finalColumn)
         {
-            if(pieceColumn > finalColumn)
-            {
-                startPoint = finalColumn;
-                endPoint= pieceColumn;
-            }
-            else
-            {
-                startPoint = pieceColumn;
-                endPoint = finalColumn;
-            }
-            
-            /*we start from the square after the initial position, and dont check the final square,
-             * since enemy pieces are captured by moving on their location*/
-            for(int i=startPoint+1;i<endPoint;i++)
-            {
-                //if we find just one piece on the way, the path is not clear
-                if(chessBoard[finalRow][i]!=null)
-                {
-                    return false;
-                }
-            }
-        }
-        else if(pieceRow != finalRow && pieceColumn==finalColumn)
-        {
-            if(pieceRow>finalRow)
-            {
-                startPoint = finalRow;
-                endPoint = pieceRow;
-            }
-            else
-            {
-                startPoint = pieceRow;
-                endPoint = finalRow;
-            }
-            
-            //since its a horizontal line, the for loop loops through different row, not columns
-            for(int i=startPoint+1;i<endPoint;i++)
-            {
-                if(chessBoard[i][finalColumn]!=null)
-                {
-                    return false;
-                }
-            }
+            return true;
         }
         
-        return true;
+        /*The rook attack table gives all the squares a rook could reach from the square
+         * of the piece, stopping at the first piece on each row and column. The path is clear
+         * if the final square is one of them.*/
+        long attacks=SlidingAttacks.rookAttacks(BitBoard.getSquare(piece.getRow(), piece.getColumn()), position.getOccupied());
+        return (attacks & (1L<<BitBoard.getSquare(finalRow, finalColumn)))!=0;
     }
     
 	/*Method for the castling move. It is a move that involves moving the king 2 squares towards a rook while
@@ -455,16 +998,16 @@ public class ChessBoard
 			{
 				/*move king 2 squares toward the rook and the rook on the 
 				 *square the king jumped over*/
-				movePieceNoValidation(chessBoard[rookRow][rookColumn],rookRow,3);
-				movePieceNoValidation(chessBoard[rookRow][4],rookRow,2);
+				applyMove(Move.create(BitBoard.getSquare(rookRow, 4), 
+						BitBoard.getSquare(rookRow, 2), null, Move.CASTLE));
 				return true;
 			}
 			/*at this point, we know the rook has not moved yet so the rookColumn
 			 * must be either 0 or 7, so this else is equivalent to else if(rookColumn==7)*/
 			else
 			{
-				movePieceNoValidation(chessBoard[rookRow][rookColumn],rookRow,5);
-				movePieceNoValidation(chessBoard[rookRow][4],rookRow,6);
+				applyMove(Move.create(BitBoard.getSquare(rookRow, 4), 
+						BitBoard.getSquare(rookRow, 6), null, Move.CASTLE));
 				return true;
 			}
 		}
@@ -475,17 +1018,8 @@ public class ChessBoard
 	 * parameters. As a parameters it has a ChessPlayer so that we know which king to find.*/
 	public ChessPiece findKing(ChessPlayer player)
 	{
-		//go through the corresponding list of the pieces untill we find the king and return him
-		for(ChessPiece elem: getAppropiateList(player))
-		{
-			if(elem.getType()==PieceType.king)
-			{
-				return elem;
-			}
-		}
-		
-		//the list will always have a king, this is just so that java does not complain
-		return null;
+		//the king is never captured or replaced, so we keep it from the start and its row and column are always current
+		return kings[player.ordinal()];
 	}
 	
 	/*Method finds out if ,had a king be in a certain position, the king would be in check.
@@ -493,62 +1027,59 @@ public class ChessBoard
 	 * check, and a row and a column integer, to know which square we see if it is threatened.*/
 	public boolean isInCheck(ChessPlayer player,int row, int column)
 	{
-		/*if there is a piece that would be moved if the square would not be in check, we need to
-		 * take it off the board temporarily, so that this method detects if the square at the given
-		 * coordinates would in check or not after the piece moved. Now, the square might be 
-		 * protected from enemy reach by the piece, but after we move the piece, the piece would
-		 * be in check, because there is nothing between the enemy piece and the square you moved 
-		 * the piece to.*/
-		ChessPiece king=findKing(player);
-		chessBoard[king.getRow()][king.getColumn()]=null;
-		
-		ArrayList<ChessPiece> pieceList;
-		if(player == ChessPlayer.white)
-		{
-		    pieceList = blackPieces;
-		}
-		else
+		/*The king of the player is left out of the occupied squares while looking for attacks,
+		 * so that a square it currently shields from an enemy piece is seen as being in check,
+		 * since after the king moved there the square would be in the reach of that piece. 
+		 * The board keeps the set of squares each player attacks, worked out once after every
+		 * move, so this is a single lookup instead of asking each enemy piece if it could 
+		 * move there.*/
+		return position.isInCheck(player, row, column);
+	}
+	
+	/**
+	 * Tells you if the king of the given player is in check where it stands now.
+	 * @param player The player whose king we check.
+	 * @return True if an enemy piece attacks the king.
+	 */
+	public boolean isInCheck(ChessPlayer player)
+	{
+		return position.isInCheck(player);
+	}
+	
+	/**
+	 * Gets the status of the game for the player whose turn it is, which is given by
+	 * getSideToMove. The player is checkmated or in a stalemate if they have no legal 
+	 * move, so a piece that can block the check or capture the checking piece saves the
+	 * king. A pawn left on the last row can still be promoted, so the player is never in
+	 * a stalemate while they have one. The status is worked out once and kept until the 
+	 * next move, castling or promotion.
+	 * @return The status of the game.
+	 */
+	public GameStatus getGameStatus()
+	{
+		if(gameStatus==null)
 		{
-		    pieceList = whitePieces;
+			ChessPlayer player=position.getSideToMove();
+			boolean inCheck=isInCheck(player);
+			
+			if(generateMoves(statusMoves)>0)
+			{
+				gameStatus=inCheck ? GameStatus.check : GameStatus.ongoing;
+			}
+			else if(inCheck)
+			{
+				//promoting the pawn does not move it, so it can not get the king out of check
+				gameStatus=GameStatus.checkmate;
+			}
+			else
+			{
+				int lastRow=(player==ChessPlayer.white) ? SIZE_OF_BOARD-1 : 0;
+				gameStatus=(position.getPieces(player, PieceType.pawn) & (0xFFL<<(lastRow*SIZE_OF_BOARD)))!=0 ?
+						GameStatus.ongoing : GameStatus.stalemate;
+			}
 		}
 		
-        /*
-         * we go through all the pieces of the enemy and see if there is one
-         * which could move to the specified square, if we find one, it is in
-         * check and we return true. Before returning, we put the king back on
-         * the chessboard.
-         */
-        for (ChessPiece piece : pieceList) 
-        {
-            if (piece.getType() != PieceType.pawn &&
-                piece.validMove(row, column, this)) 
-            {
-                chessBoard[king.getRow()][king.getColumn()] = king;
-                return true;
-            }
-            /*
-             * pawns capture pieces only on the diagonal. The validPawnMove
-             * method also checks that the specified square is occupied. Since
-             * isInCheck also checks if empty squares would be under check, we
-             * treat pawns separately, and we check if the pawn could move on
-             * the diagonal forward to the square we are checking.
-             */
-            else if (piece.getType() == PieceType.pawn) 
-            {
-                Pawn pawn = (Pawn) piece;
-
-                if (piece.getRow() + pawn.getDirection() == row &&
-                    Math.abs(piece.getColumn() - column) == 1) 
-                {
-                    chessBoard[king.getRow()][king.getColumn()] = king;
-                    return true;
-                }
-            }
-        }
-		
-		//if no enemy piece can move to the square, it is not in check
-		chessBoard[king.getRow()][king.getColumn()]=king;
-		return false;
+		return gameStatus;
 	}
 	
 	//method determines whether or not a king is in a check mate
@@ -557,7 +1088,6 @@ public class ChessBoard
 	{
 		//get the correct king
 		ChessPiece king=findKing(player);
-		chessBoard[king.getRow()][king.getColumn()]=null;
 		
 		//represents the squares the king can move to (or his current square),
 		//that are in check
@@ -573,7 +1103,7 @@ public class ChessBoard
 		{
 			checkedSquares++;
 		}
-
+	
 		/*There are 8 squares the king can move to. For each, we use the validMove method
 		 * to see if the king could move there. If the square we are checking does not 
 		 * exist and is off the edges of the board, this method will return false. It will
@@ -661,7 +1191,6 @@ public class ChessBoard
 			}
 		}
 	
-		chessBoard[king.getRow()][king.getColumn()]=king;
 		//if all squares the king can move to are in check, the player is checkmated.
 		if(checkedSquares==possibleSquares)
 		{
@@ -692,7 +1221,7 @@ public class ChessBoard
 				checkedSquares++;
 			}
 		}
-
+	
 		// see if the square directly below the king is in check
 		if (king.validMove(king.getRow() - 1, king.getColumn(), this))
 		{
@@ -702,7 +1231,7 @@ public class ChessBoard
 				checkedSquares++;
 			}
 		}
-
+	
 		// see if the square directly to the left of the king is in check
 		if (king.validMove(king.getRow(), king.getColumn() - 1, this))
 		{
@@ -712,7 +1241,7 @@ public class ChessBoard
 				checkedSquares++;
 			}
 		}
-
+	
 		// see if the square directly to the right of the the king is in check
 		if (king.validMove(king.getRow(), king.getColumn() + 1, this))
 		{
@@ -722,7 +1251,7 @@ public class ChessBoard
 				checkedSquares++;
 			}
 		}
-
+	
 		// see if the square directly to the bottom left of the king is in check
 		if (king.validMove(king.getRow() - 1, king.getColumn() - 1, this))
 		{
@@ -732,7 +1261,7 @@ public class ChessBoard
 				checkedSquares++;
 			}
 		}
-
+	
 		// see if the square directly to the top left of the king is in check
 		if (king.validMove(king.getRow() + 1, king.getColumn() - 1, this))
 		{
@@ -742,7 +1271,7 @@ public class ChessBoard
 				checkedSquares++;
 			}
 		}
-
+	
 		// see if the square directly to the top right of the king is in check
 		if (king.validMove(king.getRow() + 1, king.getColumn() + 1, this))
 		{
@@ -752,7 +1281,7 @@ public class ChessBoard
 				checkedSquares++;
 			}
 		}
-
+	
 		// see if the square directly to the bottom right of the king is in check
 		if (king.validMove(king.getRow() - 1, king.getColumn() + 1, this))
 		{
@@ -762,7 +1291,7 @@ public class ChessBoard
 				checkedSquares++;
 			}
 		}
-
+	
 		/* if all squares the king can move to are in check, the player is checkmated.If the king 
 		 * is surrounded by pieces of the same colour, both possibleSquares and checkedSquares 
 		 * would be 0, and the method wrongly say that the king is in a stalemate. So we make 
@@ -777,20 +1306,48 @@ public class ChessBoard
 		}
 	}
 	
-	// method return the corresponding list of pieces based on the indicated
-	// ChessPlayer enumerated type
-	private ArrayList<ChessPiece> getAppropiateList(ChessPlayer player) 
+	// method returns a copy of the list of pieces of the indicated ChessPlayer enumerated type
+	private ArrayList<ChessPiece> getPieceList(ChessPlayer player) 
 	{
-		if (player == ChessPlayer.white) 
-		{
-			return whitePieces;
-		} 
-		else 
+		int index=player.ordinal();
+		return new ArrayList<>(Arrays.asList(pieceLists[index]).subList(0, pieceCounts[index]));
+	}
+	
+	/**
+	 * Adds a piece to the end of the list of its player, and remembers its index in the
+	 * list for the square it is on.
+	 * @param piece The piece, which must already have its row and column set.
+	 */
+	private void addToList(ChessPiece piece)
+	{
+		int player=piece.getPlayer().ordinal();
+		pieceLists[player][pieceCounts[player]]=piece;
+		listIndexes[piece.getRow()*SIZE_OF_BOARD+piece.getColumn()]=pieceCounts[player];
+		pieceCounts[player]++;
+		
+		if(piece.getType()==PieceType.king)
 		{
-			return blackPieces;
+			kings[player]=piece;
 		}
 	}
-
+	
+	/**
+	 * Takes a piece out of the list of its player, by moving the last piece of the list
+	 * into its place.
+	 * @param piece The piece, which must still be on its square.
+	 */
+	private void removeFromList(ChessPiece piece)
+	{
+		int player=piece.getPlayer().ordinal();
+		int index=listIndexes[piece.getRow()*SIZE_OF_BOARD+piece.getColumn()];
+		int last=--pieceCounts[player];
+		ChessPiece lastPiece=pieceLists[player][last];
+		
+		pieceLists[player][index]=lastPiece;
+		pieceLists[player][last]=null;
+		listIndexes[lastPiece.getRow()*SIZE_OF_BOARD+lastPiece.getColumn()]=index;
+	}
+	
 	//method for printing the entire board
 	public void printChessBoard()
 	{
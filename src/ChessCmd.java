@@ -2,6 +2,9 @@ import java.util.Scanner;
 
 public class ChessCmd 
 {
+	//how long the computer may think about a move, in milliseconds
+	private static final long COMPUTER_TIME=3000;
+	
 	public static void main(String[] args)
 	{
 		ChessBoard board= new ChessBoard();
@@ -10,6 +13,32 @@ public class ChessCmd
 		boolean nextPlayer=true;
 		ChessPlayer currentPlayer=ChessPlayer.black;
 		
+		//the player the computer plays for, or null if two people play against each other
+		ChessPlayer computerPlayer=null;
+		ChessEngine engine=null;
+		
+		System.out.println("Do you want to play against the computer? Yes or no.");
+		String playComputer;
+		do
+		{
+			playComputer=kb.nextLine();
+		}
+		while(!playComputer.equalsIgnoreCase("yes") && !playComputer.equalsIgnoreCase("no"));
+		
+		if(playComputer.equalsIgnoreCase("yes"))
+		{
+			System.out.println("Do you want to play with the white or the black pieces?");
+			String colour;
+			do
+			{
+				colour=kb.nextLine();
+			}
+			while(!colour.equalsIgnoreCase("white") && !colour.equalsIgnoreCase("black"));
+			
+			computerPlayer=colour.equalsIgnoreCase("white") ? ChessPlayer.black : ChessPlayer.white;
+			engine=new ChessEngine();
+		}
+		
 		board.printChessBoard();
 		
 		//System.out.println(board.isCheckMate(ChessPlayer.white));
@@ -27,6 +56,47 @@ public class ChessCmd
 				}
 			}
 			
+			//the computer plays its move through the board like any other move
+			if(currentPlayer==computerPlayer)
+			{
+				System.out.println("The computer is thinking...");
+				
+				/*the computer has been thinking about the reply it expected while the player 
+				 * chose a move, so if the player made that move it goes on from there*/
+				SearchResult result;
+				if(engine.isPonderHit(board))
+				{
+					result=engine.ponderHit(COMPUTER_TIME);
+				}
+				else
+				{
+					result=engine.search(board, SearchWorker.MAX_PLY-1, COMPUTER_TIME);
+				}
+				
+				if(result.getBestMove()==Move.NONE)
+				{
+					System.out.println("The computer has no move to play.");
+					cont=false;
+				}
+				else
+				{
+					System.out.println("The computer plays "+Move.toString(result.getBestMove())+".");
+					board.applyMove(result.getBestMove());
+					board.printChessBoard();
+					cont=checkGameStatus(board);
+					
+					//think about the expected reply while the player chooses a move
+					int[] line=result.getPrincipalVariation();
+					if(cont && line.length>1)
+					{
+						engine.startPondering(board, line[1]);
+					}
+				}
+				
+				nextPlayer=true;
+				continue;
+			}
+			
 			if(currentPlayer==ChessPlayer.white)
 			{
 				System.out.println("It is the turn of the white player.");
@@ -180,30 +250,37 @@ public class ChessCmd
 			}
 			
 			board.printChessBoard();
-			if (board.isStalemate(ChessPlayer.white))
-			{
-				System.out.println("The white player is in a stalemate. The game is a draw.");
-				cont = false;
-			} 
-			else if (board.isStalemate(ChessPlayer.black))
-			{
-				System.out.println("The black player is in a stalemate. The game is a draw.");
-				cont = false;
-			} 
-			else if (board.isCheckMate(ChessPlayer.white))
+			if(cont)
 			{
-				System.out.println("White player is checkmated. Black player wins.");
-				cont = false;
-			} 
-			else if (board.isCheckMate(ChessPlayer.black))
-			{
-				System.out.println("Black player is checkmated. White player wins.");
-				cont = false;
+				cont=checkGameStatus(board);
 			}
 		}
 		kb.close();
 	}
 	
+	//method prints the status of the game if it is over or a king is in check, and returns
+	//false if the game is over
+	public static boolean checkGameStatus(ChessBoard board)
+	{
+		//the status is that of the player whose turn it is now
+		String player=(board.getSideToMove()==ChessPlayer.white) ? "White" : "Black";
+		String opponent=(board.getSideToMove()==ChessPlayer.white) ? "Black" : "White";
+		switch (board.getGameStatus())
+		{
+			case stalemate:
+				System.out.println("The "+player.toLowerCase()+" player is in a stalemate. The game is a draw.");
+				return false;
+			case checkmate:
+				System.out.println(player+" player is checkmated. "+opponent+" player wins.");
+				return false;
+			case check:
+				System.out.println(player+" player is in check.");
+				return true;
+			default:
+				return true;
+		}
+	}
+	
 	public static int readRow()
 	{
 		Scanner kb=new Scanner(System.in);
@@ -0,0 +1,455 @@
+/**
+ * Class models a computer chess player. It searches the position of a chess
+ * board for the best move, with a limit on the depth of the search, on the
+ * time it may take, or both. The engine keeps a transposition table between
+ * searches, so what it learned about positions on one move helps it on the
+ * next ones.
+ *
+ * The engine can search with several threads. The main thread searches the
+ * position and gives the result, while helper threads search the same
+ * position, each on its own copy of the board, and store what they find in
+ * the shared transposition table, where the main thread finds it. The table
+ * needs no locks, so the threads never wait for each other.
+ *
+ * A search can be limited by depth, by a fixed time, or by a clock, in
+ * which case a TimeManager shares the remaining time out over the moves
+ * still to play. A search that is running can be stopped from another
+ * thread with stop, and still gives the best move it found.
+ *
+ * While the opponent thinks, the engine can ponder: it plays the reply it
+ * expects on a copy of the board and searches the position after it in the
+ * background, without a time limit. If the opponent plays that reply (a
+ * ponder hit), the search goes on from where it is, now with a time limit,
+ * so the engine has had the opponent's thinking time as well as its own.
+ * If the opponent plays something else (a ponder miss), the search is
+ * stopped and thrown away, but what it stored in the transposition table is
+ * kept.
+ *
+ * The selective search options of the workers (null move pruning, late
+ * move reductions, futility pruning and razoring) are all on unless they
+ * are switched off, which is useful to measure what each of them brings.
+ * @version 1.0
+ */
+public class ChessEngine
+{
+    /**The size of the transposition table if none is given, in megabytes.*/
+    public static final int DEFAULT_HASH_SIZE = 64;
+
+    /**The transposition table shared by all the searches of this engine.*/
+    private final TranspositionTable table;
+
+    /**The number of threads that search at the same time.*/
+    private final int threads;
+
+    /**Which of the selective search options the workers use.*/
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private boolean futilityPruning = true;
+    private boolean razoring = true;
+
+    /**The endgame tables the workers look positions up in, or null.*/
+    private Tablebases tablebases;
+
+    /**The main worker of the search that is running, or null if there is
+     * none. Stopping it stops the whole search.*/
+    private volatile SearchWorker mainWorker;
+
+    /**Set by stop, and cleared when a search is asked for. A search whose
+     * main worker is made after stop was called checks it, so the call is
+     * not lost.*/
+    private volatile boolean stopRequested;
+
+    /**The search on the opponent's time, or null if the engine is not
+     * pondering: its thread, its main worker, the hash of the position it
+     * searches, and its result, which is set when the thread is done.*/
+    private Thread ponderThread;
+    private SearchWorker ponderWorker;
+    private long ponderHash;
+    private SearchResult ponderResult;
+
+    /**
+     * Makes a new engine with a transposition table of the default size,
+     * that searches with one thread for each processor.
+     */
+    public ChessEngine()
+    {
+        this(DEFAULT_HASH_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Makes a new engine.
+     * @param hashMegabytes The size of the transposition table in megabytes.
+     * @param threads The number of threads to search with, at least 1.
+     * @throws IllegalArgumentException Thrown if the size is not valid for a
+     * TranspositionTable, or the number of threads is less than 1.
+     */
+    public ChessEngine(int hashMegabytes, int threads) throws IllegalArgumentException
+    {
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("The engine needs at least one thread!");
+        }
+
+        this.table = new TranspositionTable(hashMegabytes);
+        this.threads = threads;
+    }
+
+    /**
+     * Searches for the best move of the player whose turn it is, with all the
+     * threads of the engine. The board is copied for each thread, so it is
+     * not changed by the search.
+     * @param board The board.
+     * @param maxDepth The largest depth to search, from 1 to
+     * SearchWorker.MAX_PLY - 1.
+     * @param timeLimit The longest time the search may take in milliseconds,
+     * or 0 for no time limit.
+     * @return The result of the search. Its best move can be played with the
+     * applyMove method of the board. If the engine was pondering, that search
+     * is abandoned first.
+     * @throws IllegalArgumentException Thrown if the depth or the time limit
+     * is out of range.
+     */
+    public SearchResult search(ChessBoard board, int maxDepth, long timeLimit)
+            throws IllegalArgumentException
+    {
+        if(maxDepth < 1 || maxDepth >= SearchWorker.MAX_PLY)
+        {
+            throw new IllegalArgumentException("The depth must be between 1 and " +
+                (SearchWorker.MAX_PLY - 1) + "!");
+        }
+        else if(timeLimit < 0)
+        {
+            throw new IllegalArgumentException("The time limit can not be negative!");
+        }
+
+        stopRequested = false;
+        abandonPondering();
+        long deadline = (timeLimit == 0) ? 0 : System.nanoTime() + timeLimit * 1_000_000;
+        SearchWorker main = createWorker(board, 0);
+        main.setDeadlines(deadline, deadline);
+        setMainWorker(main);
+        return runSearch(main, board, maxDepth);
+    }
+
+    /**
+     * Searches for the best move of the player whose turn it is, using a
+     * share of the time on the clock that is worked out by a TimeManager.
+     * @param board The board.
+     * @param remaining The time left on the clock of the player, in
+     * milliseconds.
+     * @param increment The time added to the clock after each move, in
+     * milliseconds.
+     * @param movesToGo The number of moves until the next time control, or 0
+     * if the rest of the game must be played in the remaining time.
+     * @return The result of the search. If the engine was pondering, that
+     * search is abandoned first.
+     * @throws IllegalArgumentException Thrown if a time or the number of
+     * moves is negative.
+     */
+    public SearchResult searchOnClock(ChessBoard board, long remaining, long increment, int movesToGo)
+            throws IllegalArgumentException
+    {
+        TimeManager time = new TimeManager(remaining, increment, movesToGo);
+        stopRequested = false;
+        abandonPondering();
+        long start = System.nanoTime();
+        SearchWorker main = createWorker(board, 0);
+        main.setDeadlines(start + time.getSoftLimit() * 1_000_000, start + time.getHardLimit() * 1_000_000);
+        setMainWorker(main);
+        return runSearch(main, board, SearchWorker.MAX_PLY - 1);
+    }
+
+    /**
+     * Starts searching, in the background, the position after the reply the
+     * engine expects from the opponent. It is meant to be called right after
+     * the engine's move was played, with the second move of its principal
+     * variation.
+     * @param board The board, with the opponent to move. It is copied, so
+     * it can be changed while the engine ponders.
+     * @param expectedMove The reply the engine expects. It must be a legal
+     * move of the position, like the moves of a principal variation.
+     * @throws IllegalStateException Thrown if the engine is already
+     * pondering.
+     */
+    public void startPondering(ChessBoard board, int expectedMove) throws IllegalStateException
+    {
+        if(ponderThread != null)
+        {
+            throw new IllegalStateException("The engine is already pondering!");
+        }
+
+        stopRequested = false;
+        ChessBoard position = new ChessBoard(board);
+        position.applyMove(expectedMove);
+
+        SearchWorker main = createWorker(position, 0);
+        setMainWorker(main);
+        ponderWorker = main;
+        ponderHash = position.getHash();
+        ponderThread = new Thread(() -> ponderResult = runSearch(main, position, SearchWorker.MAX_PLY - 1),
+                "ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    /**
+     * Tells you if the engine is pondering.
+     * @return True if a search started with startPondering has not been
+     * ended with ponderHit or ponderMiss.
+     */
+    public boolean isPondering()
+    {
+        return ponderThread != null;
+    }
+
+    /**
+     * Tells you if the engine is pondering on the position of a board, which
+     * means the opponent played the expected reply.
+     * @param board The board.
+     * @return True if the engine is pondering on this position.
+     */
+    public boolean isPonderHit(ChessBoard board)
+    {
+        return ponderThread != null && board.getHash() == ponderHash;
+    }
+
+    /**
+     * Lets the search started with startPondering go on with a time limit,
+     * after the opponent played the expected reply, and waits for its
+     * result. The time already spent pondering is not counted.
+     * @param timeLimit The longest time the search may go on in milliseconds,
+     * or 0 to wait until it reaches its depth limit or is stopped.
+     * @return The result of the search.
+     * @throws IllegalArgumentException Thrown if the time limit is negative.
+     * @throws IllegalStateException Thrown if the engine is not pondering.
+     */
+    public SearchResult ponderHit(long timeLimit) throws IllegalArgumentException, IllegalStateException
+    {
+        if(ponderThread == null)
+        {
+            throw new IllegalStateException("The engine is not pondering!");
+        }
+        else if(timeLimit < 0)
+        {
+            throw new IllegalArgumentException("The time limit can not be negative!");
+        }
+
+        long deadline = (timeLimit == 0) ? 0 : System.nanoTime() + timeLimit * 1_000_000;
+        ponderWorker.setDeadlines(deadline, deadline);
+        joinHelper(ponderThread);
+
+        SearchResult result = ponderResult;
+        clearPondering();
+        return result;
+    }
+
+    /**
+     * Stops and throws away the search started with startPondering, after
+     * the opponent played another move than the expected one. What the
+     * search stored in the transposition table is kept.
+     * @throws IllegalStateException Thrown if the engine is not pondering.
+     */
+    public void ponderMiss() throws IllegalStateException
+    {
+        if(ponderThread == null)
+        {
+            throw new IllegalStateException("The engine is not pondering!");
+        }
+
+        abandonPondering();
+    }
+
+    /**
+     * Stops the search that is running, if there is one. It can be called
+     * from any thread, for example by a user interface while another thread
+     * waits for the search. The search returns within a fraction of a
+     * millisecond, with the best move of the last completed iteration. A
+     * search that was asked for but has not started yet is stopped as soon
+     * as it starts.
+     */
+    public void stop()
+    {
+        stopRequested = true;
+        SearchWorker worker = mainWorker;
+        if(worker != null)
+        {
+            worker.stop();
+        }
+    }
+
+    /**
+     * Makes a worker the main worker of the search that is running, so that
+     * stop stops it. Stop sets its flag before it looks at the main worker,
+     * and this method sets the main worker before it looks at the flag, so
+     * a stop that comes while the search is being set up is never lost.
+     * @param main The main worker.
+     */
+    private void setMainWorker(SearchWorker main)
+    {
+        mainWorker = main;
+        if(stopRequested)
+        {
+            main.stop();
+        }
+    }
+
+    /**
+     * Stops the search started with startPondering and waits for it to end,
+     * if the engine is pondering.
+     */
+    private void abandonPondering()
+    {
+        if(ponderThread != null)
+        {
+            ponderWorker.stop();
+            joinHelper(ponderThread);
+            clearPondering();
+        }
+    }
+
+    /**
+     * Forgets the search started with startPondering, once its thread is
+     * done.
+     */
+    private void clearPondering()
+    {
+        ponderThread = null;
+        ponderWorker = null;
+        ponderResult = null;
+    }
+
+    /**
+     * Searches with all the threads of the engine, as described for search.
+     * The helpers have no time limit, they are stopped when the main worker
+     * is done.
+     * @param main The main worker, with its time limits set. It searches its
+     * own copy of the board.
+     * @param board The board.
+     * @param maxDepth The largest depth to search.
+     * @return The result of the search.
+     */
+    private SearchResult runSearch(SearchWorker main, ChessBoard board, int maxDepth)
+    {
+        table.newSearch();
+
+        //the helpers search until the main worker is done
+        SearchWorker[] helpers = new SearchWorker[threads - 1];
+        Thread[] helperThreads = new Thread[threads - 1];
+        for(int i = 0; i < helpers.length; i++)
+        {
+            SearchWorker helper = createWorker(board, i + 1);
+            helpers[i] = helper;
+            helperThreads[i] = new Thread(() -> helper.search(maxDepth),
+                    "search helper " + (i + 1));
+            helperThreads[i].setDaemon(true);
+            helperThreads[i].start();
+        }
+
+        SearchResult result = main.search(maxDepth);
+        mainWorker = null;
+        long nodes = result.getNodes();
+
+        for(SearchWorker helper : helpers)
+        {
+            helper.stop();
+        }
+
+        for(int i = 0; i < helpers.length; i++)
+        {
+            joinHelper(helperThreads[i]);
+            nodes += helpers[i].getNodes();
+        }
+
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(),
+                result.getPrincipalVariation(), nodes, result.getTime());
+    }
+
+    /**
+     * Turns null move pruning on or off for the next searches.
+     * @param enabled True to use null move pruning.
+     */
+    public void setNullMovePruning(boolean enabled)
+    {
+        nullMovePruning = enabled;
+    }
+
+    /**
+     * Turns late move reductions on or off for the next searches.
+     * @param enabled True to use late move reductions.
+     */
+    public void setLateMoveReductions(boolean enabled)
+    {
+        lateMoveReductions = enabled;
+    }
+
+    /**
+     * Turns futility pruning on or off for the next searches.
+     * @param enabled True to use futility pruning.
+     */
+    public void setFutilityPruning(boolean enabled)
+    {
+        futilityPruning = enabled;
+    }
+
+    /**
+     * Turns razoring on or off for the next searches.
+     * @param enabled True to use razoring.
+     */
+    public void setRazoring(boolean enabled)
+    {
+        razoring = enabled;
+    }
+
+    /**
+     * Sets the endgame tables the next searches look positions up in.
+     * @param tablebases The tables, or null to not use any.
+     */
+    public void setTablebases(Tablebases tablebases)
+    {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Makes a worker that searches its own copy of a board, with the options
+     * of this engine.
+     * @param board The board.
+     * @param id The number of the worker, 0 for the main worker.
+     * @return The worker.
+     */
+    private SearchWorker createWorker(ChessBoard board, int id)
+    {
+        SearchWorker worker = new SearchWorker(new ChessBoard(board), table, id);
+        worker.setNullMovePruning(nullMovePruning);
+        worker.setLateMoveReductions(lateMoveReductions);
+        worker.setFutilityPruning(futilityPruning);
+        worker.setRazoring(razoring);
+        worker.setTablebases(tablebases);
+        return worker;
+    }
+
+    /**
+     * Waits for a helper thread to finish. If the waiting thread is
+     * interrupted, it stops waiting and keeps its interrupted status.
+     * @param helper The helper thread.
+     */
+    private static void joinHelper(Thread helper)
+    {
+        try
+        {
+            helper.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Forgets everything learned in earlier searches, for example before a
+     * new game.
+     */
+    public void clear()
+    {
+        table.clear();
+    }
+}
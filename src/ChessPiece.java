@@ -65,6 +65,21 @@ public abstract class ChessPiece
 	    hasMoved = true;
 	}
 	
+	/**
+	 * Puts the piece back on a square it was moved from, when a move is taken
+	 * back. The hasMoved flag is set back to the value it had before the move.
+	 * @param row The row the piece was moved from.
+	 * @param column The column the piece was moved from.
+	 * @param hasMoved The value of the hasMoved flag before the move.
+	 * @throws IllegalArgumentException Thrown if the at least one value is 
+	 * either negative or larger than the size of the board.
+	 */
+	public void undoMove(int row, int column, boolean hasMoved) throws IllegalArgumentException
+	{
+		setPosition(row, column);
+		this.hasMoved = hasMoved;
+	}
+	
 	/**
 	 * Sets the position of a piece to a new one.
 	 * @param row The new row of the piece.
@@ -0,0 +1,456 @@
+/**
+ * Class holds the static evaluation used by the search: a score for a
+ * position from the point of view of the player whose turn it is, in
+ * hundredths of a pawn. A positive score means that player is better.
+ *
+ * The score is the material of both players plus a bonus or penalty for
+ * the square each piece stands on, taken from a piece-square table. There
+ * are two sets of values, one for the middlegame and one for the endgame
+ * (where, for example, the king should come to the centre instead of
+ * hiding behind its pawns), and the two scores are blended by the phase of
+ * the game: the more pieces other than pawns are left, the more the
+ * middlegame score counts.
+ *
+ * The board keeps the sums of the table values and the phase up to date
+ * with every piece it adds or removes, so evaluating a position costs a few
+ * arithmetic operations instead of a walk over all the pieces.
+ *
+ * On top of that comes the pawn structure: doubled, isolated and backward
+ * pawns are penalised and passed pawns get a bonus that grows as they
+ * advance. These terms depend on the pawns only, so the search looks them
+ * up in a PawnHashTable and works them out only when the pawn structure is
+ * not in the table.
+ * @version 1.0
+ */
+public class Evaluation
+{
+    /**The value of each piece type, indexed by the ordinal of the type. The
+     * king is never captured, so it has no value.*/
+    private static final int[] PIECE_VALUES = {0, 900, 500, 330, 320, 100};
+
+    /**The value of each piece type in the endgame, where rooks and pawns are
+     * worth a bit more and knights a bit less.*/
+    private static final int[] ENDGAME_VALUES = {0, 950, 530, 340, 300, 120};
+
+    /**How much each piece type counts towards the phase of the game. With
+     * all the pieces on the board the phase is MAX_PHASE.*/
+    private static final int[] PHASE_WEIGHTS = {0, 4, 2, 1, 1, 0};
+
+    /**The phase of the game at the start, when the middlegame score counts
+     * fully. At phase 0 only the endgame score counts.*/
+    public static final int MAX_PHASE = 24;
+
+    /**Penalties for doubled, isolated and backward pawns, and the bonus of a
+     * passed pawn for each row it has reached counted from its own side,
+     * each for the middlegame and then the endgame.*/
+    private static final int[] DOUBLED_PENALTIES = {10, 20};
+    private static final int[] ISOLATED_PENALTIES = {10, 15};
+    private static final int[] BACKWARD_PENALTIES = {8, 10};
+    private static final int[][] PASSED_BONUSES = {
+        {0, 5, 10, 15, 25, 40, 60, 0},
+        {0, 10, 20, 35, 55, 85, 120, 0}};
+
+    /**The extra endgame bonus of a passed pawn that can move forward, for
+     * each row it has reached.*/
+    private static final int[] FREE_PASSED_BONUSES = {0, 0, 5, 10, 20, 35, 60, 0};
+
+    /**The squares of the first column of the board.*/
+    private static final long COLUMN_A = 0x0101010101010101L;
+
+    /**The squares of the columns next to each column.*/
+    private static final long[] ADJACENT_COLUMNS = new long[8];
+
+    /**For each player and square, the squares in front of it on its column,
+     * and the squares in front of it on its column and the columns next to
+     * it. A pawn is passed if no enemy pawn stands on the second set.*/
+    private static final long[][] FRONT_SPANS = new long[2][64];
+    private static final long[][] PASSED_MASKS = new long[2][64];
+
+    /**Cached values of the enumerated type, so that we do not make a new
+     * array on every evaluation.*/
+    private static final PieceType[] TYPES = PieceType.values();
+
+    /*The piece-square tables, from the point of view of the white player and
+     * laid out the way the board is seen by the white player: the first row
+     * of each table is row 7, the last row is row 0.*/
+    private static final int[] KING_MIDDLEGAME = {
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -20,-30,-30,-40,-40,-30,-30,-20,
+        -10,-20,-20,-20,-20,-20,-20,-10,
+         20, 20,  0,  0,  0,  0, 20, 20,
+         20, 30, 10,  0,  0, 10, 30, 20};
+
+    private static final int[] KING_ENDGAME = {
+        -50,-40,-30,-20,-20,-30,-40,-50,
+        -30,-20,-10,  0,  0,-10,-20,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-30,  0,  0,  0,  0,-30,-30,
+        -50,-30,-30,-30,-30,-30,-30,-50};
+
+    private static final int[] QUEEN_TABLE = {
+        -20,-10,-10, -5, -5,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5,  5,  5,  5,  0,-10,
+         -5,  0,  5,  5,  5,  5,  0, -5,
+          0,  0,  5,  5,  5,  5,  0, -5,
+        -10,  5,  5,  5,  5,  5,  0,-10,
+        -10,  0,  5,  0,  0,  0,  0,-10,
+        -20,-10,-10, -5, -5,-10,-10,-20};
+
+    private static final int[] ROOK_TABLE = {
+          0,  0,  0,  0,  0,  0,  0,  0,
+          5, 10, 10, 10, 10, 10, 10,  5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+          0,  0,  0,  5,  5,  0,  0,  0};
+
+    private static final int[] BISHOP_TABLE = {
+        -20,-10,-10,-10,-10,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5, 10, 10,  5,  0,-10,
+        -10,  5,  5, 10, 10,  5,  5,-10,
+        -10,  0, 10, 10, 10, 10,  0,-10,
+        -10, 10, 10, 10, 10, 10, 10,-10,
+        -10,  5,  0,  0,  0,  0,  5,-10,
+        -20,-10,-10,-10,-10,-10,-10,-20};
+
+    private static final int[] KNIGHT_TABLE = {
+        -50,-40,-30,-30,-30,-30,-40,-50,
+        -40,-20,  0,  0,  0,  0,-20,-40,
+        -30,  0, 10, 15, 15, 10,  0,-30,
+        -30,  5, 15, 20, 20, 15,  5,-30,
+        -30,  0, 15, 20, 20, 15,  0,-30,
+        -30,  5, 10, 15, 15, 10,  5,-30,
+        -40,-20,  0,  5,  5,  0,-20,-40,
+        -50,-40,-30,-30,-30,-30,-40,-50};
+
+    private static final int[] PAWN_MIDDLEGAME = {
+          0,  0,  0,  0,  0,  0,  0,  0,
+         50, 50, 50, 50, 50, 50, 50, 50,
+         10, 10, 20, 30, 30, 20, 10, 10,
+          5,  5, 10, 25, 25, 10,  5,  5,
+          0,  0,  0, 20, 20,  0,  0,  0,
+          5, -5,-10,  0,  0,-10, -5,  5,
+          5, 10, 10,-20,-20, 10, 10,  5,
+          0,  0,  0,  0,  0,  0,  0,  0};
+
+    private static final int[] PAWN_ENDGAME = {
+          0,  0,  0,  0,  0,  0,  0,  0,
+         80, 80, 80, 80, 80, 80, 80, 80,
+         50, 50, 50, 50, 50, 50, 50, 50,
+         30, 30, 30, 30, 30, 30, 30, 30,
+         20, 20, 20, 20, 20, 20, 20, 20,
+         10, 10, 10, 10, 10, 10, 10, 10,
+         10, 10, 10, 10, 10, 10, 10, 10,
+          0,  0,  0,  0,  0,  0,  0,  0};
+
+    /**The tables of each piece type, indexed by the ordinal of the type.*/
+    private static final int[][] MIDDLEGAME_TABLES = {KING_MIDDLEGAME, QUEEN_TABLE, ROOK_TABLE,
+        BISHOP_TABLE, KNIGHT_TABLE, PAWN_MIDDLEGAME};
+    private static final int[][] ENDGAME_TABLES = {KING_ENDGAME, QUEEN_TABLE, ROOK_TABLE,
+        BISHOP_TABLE, KNIGHT_TABLE, PAWN_ENDGAME};
+
+    /**The value of each piece code on each square, material included, with
+     * the sign of its colour: positive for white pieces and negative for
+     * black ones, so that the sum over the board is the score for white.*/
+    private static final int[][] MIDDLEGAME_SCORES = new int[12][64];
+    private static final int[][] ENDGAME_SCORES = new int[12][64];
+
+    static
+    {
+        for(PieceType type : TYPES)
+        {
+            int t = type.ordinal();
+            int white = BitBoard.pieceCode(ChessPlayer.white, type);
+            int black = BitBoard.pieceCode(ChessPlayer.black, type);
+
+            for(int square = 0; square < 64; square++)
+            {
+                int row = square / 8;
+                int column = square % 8;
+
+                //the tables start at row 7 for white, and a black piece sees the board mirrored
+                int whiteIndex = (7 - row) * 8 + column;
+                int blackIndex = row * 8 + column;
+
+                MIDDLEGAME_SCORES[white][square] = PIECE_VALUES[t] + MIDDLEGAME_TABLES[t][whiteIndex];
+                ENDGAME_SCORES[white][square] = ENDGAME_VALUES[t] + ENDGAME_TABLES[t][whiteIndex];
+                MIDDLEGAME_SCORES[black][square] = -PIECE_VALUES[t] - MIDDLEGAME_TABLES[t][blackIndex];
+                ENDGAME_SCORES[black][square] = -ENDGAME_VALUES[t] - ENDGAME_TABLES[t][blackIndex];
+            }
+        }
+
+        for(int column = 0; column < 8; column++)
+        {
+            ADJACENT_COLUMNS[column] = ((column > 0) ? COLUMN_A << (column - 1) : 0)
+                    | ((column < 7) ? COLUMN_A << (column + 1) : 0);
+        }
+
+        for(int square = 0; square < 64; square++)
+        {
+            int row = square / 8;
+            long columns = ADJACENT_COLUMNS[square % 8] | (COLUMN_A << (square % 8));
+
+            for(int other = 0; other < 64; other++)
+            {
+                int otherRow = other / 8;
+                long bit = 1L << other;
+
+                if(otherRow > row)
+                {
+                    PASSED_MASKS[ChessPlayer.white.ordinal()][square] |= columns & bit;
+                }
+                else if(otherRow < row)
+                {
+                    PASSED_MASKS[ChessPlayer.black.ordinal()][square] |= columns & bit;
+                }
+            }
+
+            FRONT_SPANS[ChessPlayer.white.ordinal()][square] =
+                    PASSED_MASKS[ChessPlayer.white.ordinal()][square] & (COLUMN_A << (square % 8));
+            FRONT_SPANS[ChessPlayer.black.ordinal()][square] =
+                    PASSED_MASKS[ChessPlayer.black.ordinal()][square] & (COLUMN_A << (square % 8));
+        }
+    }
+
+    /**
+     * Gets the value of a piece type.
+     * @param type The type.
+     * @return The value in hundredths of a pawn, 0 for the king.
+     */
+    public static int pieceValue(PieceType type)
+    {
+        return PIECE_VALUES[type.ordinal()];
+    }
+
+    /**
+     * Gets the middlegame value of a piece on a square, material included.
+     * @param code The piece code, as given by BitBoard.pieceCode.
+     * @param square The index of the square.
+     * @return The value for the white player: positive for a white piece,
+     * negative for a black one.
+     */
+    public static int middlegameScore(int code, int square)
+    {
+        return MIDDLEGAME_SCORES[code][square];
+    }
+
+    /**
+     * Gets the endgame value of a piece on a square, material included.
+     * @param code The piece code, as given by BitBoard.pieceCode.
+     * @param square The index of the square.
+     * @return The value for the white player: positive for a white piece,
+     * negative for a black one.
+     */
+    public static int endgameScore(int code, int square)
+    {
+        return ENDGAME_SCORES[code][square];
+    }
+
+    /**
+     * Gets how much a piece counts towards the phase of the game.
+     * @param code The piece code, as given by BitBoard.pieceCode.
+     * @return The weight: 4 for a queen, 2 for a rook, 1 for a bishop or a
+     * knight and 0 for a pawn or a king.
+     */
+    public static int phaseWeight(int code)
+    {
+        return PHASE_WEIGHTS[code % PHASE_WEIGHTS.length];
+    }
+
+    /**
+     * Evaluates a position, working out the pawn structure from scratch.
+     * The search uses the other evaluate method, which caches the pawn
+     * structure.
+     * @param board The board.
+     * @return The score for the player whose turn it is.
+     */
+    public static int evaluate(ChessBoard board)
+    {
+        long whitePawns = board.getPieces(ChessPlayer.white, PieceType.pawn);
+        long blackPawns = board.getPieces(ChessPlayer.black, PieceType.pawn);
+        long whitePassed = passedPawns(whitePawns, blackPawns, ChessPlayer.white);
+        long blackPassed = passedPawns(blackPawns, whitePawns, ChessPlayer.black);
+
+        int middlegame = board.getMiddlegameScore()
+                + pawnStructureScore(whitePawns, blackPawns, whitePassed, blackPassed, false);
+        int endgame = board.getEndgameScore()
+                + pawnStructureScore(whitePawns, blackPawns, whitePassed, blackPassed, true)
+                + freePassedScore(board, whitePassed, ChessPlayer.white)
+                - freePassedScore(board, blackPassed, ChessPlayer.black);
+
+        return blend(board, middlegame, endgame);
+    }
+
+    /**
+     * Evaluates a position, taking the pawn structure terms from a pawn hash
+     * table.
+     * @param board The board.
+     * @param pawnTable The pawn hash table of the thread that evaluates.
+     * @return The score for the player whose turn it is.
+     */
+    public static int evaluate(ChessBoard board, PawnHashTable pawnTable)
+    {
+        int index = pawnTable.lookup(board);
+
+        int middlegame = board.getMiddlegameScore() + pawnTable.getMiddlegameScore(index);
+        int endgame = board.getEndgameScore() + pawnTable.getEndgameScore(index)
+                + freePassedScore(board, pawnTable.getPassedPawns(index, ChessPlayer.white), ChessPlayer.white)
+                - freePassedScore(board, pawnTable.getPassedPawns(index, ChessPlayer.black), ChessPlayer.black);
+
+        return blend(board, middlegame, endgame);
+    }
+
+    /**
+     * Finds the passed pawns of a player: the pawns that no enemy pawn can
+     * stop from reaching the last row, because none stands in front of them
+     * on their column or the columns next to it. Of two pawns on the same
+     * column, only the front one can be passed.
+     * @param pawns The pawns of the player.
+     * @param enemyPawns The pawns of the opponent.
+     * @param player The player.
+     * @return A bitboard of the passed pawns.
+     */
+    public static long passedPawns(long pawns, long enemyPawns, ChessPlayer player)
+    {
+        int side = player.ordinal();
+        long passed = 0;
+
+        for(long remaining = pawns; remaining != 0; remaining &= remaining - 1)
+        {
+            int square = Long.numberOfTrailingZeros(remaining);
+            if((enemyPawns & PASSED_MASKS[side][square]) == 0 && (pawns & FRONT_SPANS[side][square]) == 0)
+            {
+                passed |= 1L << square;
+            }
+        }
+
+        return passed;
+    }
+
+    /**
+     * Scores the pawn structure of both players: doubled, isolated and
+     * backward pawns, and passed pawns by how far they have advanced.
+     * @param whitePawns The pawns of the white player.
+     * @param blackPawns The pawns of the black player.
+     * @param whitePassed The passed pawns of the white player.
+     * @param blackPassed The passed pawns of the black player.
+     * @param endgame True for the endgame score, false for the middlegame one.
+     * @return The score for the white player.
+     */
+    public static int pawnStructureScore(long whitePawns, long blackPawns, long whitePassed,
+            long blackPassed, boolean endgame)
+    {
+        return pawnScore(whitePawns, blackPawns, whitePassed, ChessPlayer.white, endgame)
+                - pawnScore(blackPawns, whitePawns, blackPassed, ChessPlayer.black, endgame);
+    }
+
+    /**
+     * Scores the pawns of one player, as described for pawnStructureScore.
+     * @param pawns The pawns of the player.
+     * @param enemyPawns The pawns of the opponent.
+     * @param passed The passed pawns of the player.
+     * @param player The player.
+     * @param endgame True for the endgame score, false for the middlegame one.
+     * @return The score for the player.
+     */
+    private static int pawnScore(long pawns, long enemyPawns, long passed, ChessPlayer player,
+            boolean endgame)
+    {
+        int side = player.ordinal();
+        int stage = endgame ? 1 : 0;
+        int score = 0;
+
+        for(long remaining = pawns; remaining != 0; remaining &= remaining - 1)
+        {
+            int square = Long.numberOfTrailingZeros(remaining);
+            int column = square % 8;
+            int row = (player == ChessPlayer.white) ? square / 8 : 7 - square / 8;
+
+            //a pawn with another pawn of its player in front of it
+            if((pawns & FRONT_SPANS[side][square]) != 0)
+            {
+                score -= DOUBLED_PENALTIES[stage];
+            }
+
+            if((pawns & ADJACENT_COLUMNS[column]) == 0)
+            {
+                score -= ISOLATED_PENALTIES[stage];
+            }
+            else if(row < 7 && (pawns & ADJACENT_COLUMNS[column] & ~PASSED_MASKS[side][square]) == 0)
+            {
+                //no pawn beside or behind it can defend it, and an enemy pawn guards the square in front
+                int stop = (player == ChessPlayer.white) ? square + 8 : square - 8;
+                if((BitBoard.pawnAttacks(player, stop) & enemyPawns) != 0)
+                {
+                    score -= BACKWARD_PENALTIES[stage];
+                }
+            }
+
+            if((passed & (1L << square)) != 0)
+            {
+                score += PASSED_BONUSES[stage][row];
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * Scores the passed pawns of a player whose square in front is empty,
+     * which matters in the endgame. This depends on the other pieces as well,
+     * so it is not kept in the pawn hash table.
+     * @param board The board.
+     * @param passed The passed pawns of the player.
+     * @param player The player.
+     * @return The endgame bonus for the player.
+     */
+    private static int freePassedScore(ChessBoard board, long passed, ChessPlayer player)
+    {
+        long occupied = board.getOccupied();
+        int score = 0;
+
+        for(long remaining = passed; remaining != 0; remaining &= remaining - 1)
+        {
+            int square = Long.numberOfTrailingZeros(remaining);
+            int row = (player == ChessPlayer.white) ? square / 8 : 7 - square / 8;
+            if(row == 7)
+            {
+                continue;
+            }
+
+            int stop = (player == ChessPlayer.white) ? square + 8 : square - 8;
+            if((occupied & (1L << stop)) == 0)
+            {
+                score += FREE_PASSED_BONUSES[row];
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * Blends a middlegame and an endgame score by the phase of the game.
+     * @param board The board.
+     * @param middlegame The middlegame score for the white player.
+     * @param endgame The endgame score for the white player.
+     * @return The blended score for the player whose turn it is.
+     */
+    private static int blend(ChessBoard board, int middlegame, int endgame)
+    {
+        //promoted pieces can bring the phase above its starting value
+        int phase = Math.min(board.getPhase(), MAX_PHASE);
+        int score = (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+
+        return (board.getSideToMove() == ChessPlayer.white) ? score : -score;
+    }
+}
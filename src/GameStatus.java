@@ -0,0 +1,6 @@
+/*Enumerated type for the state of a chess game, as seen by the player whose turn it is.
+ * In check means the game goes on, but the king of that player is under attack.*/
+public enum GameStatus 
+{
+	ongoing,check,checkmate,stalemate;
+}
@@ -0,0 +1,198 @@
+/**
+ * Class holds the methods for packing a chess move into a single int and
+ * for reading it back. Moves are passed around as ints, so that lists of
+ * moves can be kept in int arrays and no objects are made while generating
+ * or searching moves.
+ *
+ * The bits of a move are laid out as follows: bits 0 to 5 hold the square
+ * the piece moves from, bits 6 to 11 the square it moves to, bits 12 to 14
+ * the ordinal of the PieceType a pawn is promoted to, and the bits above
+ * that hold the flags of the move. A square is numbered row*8+column, like
+ * the bits of a bitboard. The king has the ordinal 0 and can never be a
+ * promotion, so 0 in the promotion bits means the move is not a promotion.
+ * @version 1.0
+ */
+public class Move
+{
+    /**A value that is never a valid move, used for "no move".*/
+    public static final int NONE = 0;
+
+    /**Flag set if the move captures an enemy piece, including en passant.*/
+    public static final int CAPTURE = 1 << 15;
+
+    /**Flag set if the move is an en passant capture.*/
+    public static final int EN_PASSANT = 1 << 16;
+
+    /**Flag set if the move is a castling move. Castling moves are stored as
+     * the move of the king, 2 squares towards the rook.*/
+    public static final int CASTLE = 1 << 17;
+
+    /**Flag set if the move is a pawn moving forward 2 spaces.*/
+    public static final int DOUBLE_PUSH = 1 << 18;
+
+    /**Masks and shifts of the fields of a move.*/
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+
+    /**Cached values of the enumerated type, so that we do not make a new
+     * array every time we read the promotion of a move.*/
+    private static final PieceType[] TYPES = PieceType.values();
+
+    /**
+     * Packs a move into an int.
+     * @param from The square the piece moves from.
+     * @param to The square the piece moves to.
+     * @param promotion The type a pawn is promoted to, or null if the move
+     * is not a promotion.
+     * @param flags The flags of the move, combined with a bitwise or.
+     * @return The move as an int.
+     */
+    public static int create(int from, int to, PieceType promotion, int flags)
+    {
+        int move = from | (to << TO_SHIFT) | flags;
+
+        if(promotion != null)
+        {
+            move |= promotion.ordinal() << PROMOTION_SHIFT;
+        }
+
+        return move;
+    }
+
+    /**
+     * Gets the square the piece moves from.
+     * @param move The move.
+     * @return The index of the square, row*8+column.
+     */
+    public static int getFrom(int move)
+    {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * Gets the square the piece moves to.
+     * @param move The move.
+     * @return The index of the square, row*8+column.
+     */
+    public static int getTo(int move)
+    {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * Gets the type a pawn is promoted to by the move.
+     * @param move The move.
+     * @return The type of the new piece, or null if the move is not a
+     * promotion.
+     */
+    public static PieceType getPromotion(int move)
+    {
+        int ordinal = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+
+        if(ordinal == 0)
+        {
+            return null;
+        }
+        else
+        {
+            return TYPES[ordinal];
+        }
+    }
+
+    /**
+     * Tells you if the move promotes a pawn.
+     * @param move The move.
+     * @return True if the move is a promotion.
+     */
+    public static boolean isPromotion(int move)
+    {
+        return ((move >>> PROMOTION_SHIFT) & PROMOTION_MASK) != 0;
+    }
+
+    /**
+     * Tells you if the move captures an enemy piece.
+     * @param move The move.
+     * @return True if the move is a capture, including en passant.
+     */
+    public static boolean isCapture(int move)
+    {
+        return (move & CAPTURE) != 0;
+    }
+
+    /**
+     * Tells you if the move is an en passant capture.
+     * @param move The move.
+     * @return True if the move is an en passant capture.
+     */
+    public static boolean isEnPassant(int move)
+    {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    /**
+     * Tells you if the move is a castling move.
+     * @param move The move.
+     * @return True if the move is a castling move.
+     */
+    public static boolean isCastle(int move)
+    {
+        return (move & CASTLE) != 0;
+    }
+
+    /**
+     * Tells you if the move is a pawn moving forward 2 spaces.
+     * @param move The move.
+     * @return True if the move is a double pawn push.
+     */
+    public static boolean isDoublePush(int move)
+    {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    /**
+     * Gives the move in coordinate notation, like e2e4 or e7e8q, with the
+     * columns as letters and the rows counted from 1, as on a real chess
+     * board.
+     * @param move The move.
+     * @return The move as a string.
+     */
+    public static String toString(int move)
+    {
+        StringBuilder text = new StringBuilder(5);
+        appendSquare(text, getFrom(move));
+        appendSquare(text, getTo(move));
+
+        PieceType promotion = getPromotion(move);
+        if(promotion == PieceType.queen)
+        {
+            text.append('q');
+        }
+        else if(promotion == PieceType.rook)
+        {
+            text.append('r');
+        }
+        else if(promotion == PieceType.bishop)
+        {
+            text.append('b');
+        }
+        else if(promotion == PieceType.knight)
+        {
+            text.append('n');
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Adds the name of a square, like e4, to a string builder.
+     * @param text The string builder.
+     * @param square The index of the square.
+     */
+    private static void appendSquare(StringBuilder text, int square)
+    {
+        text.append((char)('a' + square % 8));
+        text.append((char)('1' + square / 8));
+    }
+}
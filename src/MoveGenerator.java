@@ -0,0 +1,518 @@
+/**
+ * Class generates all the legal moves of the player whose turn it is on a
+ * bitboard chess board. The moves are written as ints, packed as described
+ * in the Move class, into an array given by the caller, so generating moves
+ * does not make any objects.
+ *
+ * Only legal moves are generated: the generator works out which pieces
+ * check the king and which pieces are pinned to it before going through
+ * the moves, so no move has to be tried on the board to see if it would
+ * leave the king in check.
+ * @version 1.0
+ */
+public class MoveGenerator
+{
+    /**The largest number of legal moves any chess position can have is 218,
+     * so an array of this size can hold the moves of any position.*/
+    public static final int MAX_MOVES = 256;
+
+    /**A chess board is an 8x8 board.*/
+    private static final int SIZE_OF_BOARD = 8;
+
+    /**The number of squares on the board.*/
+    private static final int SQUARES = SIZE_OF_BOARD * SIZE_OF_BOARD;
+
+    /**For two squares on the same row, column or diagonal, the squares
+     * strictly between them. Indexed by square1*64+square2, and 0 for
+     * squares that are not on a common line.*/
+    private static final long[] BETWEEN = new long[SQUARES * SQUARES];
+
+    /**For two squares on the same row, column or diagonal, all the squares
+     * of the line through them, from one edge of the board to the other.
+     * Indexed like BETWEEN.*/
+    private static final long[] LINE = new long[SQUARES * SQUARES];
+
+    /**Cached values of the enumerated type, so that we do not make a new
+     * array every time we turn a piece code into a type.*/
+    private static final PieceType[] TYPES = PieceType.values();
+
+    /**The types a pawn can be promoted to, in the order the promotion moves
+     * are generated.*/
+    private static final PieceType[] PROMOTIONS = {PieceType.queen, PieceType.rook,
+        PieceType.bishop, PieceType.knight};
+
+    static
+    {
+        for(int square1 = 0; square1 < SQUARES; square1++)
+        {
+            for(int square2 = 0; square2 < SQUARES; square2++)
+            {
+                long bit1 = 1L << square1;
+                long bit2 = 1L << square2;
+
+                /*Two squares are on a common row or column if a rook on one
+                 * of them attacks the other on an empty board. The squares
+                 * between them are the ones both a rook on the first and on
+                 * the second square attack, when each blocks the other.*/
+                if((SlidingAttacks.rookAttacks(square1, 0) & bit2) != 0)
+                {
+                    BETWEEN[square1 * SQUARES + square2] = SlidingAttacks.rookAttacks(square1, bit2)
+                            & SlidingAttacks.rookAttacks(square2, bit1);
+                    LINE[square1 * SQUARES + square2] = (SlidingAttacks.rookAttacks(square1, 0)
+                            & SlidingAttacks.rookAttacks(square2, 0)) | bit1 | bit2;
+                }
+                //the same holds for diagonals, with bishops
+                else if((SlidingAttacks.bishopAttacks(square1, 0) & bit2) != 0)
+                {
+                    BETWEEN[square1 * SQUARES + square2] = SlidingAttacks.bishopAttacks(square1, bit2)
+                            & SlidingAttacks.bishopAttacks(square2, bit1);
+                    LINE[square1 * SQUARES + square2] = (SlidingAttacks.bishopAttacks(square1, 0)
+                            & SlidingAttacks.bishopAttacks(square2, 0)) | bit1 | bit2;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the squares strictly between two squares on a common row,
+     * column or diagonal.
+     * @param square1 The first square.
+     * @param square2 The second square.
+     * @return A bitboard of the squares between them, or 0 if the squares
+     * are not on a common line.
+     */
+    public static long between(int square1, int square2)
+    {
+        return BETWEEN[square1 * SQUARES + square2];
+    }
+
+    /**
+     * Gets all the squares of the row, column or diagonal that goes through
+     * two squares.
+     * @param square1 The first square.
+     * @param square2 The second square.
+     * @return A bitboard of the squares of the line, or 0 if the squares are
+     * not on a common line.
+     */
+    public static long line(int square1, int square2)
+    {
+        return LINE[square1 * SQUARES + square2];
+    }
+
+    /**
+     * Writes all the legal moves of the player whose turn it is into the
+     * given array.
+     * @param position The board to generate the moves for.
+     * @param moves The array the moves are written to, starting at index 0.
+     * It must have room for MAX_MOVES moves.
+     * @return The number of moves written to the array.
+     */
+    public static int generateLegalMoves(BitBoard position, int[] moves)
+    {
+        return generate(position, moves, false);
+    }
+
+    /**
+     * Writes the legal captures and promotions of the player whose turn it
+     * is into the given array. These are the moves that change the material
+     * on the board, which is all the quiescence search looks at.
+     * @param position The board to generate the moves for.
+     * @param moves The array the moves are written to, starting at index 0.
+     * It must have room for MAX_MOVES moves.
+     * @return The number of moves written to the array.
+     */
+    public static int generateCaptures(BitBoard position, int[] moves)
+    {
+        return generate(position, moves, true);
+    }
+
+    /**
+     * Writes the legal moves of the player whose turn it is into the given
+     * array.
+     * @param position The board to generate the moves for.
+     * @param moves The array the moves are written to.
+     * @param capturesOnly True to only write captures and promotions.
+     * @return The number of moves written to the array.
+     */
+    private static int generate(BitBoard position, int[] moves, boolean capturesOnly)
+    {
+        ChessPlayer us = position.getSideToMove();
+        ChessPlayer them = BitBoard.opponent(us);
+        long own = position.getPlayerPieces(us);
+        long enemy = position.getPlayerPieces(them);
+        long occupied = position.getOccupied();
+
+        long kingBit = position.getPieces(us, PieceType.king);
+        int kingSquare = Long.numberOfTrailingZeros(kingBit);
+        long checkers = position.attackers(kingSquare, them, occupied);
+        int count = 0;
+
+        /*The king can move to any square that is not attacked. The king is
+         * taken off the board while checking, so that it can not step back
+         * along the line of a sliding piece that checks it.*/
+        long targetMask = capturesOnly ? enemy : ~own;
+        long kingTargets = BitBoard.kingAttacks(kingSquare) & targetMask;
+        while(kingTargets != 0)
+        {
+            int to = Long.numberOfTrailingZeros(kingTargets);
+            kingTargets &= kingTargets - 1;
+
+            if(position.attackers(to, them, occupied ^ kingBit) == 0)
+            {
+                count = addMove(moves, count, kingSquare, to, enemy, 0);
+            }
+        }
+
+        //in double check, only the king can move
+        if(Long.bitCount(checkers) > 1)
+        {
+            return count;
+        }
+
+        /*If the king is in check by one piece, the other pieces can only
+         * capture the checking piece or block the line between it and the
+         * king.*/
+        long checkMask;
+        if(checkers != 0)
+        {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = checkers | between(kingSquare, checker);
+        }
+        else
+        {
+            checkMask = ~0L;
+            if(!capturesOnly)
+            {
+                count = addCastlingMoves(position, moves, count, us, them, kingSquare);
+            }
+        }
+
+        long pinned = pinnedPieces(position, us, them, kingSquare);
+
+        //knights, bishops, rooks and queens
+        long pieces = own & ~kingBit & ~position.getPieces(us, PieceType.pawn);
+        while(pieces != 0)
+        {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+
+            long targets = pieceAttacks(position.getPieceCode(from), from, occupied) & targetMask & checkMask;
+
+            //a pinned piece can only move along the line between its king and the pinning piece
+            if((pinned & (1L << from)) != 0)
+            {
+                targets &= line(kingSquare, from);
+            }
+
+            while(targets != 0)
+            {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                count = addMove(moves, count, from, to, enemy, 0);
+            }
+        }
+
+        return addPawnMoves(position, moves, count, us, them, kingSquare, checkMask, pinned,
+                capturesOnly);
+    }
+
+    /**
+     * Writes the legal pawn moves of the given player into the array.
+     * @param position The board.
+     * @param moves The move array.
+     * @param count The number of moves already in the array.
+     * @param us The player whose moves are generated.
+     * @param them The opponent.
+     * @param kingSquare The square of the king of the player.
+     * @param checkMask The squares a move must land on to deal with a check.
+     * @param pinned The pieces of the player that are pinned to the king.
+     * @param capturesOnly True to only write captures and promotions.
+     * @return The new number of moves in the array.
+     */
+    private static int addPawnMoves(BitBoard position, int[] moves, int count, ChessPlayer us,
+            ChessPlayer them, int kingSquare, long checkMask, long pinned, boolean capturesOnly)
+    {
+        long occupied = position.getOccupied();
+        long enemy = position.getPlayerPieces(them);
+        int direction = (us == ChessPlayer.white) ? SIZE_OF_BOARD : -SIZE_OF_BOARD;
+        int startRow = (us == ChessPlayer.white) ? 1 : SIZE_OF_BOARD - 2;
+        int lastRow = (us == ChessPlayer.white) ? SIZE_OF_BOARD - 1 : 0;
+
+        long pawns = position.getPieces(us, PieceType.pawn);
+        while(pawns != 0)
+        {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+
+            /*a pawn that has reached the last row without being promoted
+             * yet can not move any more*/
+            if(from / SIZE_OF_BOARD == lastRow)
+            {
+                continue;
+            }
+
+            long allowed = checkMask;
+            if((pinned & (1L << from)) != 0)
+            {
+                allowed &= line(kingSquare, from);
+            }
+
+            //simple move forward, and 2 spaces forward from the starting row
+            int to = from + direction;
+            boolean promotes = to / SIZE_OF_BOARD == lastRow;
+            if((occupied & (1L << to)) == 0 && (promotes || !capturesOnly))
+            {
+                if((allowed & (1L << to)) != 0)
+                {
+                    count = addPawnMove(moves, count, from, to, lastRow, 0);
+                }
+
+                int doubleTo = to + direction;
+                if(!capturesOnly && from / SIZE_OF_BOARD == startRow && (occupied & (1L << doubleTo)) == 0 &&
+                        (allowed & (1L << doubleTo)) != 0)
+                {
+                    moves[count++] = Move.create(from, doubleTo, null, Move.DOUBLE_PUSH);
+                }
+            }
+
+            //captures forward on the diagonal
+            long targets = BitBoard.pawnAttacks(us, from) & enemy & allowed;
+            while(targets != 0)
+            {
+                int target = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                count = addPawnMove(moves, count, from, target, lastRow, Move.CAPTURE);
+            }
+
+            int enPassantSquare = position.getEnPassantSquare();
+            if(enPassantSquare != -1 && (BitBoard.pawnAttacks(us, from) & (1L << enPassantSquare)) != 0 &&
+                    isLegalEnPassant(position, us, them, kingSquare, from, enPassantSquare, checkMask))
+            {
+                moves[count++] = Move.create(from, enPassantSquare, null, Move.CAPTURE | Move.EN_PASSANT);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Checks if an en passant capture would leave the king safe. It takes
+     * both pawns off the row they are on at once, which can uncover an
+     * attack along that row that the pin check can not see, so the
+     * capture is tried on a copy of the occupancy instead.
+     * @param position The board.
+     * @param us The player who captures.
+     * @param them The opponent.
+     * @param kingSquare The square of the king of the player who captures.
+     * @param from The square of the capturing pawn.
+     * @param to The en passant square.
+     * @param checkMask The squares a move must land on to deal with a check.
+     * @return True if the capture is legal.
+     */
+    private static boolean isLegalEnPassant(BitBoard position, ChessPlayer us, ChessPlayer them,
+            int kingSquare, int from, int to, long checkMask)
+    {
+        int capturedSquare = BitBoard.getSquare(from / SIZE_OF_BOARD, to % SIZE_OF_BOARD);
+
+        //in check, the capture must take the checking pawn or block the check
+        if((checkMask & ((1L << to) | (1L << capturedSquare))) == 0)
+        {
+            return false;
+        }
+
+        long occupied = (position.getOccupied() ^ (1L << from) ^ (1L << capturedSquare)) | (1L << to);
+        long queens = position.getPieces(them, PieceType.queen);
+        long rooks = position.getPieces(them, PieceType.rook) | queens;
+        long bishops = position.getPieces(them, PieceType.bishop) | queens;
+
+        return (SlidingAttacks.rookAttacks(kingSquare, occupied) & rooks) == 0 &&
+                (SlidingAttacks.bishopAttacks(kingSquare, occupied) & bishops) == 0;
+    }
+
+    /**
+     * Writes the legal castling moves of the given player into the array.
+     * The king must not be in check when this is called.
+     * @param position The board.
+     * @param moves The move array.
+     * @param count The number of moves already in the array.
+     * @param us The player whose moves are generated.
+     * @param them The opponent.
+     * @param kingSquare The square of the king of the player.
+     * @return The new number of moves in the array.
+     */
+    private static int addCastlingMoves(BitBoard position, int[] moves, int count, ChessPlayer us,
+            ChessPlayer them, int kingSquare)
+    {
+        int rights = position.getCastlingRights();
+        int row = (us == ChessPlayer.white) ? 0 : SIZE_OF_BOARD - 1;
+        int kingSide = (us == ChessPlayer.white) ? BitBoard.WHITE_KING_SIDE : BitBoard.BLACK_KING_SIDE;
+        int queenSide = (us == ChessPlayer.white) ? BitBoard.WHITE_QUEEN_SIDE : BitBoard.BLACK_QUEEN_SIDE;
+
+        //castling rights are only kept while the king is on its starting square
+        if((rights & (kingSide | queenSide)) == 0 || kingSquare != BitBoard.getSquare(row, 4))
+        {
+            return count;
+        }
+
+        if((rights & kingSide) != 0)
+        {
+            count = addCastlingMove(position, moves, count, us, them, kingSquare,
+                    BitBoard.getSquare(row, SIZE_OF_BOARD - 1), 1);
+        }
+
+        if((rights & queenSide) != 0)
+        {
+            count = addCastlingMove(position, moves, count, us, them, kingSquare,
+                    BitBoard.getSquare(row, 0), -1);
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes a castling move into the array if it is legal: the rook must be
+     * in the corner, the squares between the king and the rook must be
+     * empty, and the king must not pass over or land on an attacked square.
+     * @param position The board.
+     * @param moves The move array.
+     * @param count The number of moves already in the array.
+     * @param us The player who castles.
+     * @param them The opponent.
+     * @param kingSquare The square of the king.
+     * @param rookSquare The square of the rook.
+     * @param direction 1 if the king moves towards larger columns, -1 if not.
+     * @return The new number of moves in the array.
+     */
+    private static int addCastlingMove(BitBoard position, int[] moves, int count, ChessPlayer us,
+            ChessPlayer them, int kingSquare, int rookSquare, int direction)
+    {
+        long occupied = position.getOccupied();
+
+        if(position.getPieceCode(rookSquare) != BitBoard.pieceCode(us, PieceType.rook) ||
+                (occupied & between(kingSquare, rookSquare)) != 0)
+        {
+            return count;
+        }
+
+        int passedSquare = kingSquare + direction;
+        int landingSquare = kingSquare + 2 * direction;
+        if(position.attackers(passedSquare, them, occupied) != 0 ||
+                position.attackers(landingSquare, them, occupied) != 0)
+        {
+            return count;
+        }
+
+        moves[count++] = Move.create(kingSquare, landingSquare, null, Move.CASTLE);
+        return count;
+    }
+
+    /**
+     * Finds the pieces of the given player that are pinned to their king,
+     * meaning they are the only piece between the king and an enemy rook,
+     * bishop or queen that could otherwise attack the king.
+     * @param position The board.
+     * @param us The player whose pinned pieces we want.
+     * @param them The opponent.
+     * @param kingSquare The square of the king of the player.
+     * @return A bitboard of the pinned pieces.
+     */
+    private static long pinnedPieces(BitBoard position, ChessPlayer us, ChessPlayer them, int kingSquare)
+    {
+        long occupied = position.getOccupied();
+        long own = position.getPlayerPieces(us);
+        long queens = position.getPieces(them, PieceType.queen);
+
+        //enemy sliders that would attack the king on an empty board
+        long snipers = (SlidingAttacks.rookAttacks(kingSquare, 0)
+                & (position.getPieces(them, PieceType.rook) | queens))
+                | (SlidingAttacks.bishopAttacks(kingSquare, 0)
+                & (position.getPieces(them, PieceType.bishop) | queens));
+
+        long pinned = 0;
+        while(snipers != 0)
+        {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = between(kingSquare, sniper) & occupied;
+            if(Long.bitCount(blockers) == 1)
+            {
+                pinned |= blockers & own;
+            }
+        }
+
+        return pinned;
+    }
+
+    /**
+     * Gets the squares a knight, bishop, rook or queen attacks.
+     * @param code The piece code.
+     * @param square The square of the piece.
+     * @param occupied The occupied squares of the board.
+     * @return A bitboard of the attacked squares.
+     */
+    private static long pieceAttacks(int code, int square, long occupied)
+    {
+        switch(TYPES[code % TYPES.length])
+        {
+            case queen:
+                return SlidingAttacks.queenAttacks(square, occupied);
+            case rook:
+                return SlidingAttacks.rookAttacks(square, occupied);
+            case bishop:
+                return SlidingAttacks.bishopAttacks(square, occupied);
+            default:
+                return BitBoard.knightAttacks(square);
+        }
+    }
+
+    /**
+     * Writes a pawn move into the array. A move to the last row is written
+     * once for each type the pawn can be promoted to.
+     * @param moves The move array.
+     * @param count The number of moves already in the array.
+     * @param from The square the pawn moves from.
+     * @param to The square the pawn moves to.
+     * @param lastRow The row on which the pawn is promoted.
+     * @param flags The flags of the move.
+     * @return The new number of moves in the array.
+     */
+    private static int addPawnMove(int[] moves, int count, int from, int to, int lastRow, int flags)
+    {
+        if(to / SIZE_OF_BOARD == lastRow)
+        {
+            for(PieceType promotion : PROMOTIONS)
+            {
+                moves[count++] = Move.create(from, to, promotion, flags);
+            }
+        }
+        else
+        {
+            moves[count++] = Move.create(from, to, null, flags);
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes a move into the array, flagging it as a capture if it lands on
+     * an enemy piece.
+     * @param moves The move array.
+     * @param count The number of moves already in the array.
+     * @param from The square the piece moves from.
+     * @param to The square the piece moves to.
+     * @param enemy The pieces of the opponent.
+     * @param flags Other flags of the move.
+     * @return The new number of moves in the array.
+     */
+    private static int addMove(int[] moves, int count, int from, int to, long enemy, int flags)
+    {
+        if((enemy & (1L << to)) != 0)
+        {
+            flags |= Move.CAPTURE;
+        }
+
+        moves[count++] = Move.create(from, to, null, flags);
+        return count;
+    }
+}
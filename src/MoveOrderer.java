@@ -0,0 +1,279 @@
+import java.util.Arrays;
+
+/**
+ * Class puts the moves of a position in the order the search should try
+ * them. Alpha-beta search can only skip the moves of a position once it has
+ * found a good enough move, so the sooner the best move is tried, the fewer
+ * positions are searched.
+ *
+ * The move from the transposition table is tried first. Captures and
+ * promotions come next, ordered by most valuable victim, least valuable
+ * attacker: taking a queen with a pawn before taking a pawn with a queen.
+ * Then come the quiet moves that refuted other moves at the same ply (the
+ * killer moves), the move that last refuted the previous move (the counter
+ * move), and the other quiet moves ordered by how often they refuted moves
+ * anywhere in the tree (the history table). Captures that lose material,
+ * according to the static exchange evaluation, are tried last.
+ *
+ * The tables are plain arrays owned by one search worker, so no locks are
+ * needed.
+ * @version 1.0
+ */
+public class MoveOrderer
+{
+    /**Scores of the kinds of moves. The score of a capture is added to its
+     * base, and the history score of a quiet move is always below the
+     * counter move.*/
+    private static final int HASH_MOVE_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int FIRST_KILLER_SCORE = 90_000;
+    private static final int SECOND_KILLER_SCORE = 89_000;
+    private static final int COUNTER_MOVE_SCORE = 88_000;
+    private static final int LOSING_CAPTURE_SCORE = -200_000;
+
+    /**History scores are halved once one gets this large, so that recent
+     * cutoffs count more than old ones and scores stay below the counter
+     * move.*/
+    private static final int MAX_HISTORY = 80_000;
+
+    /**The number of squares on the board.*/
+    private static final int SQUARES = 64;
+
+    /**The scores of the moves of each ply, at the same index as the move.*/
+    private final int[][] scores = new int[SearchWorker.MAX_PLY][MoveGenerator.MAX_MOVES];
+
+    /**Two killer moves for each ply, the most recent first.*/
+    private final int[][] killers = new int[SearchWorker.MAX_PLY][2];
+
+    /**The butterfly history table: how much each quiet move of each player,
+     * indexed by the squares it moves from and to, has caused cutoffs.*/
+    private final int[][][] history = new int[2][SQUARES][SQUARES];
+
+    /**The quiet move that last refuted each move, indexed by the squares
+     * the refuted move went from and to.*/
+    private final int[][] counterMoves = new int[SQUARES][SQUARES];
+
+    /**
+     * Gives a score to each move of a position, to be used by selectMove.
+     * @param board The board, in the position the moves are for.
+     * @param moves The moves.
+     * @param moveCount The number of moves.
+     * @param ply The ply of the position.
+     * @param hashMove The move from the transposition table, or Move.NONE.
+     * @param previousMove The move that led to the position, or Move.NONE.
+     */
+    public void scoreMoves(ChessBoard board, int[] moves, int moveCount, int ply,
+            int hashMove, int previousMove)
+    {
+        int[] plyScores = scores[ply];
+        int side = board.getSideToMove().ordinal();
+        int counterMove = (previousMove == Move.NONE) ? Move.NONE :
+                counterMoves[Move.getFrom(previousMove)][Move.getTo(previousMove)];
+
+        for(int i = 0; i < moveCount; i++)
+        {
+            int move = moves[i];
+
+            if(move == hashMove)
+            {
+                plyScores[i] = HASH_MOVE_SCORE;
+            }
+            else if(Move.isCapture(move) || Move.isPromotion(move))
+            {
+                int base = (StaticExchange.evaluate(board, move) < 0) ? LOSING_CAPTURE_SCORE : CAPTURE_SCORE;
+                plyScores[i] = base + captureScore(board, move);
+            }
+            else if(move == killers[ply][0])
+            {
+                plyScores[i] = FIRST_KILLER_SCORE;
+            }
+            else if(move == killers[ply][1])
+            {
+                plyScores[i] = SECOND_KILLER_SCORE;
+            }
+            else if(move == counterMove)
+            {
+                plyScores[i] = COUNTER_MOVE_SCORE;
+            }
+            else
+            {
+                plyScores[i] = history[side][Move.getFrom(move)][Move.getTo(move)];
+            }
+        }
+    }
+
+    /**
+     * Moves the move with the best score among the ones not yet tried to the
+     * given index. Picking the moves one at a time is cheaper than sorting
+     * them all, since most positions are cut off after a few moves.
+     * @param moves The moves, scored with scoreMoves.
+     * @param index The index of the next move to try.
+     * @param moveCount The number of moves.
+     * @param ply The ply of the position.
+     * @return The move to try next.
+     */
+    public int selectMove(int[] moves, int index, int moveCount, int ply)
+    {
+        int[] plyScores = scores[ply];
+        int best = index;
+
+        for(int i = index + 1; i < moveCount; i++)
+        {
+            if(plyScores[i] > plyScores[best])
+            {
+                best = i;
+            }
+        }
+
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+
+        int score = plyScores[best];
+        plyScores[best] = plyScores[index];
+        plyScores[index] = score;
+
+        return move;
+    }
+
+    /**
+     * Tells you if a move was put after the hash move, the good captures, the
+     * killer moves and the counter move. Such moves are the least likely to
+     * be best, so the search may look at them less deeply.
+     * @param ply The ply of the position.
+     * @param index The index the move was selected to by selectMove.
+     * @return True if the move was ordered by its history score, or is a
+     * losing capture.
+     */
+    public boolean isOrderedLate(int ply, int index)
+    {
+        return scores[ply][index] < COUNTER_MOVE_SCORE;
+    }
+
+    /**
+     * Learns from a quiet move that caused a cutoff: it becomes a killer of
+     * its ply and the counter move of the previous move, and its history
+     * score grows while the scores of the quiet moves tried before it
+     * shrink.
+     * @param board The board, in the position the move was played from.
+     * @param moves The moves of the position, in the order they were tried.
+     * @param index The index of the move that caused the cutoff.
+     * @param ply The ply of the position.
+     * @param depth The remaining depth of the position.
+     * @param previousMove The move that led to the position, or Move.NONE.
+     */
+    public void updateCutoff(ChessBoard board, int[] moves, int index, int ply, int depth,
+            int previousMove)
+    {
+        int move = moves[index];
+        if(Move.isCapture(move) || Move.isPromotion(move))
+        {
+            return;
+        }
+
+        if(killers[ply][0] != move)
+        {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        if(previousMove != Move.NONE)
+        {
+            counterMoves[Move.getFrom(previousMove)][Move.getTo(previousMove)] = move;
+        }
+
+        int side = board.getSideToMove().ordinal();
+        int bonus = depth * depth;
+        addHistory(side, move, bonus);
+
+        for(int i = 0; i < index; i++)
+        {
+            if(!Move.isCapture(moves[i]) && !Move.isPromotion(moves[i]))
+            {
+                addHistory(side, moves[i], -bonus);
+            }
+        }
+    }
+
+    /**
+     * Forgets the killer moves, history and counter moves, before a search
+     * of an unrelated position.
+     */
+    public void clear()
+    {
+        for(int ply = 0; ply < killers.length; ply++)
+        {
+            killers[ply][0] = Move.NONE;
+            killers[ply][1] = Move.NONE;
+        }
+
+        for(int from = 0; from < SQUARES; from++)
+        {
+            Arrays.fill(history[0][from], 0);
+            Arrays.fill(history[1][from], 0);
+            Arrays.fill(counterMoves[from], Move.NONE);
+        }
+    }
+
+    /**
+     * Gets the most valuable victim, least valuable attacker score of a
+     * capture or promotion. The value of the captured piece counts most, the
+     * value of the capturing piece breaks ties, and a promotion adds the value
+     * the pawn gains.
+     * @param board The board.
+     * @param move The move.
+     * @return The score, at least 0.
+     */
+    private static int captureScore(ChessBoard board, int move)
+    {
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int score = 0;
+
+        if(Move.isEnPassant(move))
+        {
+            score += 10 * Evaluation.pieceValue(PieceType.pawn);
+        }
+        else if(Move.isCapture(move))
+        {
+            score += 10 * Evaluation.pieceValue(board.getPiece(to / 8, to % 8).getType());
+        }
+
+        PieceType promotion = Move.getPromotion(move);
+        if(promotion != null)
+        {
+            score += 10 * (Evaluation.pieceValue(promotion) - Evaluation.pieceValue(PieceType.pawn));
+        }
+
+        //the king is worth nothing in the evaluation, but should capture last
+        PieceType attacker = board.getPiece(from / 8, from % 8).getType();
+        int attackerValue = (attacker == PieceType.king) ? 1000 : Evaluation.pieceValue(attacker);
+
+        return score + 1000 - attackerValue / 10;
+    }
+
+    /**
+     * Changes the history score of a quiet move, halving the whole table of
+     * the player when a score gets too large.
+     * @param side The ordinal of the player.
+     * @param move The move.
+     * @param amount The amount to add, which may be negative.
+     */
+    private void addHistory(int side, int move, int amount)
+    {
+        int[] row = history[side][Move.getFrom(move)];
+        int to = Move.getTo(move);
+        row[to] += amount;
+
+        if(Math.abs(row[to]) >= MAX_HISTORY)
+        {
+            for(int from = 0; from < SQUARES; from++)
+            {
+                for(int square = 0; square < SQUARES; square++)
+                {
+                    history[side][from][square] /= 2;
+                }
+            }
+        }
+    }
+}
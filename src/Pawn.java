@@ -71,6 +71,15 @@ public class Pawn extends ChessPiece
         return moved2Spaces;
     }
     
+    /**Sets the flag telling if the pawn has just moved by 2 spaces. The 
+     * board clears it once the next move is made, since the pawn can only be
+     * captured en passant right after it moved 2 spaces.
+     * @param moved2Spaces The new value of the flag.*/
+    public void setMoved2Spaces(boolean moved2Spaces)
+    {
+        this.moved2Spaces = moved2Spaces;
+    }
+    
     /**
      * Does all the necessary changes to this piece's fields to reflect the 
      * move on the chess board. It changes the row and column of the piece and
@@ -104,7 +113,7 @@ public class Pawn extends ChessPiece
             moved2Spaces = false;
         }
         
-        super.move(row, column);
+        super.move(newRow, newColumn);
     }
     
     /**
@@ -137,7 +146,7 @@ public class Pawn extends ChessPiece
         //move forward 2 spaces if its the first move
         //the final postion and the square the pawn jumps over must be empty
         else if (this.row+2*direction==row && column==this.column && !hasMoved && 
-                board.getPiece(row, column)==null && board.getPiece(row - 1, column)==null)
+                board.getPiece(row, column)==null && board.getPiece(row - direction, column)==null)
         {
             return true;
         }
@@ -0,0 +1,136 @@
+/**
+ * Class caches the pawn structure terms of the evaluation, keyed by the
+ * pawn hash of the position. The pawns change in only a few of the moves
+ * searched, so the same pawn structure is evaluated over and over, and
+ * almost every lookup finds its entry.
+ *
+ * Each entry holds the middlegame and endgame scores of the pawn structure
+ * for the white player, and the passed pawns of both players, which the
+ * evaluation uses for the terms that also depend on the other pieces. An
+ * entry is replaced by the newest pawn structure that maps to it.
+ *
+ * A table is meant to be used by one search thread only, so it has no
+ * locks: each search worker has its own.
+ * @version 1.0
+ */
+public class PawnHashTable
+{
+    /**The number of entries of a table if none is given.*/
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+
+    /**The pawn hash of the structure held in each entry. The arrays start
+     * out zeroed, which is a valid entry for the structure without pawns:
+     * its hash is 0, it has no score and no passed pawns.*/
+    private final long[] keys;
+
+    /**The scores of the pawn structure of each entry, for the white
+     * player.*/
+    private final int[] middlegameScores;
+    private final int[] endgameScores;
+
+    /**The passed pawns of each entry, for the white and the black player.*/
+    private final long[] whitePassedPawns;
+    private final long[] blackPassedPawns;
+
+    /**Entries - 1, to turn a hash into an index.*/
+    private final int mask;
+
+    /**The number of lookups that found their entry, and that did not.*/
+    private long hits;
+    private long misses;
+
+    /**
+     * Makes a new table.
+     * @param entries The number of entries, a power of two.
+     * @throws IllegalArgumentException Thrown if the number of entries is not
+     * a power of two.
+     */
+    public PawnHashTable(int entries) throws IllegalArgumentException
+    {
+        if(entries < 1 || Integer.bitCount(entries) != 1)
+        {
+            throw new IllegalArgumentException("The number of entries must be a power of two!");
+        }
+
+        keys = new long[entries];
+        middlegameScores = new int[entries];
+        endgameScores = new int[entries];
+        whitePassedPawns = new long[entries];
+        blackPassedPawns = new long[entries];
+        mask = entries - 1;
+    }
+
+    /**
+     * Finds the entry of the pawn structure of a board, and evaluates the
+     * structure into it if it is not there yet.
+     * @param board The board.
+     * @return The index of the entry, to be given to the getters.
+     */
+    public int lookup(ChessBoard board)
+    {
+        long key = board.getPawnHash();
+        int index = (int)key & mask;
+
+        if(keys[index] == key)
+        {
+            hits++;
+            return index;
+        }
+
+        misses++;
+        long whitePawns = board.getPieces(ChessPlayer.white, PieceType.pawn);
+        long blackPawns = board.getPieces(ChessPlayer.black, PieceType.pawn);
+        long whitePassed = Evaluation.passedPawns(whitePawns, blackPawns, ChessPlayer.white);
+        long blackPassed = Evaluation.passedPawns(blackPawns, whitePawns, ChessPlayer.black);
+
+        keys[index] = key;
+        middlegameScores[index] = Evaluation.pawnStructureScore(whitePawns, blackPawns,
+                whitePassed, blackPassed, false);
+        endgameScores[index] = Evaluation.pawnStructureScore(whitePawns, blackPawns,
+                whitePassed, blackPassed, true);
+        whitePassedPawns[index] = whitePassed;
+        blackPassedPawns[index] = blackPassed;
+        return index;
+    }
+
+    /**
+     * Gets the middlegame score of the pawn structure of an entry.
+     * @param index The index given by lookup.
+     * @return The score for the white player.
+     */
+    public int getMiddlegameScore(int index)
+    {
+        return middlegameScores[index];
+    }
+
+    /**
+     * Gets the endgame score of the pawn structure of an entry.
+     * @param index The index given by lookup.
+     * @return The score for the white player.
+     */
+    public int getEndgameScore(int index)
+    {
+        return endgameScores[index];
+    }
+
+    /**
+     * Gets the passed pawns of one player in an entry.
+     * @param index The index given by lookup.
+     * @param player The player.
+     * @return A bitboard of the passed pawns of the player.
+     */
+    public long getPassedPawns(int index, ChessPlayer player)
+    {
+        return (player == ChessPlayer.white) ? whitePassedPawns[index] : blackPassedPawns[index];
+    }
+
+    /**
+     * Gets the share of the lookups that found their entry.
+     * @return The hit rate, between 0 and 1, or 0 if there were no lookups.
+     */
+    public double getHitRate()
+    {
+        long lookups = hits + misses;
+        return (lookups == 0) ? 0 : (double)hits / lookups;
+    }
+}
@@ -0,0 +1,477 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class counts the leaf nodes of the tree of legal moves from a position of a
+ * chess board down to a given depth, which is called perft. The counts of the
+ * standard positions are well known, so comparing against them checks that
+ * the move generation, making and taking back of moves are correct, and the
+ * time it takes measures how fast they are.
+ *
+ * Perft can keep the counts of the subtrees it has already walked in a hash
+ * table, keyed by the hash of the position and the depth, so that a position
+ * reached by different move orders is only counted once. Each entry is the
+ * key xored with the data and the data, like in the TranspositionTable, so
+ * the table can be shared by many threads.
+ *
+ * The subtrees of the moves are independent of each other, so perft can also
+ * be split over the threads of a ForkJoinPool: every move of the first two
+ * plies becomes a task with its own copy of the board, and the counts of the
+ * tasks are summed in LongAdders.
+ * @version 1.0
+ */
+public class Perft
+{
+    /**The largest depth that can be searched.*/
+    public static final int MAX_DEPTH = 64;
+
+    /**Each entry of the hash table takes two longs.*/
+    private static final int ENTRY_BYTES = 16;
+
+    /**The data of an entry is the count shifted left by this many bits, with
+     * the depth in the low bits.*/
+    private static final int COUNT_SHIFT = 8;
+
+    /**Parallel perft makes a task for every move of this many plies from the
+     * position, and counts the subtrees below them in one thread.*/
+    private static final int SPLIT_PLIES = 2;
+
+    /**Subtrees shallower than this are not split into more tasks, since
+     * copying the boards would cost more than counting them.*/
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    /**The board the moves are made on.*/
+    private final ChessBoard board;
+
+    /**One list of moves for each depth, so that no arrays are made while
+     * counting.*/
+    private final int[][] moveLists;
+
+    /**The hash table of subtree counts, or null if it is not used.*/
+    private final long[] table;
+
+    /**The number of entries of the hash table minus one.*/
+    private final int indexMask;
+
+    /**
+     * Makes a new perft counter for the position of a board.
+     * @param board The board. Its position is changed while counting, and is
+     * the same as before when counting is over.
+     * @param hashMegabytes The size of the hash table of subtree counts in
+     * megabytes, or 0 to count without a hash table.
+     * @throws IllegalArgumentException Thrown if the size is negative or too
+     * large for one array.
+     */
+    public Perft(ChessBoard board, int hashMegabytes) throws IllegalArgumentException
+    {
+        this(board, createTable(hashMegabytes), MAX_DEPTH);
+    }
+
+    /**
+     * Makes a new perft counter that uses the given hash table.
+     * @param board The board.
+     * @param table The hash table, or null.
+     * @param maxDepth The largest depth that will be counted.
+     */
+    private Perft(ChessBoard board, long[] table, int maxDepth)
+    {
+        this.board = board;
+        this.table = table;
+        this.moveLists = new int[maxDepth][MoveGenerator.MAX_MOVES];
+        this.indexMask = (table == null) ? 0 : table.length / 2 - 1;
+    }
+
+    /**
+     * Counts the leaf nodes of the tree of legal moves of the given depth.
+     * @param depth The depth, at least 1.
+     * @return The number of leaf nodes.
+     * @throws IllegalArgumentException Thrown if the depth is not between 1
+     * and MAX_DEPTH.
+     */
+    public long perft(int depth) throws IllegalArgumentException
+    {
+        checkDepth(depth);
+        return count(depth);
+    }
+
+    /**
+     * Counts the leaf nodes of the tree of legal moves of the given depth
+     * separately for each legal move of the position, which helps to find
+     * the move for which a count is wrong.
+     * @param depth The depth, at least 1.
+     * @param moves An array the legal moves of the position are written to,
+     * with room for MoveGenerator.MAX_MOVES moves.
+     * @param counts An array the count of the subtree of each move is written
+     * to, at the same index as the move.
+     * @return The number of legal moves of the position.
+     * @throws IllegalArgumentException Thrown if the depth is not between 1
+     * and MAX_DEPTH.
+     */
+    public int divide(int depth, int[] moves, long[] counts) throws IllegalArgumentException
+    {
+        checkDepth(depth);
+        int moveCount = board.generateMoves(moves);
+
+        for(int i = 0; i < moveCount; i++)
+        {
+            if(depth == 1)
+            {
+                counts[i] = 1;
+            }
+            else
+            {
+                board.makeMove(moves[i]);
+                counts[i] = count(depth - 1);
+                board.unmakeMove();
+            }
+        }
+
+        return moveCount;
+    }
+
+    /**
+     * Counts the leaf nodes of the tree of legal moves of the given depth
+     * with the threads of a fork/join pool. The hash table, if there is one,
+     * is shared by all the threads.
+     * @param depth The depth, at least 1.
+     * @param pool The pool that runs the tasks.
+     * @return The number of leaf nodes.
+     * @throws IllegalArgumentException Thrown if the depth is not between 1
+     * and MAX_DEPTH.
+     */
+    public long parallelPerft(int depth, ForkJoinPool pool) throws IllegalArgumentException
+    {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        long[] counts = new long[MoveGenerator.MAX_MOVES];
+        int moveCount = parallelDivide(depth, moves, counts, pool);
+
+        long nodes = 0;
+        for(int i = 0; i < moveCount; i++)
+        {
+            nodes += counts[i];
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Counts the leaf nodes of the subtree of each legal move like divide,
+     * but with the threads of a fork/join pool.
+     * @param depth The depth, at least 1.
+     * @param moves An array the legal moves of the position are written to,
+     * with room for MoveGenerator.MAX_MOVES moves.
+     * @param counts An array the count of the subtree of each move is written
+     * to, at the same index as the move.
+     * @param pool The pool that runs the tasks.
+     * @return The number of legal moves of the position.
+     * @throws IllegalArgumentException Thrown if the depth is not between 1
+     * and MAX_DEPTH.
+     */
+    public int parallelDivide(int depth, int[] moves, long[] counts, ForkJoinPool pool)
+            throws IllegalArgumentException
+    {
+        checkDepth(depth);
+        int moveCount = board.generateMoves(moves);
+
+        if(depth == 1)
+        {
+            for(int i = 0; i < moveCount; i++)
+            {
+                counts[i] = 1;
+            }
+            return moveCount;
+        }
+
+        //each move gets its own board and its own counter
+        SubtreeTask[] tasks = new SubtreeTask[moveCount];
+        LongAdder[] adders = new LongAdder[moveCount];
+        for(int i = 0; i < moveCount; i++)
+        {
+            ChessBoard copy = new ChessBoard(board);
+            copy.applyMove(moves[i]);
+            adders[i] = new LongAdder();
+            tasks[i] = new SubtreeTask(copy, depth - 1, 1, adders[i]);
+        }
+
+        pool.invoke(new RecursiveAction()
+        {
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+
+        for(int i = 0; i < moveCount; i++)
+        {
+            counts[i] = adders[i].sum();
+        }
+
+        return moveCount;
+    }
+
+    /**
+     * Counts the leaf nodes below the current position. At depth 1 the number
+     * of legal moves is the count, so the last moves are never made.
+     * @param depth The depth, at least 1.
+     * @return The number of leaf nodes.
+     */
+    private long count(int depth)
+    {
+        int[] moves = moveLists[depth - 1];
+        int moveCount = board.generateMoves(moves);
+
+        if(depth == 1)
+        {
+            return moveCount;
+        }
+
+        long hash = board.getHash();
+        if(table != null)
+        {
+            long stored = probe(hash, depth);
+            if(stored >= 0)
+            {
+                return stored;
+            }
+        }
+
+        long nodes = 0;
+        for(int i = 0; i < moveCount; i++)
+        {
+            board.makeMove(moves[i]);
+            nodes += count(depth - 1);
+            board.unmakeMove();
+        }
+
+        if(table != null)
+        {
+            store(hash, depth, nodes);
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Looks up the count of a position in the hash table.
+     * @param hash The hash of the position.
+     * @param depth The depth of the subtree.
+     * @return The count, or -1 if it is not in the table.
+     */
+    private long probe(long hash, int depth)
+    {
+        int index = ((int)hash & indexMask) << 1;
+        long data = table[index + 1];
+        long key = table[index];
+
+        if(data != 0 && (key ^ data) == hash && (int)(data & 0xFF) == depth)
+        {
+            return data >>> COUNT_SHIFT;
+        }
+        else
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Stores the count of a position in the hash table, replacing whatever
+     * was in its entry.
+     * @param hash The hash of the position.
+     * @param depth The depth of the subtree.
+     * @param nodes The count.
+     */
+    private void store(long hash, int depth, long nodes)
+    {
+        int index = ((int)hash & indexMask) << 1;
+        long data = (nodes << COUNT_SHIFT) | depth;
+
+        table[index] = hash ^ data;
+        table[index + 1] = data;
+    }
+
+    /**
+     * A task that counts the leaf nodes of the subtree below a position of
+     * its own board, either by itself or by splitting it into one task for
+     * each move.
+     */
+    private class SubtreeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**The board of the task, which no other task uses.*/
+        private final ChessBoard board;
+
+        /**The depth of the subtree, at least 1.*/
+        private final int depth;
+
+        /**The number of plies between the position of the task and the
+         * position perft was started from.*/
+        private final int ply;
+
+        /**The counter the count of the subtree is added to.*/
+        private final LongAdder nodes;
+
+        /**
+         * Makes a new task.
+         * @param board The board of the task.
+         * @param depth The depth of the subtree.
+         * @param ply The ply of the position of the task.
+         * @param nodes The counter the count is added to.
+         */
+        private SubtreeTask(ChessBoard board, int depth, int ply, LongAdder nodes)
+        {
+            this.board = board;
+            this.depth = depth;
+            this.ply = ply;
+            this.nodes = nodes;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(ply >= SPLIT_PLIES || depth < MIN_SPLIT_DEPTH)
+            {
+                nodes.add(new Perft(board, table, depth).count(depth));
+                return;
+            }
+
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int moveCount = board.generateMoves(moves);
+
+            SubtreeTask[] tasks = new SubtreeTask[moveCount];
+            for(int i = 0; i < moveCount; i++)
+            {
+                ChessBoard copy = new ChessBoard(board);
+                copy.applyMove(moves[i]);
+                tasks[i] = new SubtreeTask(copy, depth - 1, ply + 1, nodes);
+            }
+
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Makes an empty hash table of subtree counts.
+     * @param megabytes The size of the table in megabytes, or 0 for none.
+     * @return The table, or null if the size is 0.
+     * @throws IllegalArgumentException Thrown if the size is negative or too
+     * large for one array.
+     */
+    private static long[] createTable(int megabytes) throws IllegalArgumentException
+    {
+        if(megabytes < 0 || megabytes > 8192)
+        {
+            throw new IllegalArgumentException("The size of the hash table must be" +
+                " between 0 and 8192 megabytes!");
+        }
+
+        if(megabytes == 0)
+        {
+            return null;
+        }
+
+        long entries = Long.highestOneBit((long)megabytes * 1024 * 1024 / ENTRY_BYTES);
+        return new long[(int)(entries * 2)];
+    }
+
+    /**
+     * Checks that a depth can be searched.
+     * @param depth The depth.
+     * @throws IllegalArgumentException Thrown if the depth is not between 1
+     * and MAX_DEPTH.
+     */
+    private static void checkDepth(int depth) throws IllegalArgumentException
+    {
+        if(depth < 1 || depth > MAX_DEPTH)
+        {
+            throw new IllegalArgumentException("The depth must be between 1 and " +
+                MAX_DEPTH + "!");
+        }
+    }
+
+    /**
+     * Runs perft from the starting position and prints the count, the time
+     * and the number of nodes per second. The arguments are the depth,
+     * optionally followed by "divide" to print the count of each move, and
+     * "hash" and a size in megabytes to use a hash table, and "threads"
+     * and a number of threads to count in parallel.
+     * @param args The arguments.
+     */
+    public static void main(String[] args)
+    {
+        if(args.length < 1)
+        {
+            System.out.println("Usage: java Perft <depth> [divide] [hash <megabytes>]" +
+                " [threads <count>] [fen \"<position>\"]");
+            return;
+        }
+
+        int depth = Integer.parseInt(args[0]);
+        boolean divide = false;
+        int hashMegabytes = 0;
+        int threads = 1;
+        ChessBoard board = new ChessBoard();
+
+        for(int i = 1; i < args.length; i++)
+        {
+            if(args[i].equals("divide"))
+            {
+                divide = true;
+            }
+            else if(args[i].equals("hash") && i + 1 < args.length)
+            {
+                hashMegabytes = Integer.parseInt(args[++i]);
+            }
+            else if(args[i].equals("threads") && i + 1 < args.length)
+            {
+                threads = Integer.parseInt(args[++i]);
+            }
+            else if(args[i].equals("fen") && i + 1 < args.length)
+            {
+                board = ChessBoard.fromFen(args[++i]);
+            }
+            else
+            {
+                System.out.println("Unknown argument: " + args[i]);
+                return;
+            }
+        }
+
+        Perft perft = new Perft(board, hashMegabytes);
+        ForkJoinPool pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+        long start = System.nanoTime();
+        long nodes;
+
+        if(divide)
+        {
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            long[] counts = new long[MoveGenerator.MAX_MOVES];
+            int moveCount = (pool != null) ? perft.parallelDivide(depth, moves, counts, pool) :
+                    perft.divide(depth, moves, counts);
+
+            nodes = 0;
+            for(int i = 0; i < moveCount; i++)
+            {
+                System.out.println(Move.toString(moves[i]) + ": " + counts[i]);
+                nodes += counts[i];
+            }
+            System.out.println("Moves: " + moveCount);
+        }
+        else
+        {
+            nodes = (pool != null) ? perft.parallelPerft(depth, pool) : perft.perft(depth);
+        }
+
+        if(pool != null)
+        {
+            pool.shutdown();
+        }
+
+        long nanos = Math.max(1, System.nanoTime() - start);
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Time: " + nanos / 1_000_000 + " ms");
+        System.out.println("Nodes per second: " + (long)(nodes * 1e9 / nanos));
+    }
+}
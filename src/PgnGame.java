@@ -0,0 +1,121 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class holds a game read from a PGN file: its tag pairs, its moves, packed
+ * as described in the Move class, and its result. If one of the moves could
+ * not be read or is not legal, the game keeps the moves before it and the
+ * reason it was rejected.
+ * @version 1.0
+ */
+public class PgnGame
+{
+    /**The number of the game in the file, counting from 1.*/
+    private final long number;
+
+    /**The tag pairs, in the order they appear in the file.*/
+    private final Map<String, String> tags;
+
+    /**The legal moves of the game, from the starting position.*/
+    private final int[] moves;
+
+    /**The result at the end of the moves: "1-0", "0-1", "1/2-1/2" or "*".*/
+    private final String result;
+
+    /**Why the game was rejected, or null if all its moves are legal.*/
+    private final String error;
+
+    /**
+     * Makes a new game.
+     * @param number The number of the game in the file.
+     * @param tags The tag pairs. The map is kept, not copied.
+     * @param moves The moves. The array is kept, not copied.
+     * @param result The result, or "*" if none was given.
+     * @param error Why the game was rejected, or null.
+     */
+    public PgnGame(long number, LinkedHashMap<String, String> tags, int[] moves, String result,
+            String error)
+    {
+        this.number = number;
+        this.tags = tags;
+        this.moves = moves;
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * Gets the number of the game in the file.
+     * @return The number, counting from 1.
+     */
+    public long getNumber()
+    {
+        return number;
+    }
+
+    /**
+     * Gets the value of a tag, like "White" or "Event".
+     * @param name The name of the tag.
+     * @return The value, or null if the game does not have the tag.
+     */
+    public String getTag(String name)
+    {
+        return tags.get(name);
+    }
+
+    /**
+     * Gets all the tag pairs.
+     * @return A map that can not be changed, in the order of the file.
+     */
+    public Map<String, String> getTags()
+    {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * Gets the moves of the game.
+     * @return A copy of the moves. They can be played with the applyMove
+     * method of a board set up like the start of the game.
+     */
+    public int[] getMoves()
+    {
+        return moves.clone();
+    }
+
+    /**
+     * Gets the number of moves of the game, counting the moves of both
+     * players.
+     * @return The number of plies.
+     */
+    public int getPlyCount()
+    {
+        return moves.length;
+    }
+
+    /**
+     * Gets the result of the game.
+     * @return "1-0", "0-1", "1/2-1/2" or "*".
+     */
+    public String getResult()
+    {
+        return result;
+    }
+
+    /**
+     * Tells you if the game could be read and all its moves are legal.
+     * @return True if the game is valid.
+     */
+    public boolean isValid()
+    {
+        return error == null;
+    }
+
+    /**
+     * Gets the reason the game was rejected.
+     * @return The reason, or null if the game is valid.
+     */
+    public String getError()
+    {
+        return error;
+    }
+}
@@ -0,0 +1,529 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * Class parses the bytes of one PGN game, as given by a PgnReader, and
+ * replays its moves on a ChessBoard. The moves are written in standard
+ * algebraic notation (SAN): "Nf3", "exd6", "Nbd7", "R1e2", "O-O-O",
+ * "e8=Q+". Each move is matched against the legal moves of the position, so
+ * a game whose moves are all found is a legal game.
+ *
+ * Comments, variations, numeric annotation glyphs ($1), move numbers,
+ * annotations like "!?" and the "e.p." written after en passant captures
+ * are skipped. If the game has a FEN tag it starts from that position.
+ *
+ * The tokens are read straight from the bytes, so apart from the tag values
+ * no strings are made. A parser keeps arrays it uses for every game, so it
+ * must be used by one thread only.
+ * @version 1.0
+ */
+public class PgnParser
+{
+    /**The result of a game that is unfinished or has no result.*/
+    public static final String NO_RESULT = "*";
+
+    /**The letters of the pieces in SAN, in the order of PieceType.*/
+    private static final String PIECE_LETTERS = "KQRBNP";
+
+    /**The piece types, by ordinal.*/
+    private static final PieceType[] TYPES = PieceType.values();
+
+    /**The legal moves of the position being replayed.*/
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+
+    /**The moves of the game being parsed, growing as needed.*/
+    private int[] gameMoves = new int[256];
+
+    /**The bytes of the tag value being read, without escapes.*/
+    private byte[] value = new byte[256];
+
+    /**
+     * Parses a game.
+     * @param text The bytes of the game.
+     * @param number The number of the game in the file, kept in the result.
+     * @return The game. If a move can not be read or is not legal, the game
+     * holds the moves before it and the reason, and is not valid.
+     */
+    public PgnGame parse(byte[] text, long number)
+    {
+        LinkedHashMap<String, String> tags = new LinkedHashMap<String, String>();
+        int index = parseTags(text, tags);
+        int moveCount = 0;
+        String result = NO_RESULT;
+        String error = null;
+
+        ChessBoard board;
+        String fen = tags.get("FEN");
+
+        try
+        {
+            board = (fen == null) ? new ChessBoard() : ChessBoard.fromFen(fen);
+        }
+        catch(IllegalArgumentException e)
+        {
+            return new PgnGame(number, tags, new int[0], result, "Bad FEN tag: " + e.getMessage());
+        }
+
+        int end = text.length;
+
+        while(index < end)
+        {
+            byte b = text[index];
+
+            if(PgnReader.isSpace(b) || b == ')')
+            {
+                index++;
+            }
+            else if(b == '{')
+            {
+                index = skipPast(text, index, '}');
+            }
+            else if(b == ';' || b == '%')
+            {
+                index = skipPast(text, index, '\n');
+            }
+            else if(b == '(')
+            {
+                index = skipVariation(text, index);
+            }
+            else if(b == '$')
+            {
+                index = skipDigits(text, index + 1);
+            }
+            else
+            {
+                int tokenEnd = tokenEnd(text, index);
+
+                if(isResult(text, index, tokenEnd))
+                {
+                    result = new String(text, index, tokenEnd - index, StandardCharsets.US_ASCII);
+                    break;
+                }
+
+                //a move number like "12." or "12..." can be written against its move
+                if(b >= '1' && b <= '9')
+                {
+                    int digitsEnd = skipDigits(text, index);
+
+                    if(digitsEnd == tokenEnd || text[digitsEnd] == '.')
+                    {
+                        index = digitsEnd;
+                        while(index < tokenEnd && text[index] == '.')
+                        {
+                            index++;
+                        }
+                        continue;
+                    }
+                }
+
+                if(isEnPassantMark(text, index, tokenEnd))
+                {
+                    index = tokenEnd;
+                    continue;
+                }
+
+                int move = findMove(board, text, index, tokenEnd);
+
+                if(move == Move.NONE)
+                {
+                    error = "Illegal or unreadable move " +
+                            new String(text, index, tokenEnd - index, StandardCharsets.UTF_8) +
+                            " at ply " + (moveCount + 1);
+                    break;
+                }
+
+                board.applyMove(move);
+
+                if(moveCount == gameMoves.length)
+                {
+                    gameMoves = Arrays.copyOf(gameMoves, moveCount * 2);
+                }
+                gameMoves[moveCount++] = move;
+                index = tokenEnd;
+            }
+        }
+
+        return new PgnGame(number, tags, Arrays.copyOf(gameMoves, moveCount), result, error);
+    }
+
+    /**
+     * Finds the legal move written by a SAN token.
+     * @param board The board, with the position the move is played in.
+     * @param text The bytes holding the token.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @return The move, or Move.NONE if the token is not a legal move, or
+     * fits more than one.
+     */
+    public int findMove(ChessBoard board, byte[] text, int start, int end)
+    {
+        //check, mate and annotation marks at the end say nothing about the move
+        while(end > start && isSuffix(text[end - 1]))
+        {
+            end--;
+        }
+        if(end - start < 2)
+        {
+            return Move.NONE;
+        }
+
+        int count = board.generateMoves(legalMoves);
+        ChessPlayer side = board.getSideToMove();
+
+        byte first = text[start];
+        if(first == 'O' || first == '0')
+        {
+            return findCastle(text, start, end, count);
+        }
+
+        PieceType type = PieceType.pawn;
+        int typeIndex = PIECE_LETTERS.indexOf(first);
+        if(typeIndex >= 0 && typeIndex != PieceType.pawn.ordinal())
+        {
+            type = TYPES[typeIndex];
+            start++;
+        }
+
+        //the promotion, as "e8=Q" or "e8Q"
+        PieceType promotion = null;
+        int promotionIndex = PIECE_LETTERS.indexOf(text[end - 1]);
+        if(type == PieceType.pawn && promotionIndex > 0 && promotionIndex < PieceType.pawn.ordinal())
+        {
+            promotion = TYPES[promotionIndex];
+            end--;
+            if(text[end - 1] == '=')
+            {
+                end--;
+            }
+        }
+
+        if(end - start < 2)
+        {
+            return Move.NONE;
+        }
+
+        int toColumn = text[end - 2] - 'a';
+        int toRow = text[end - 1] - '1';
+        if(!onBoard(toColumn) || !onBoard(toRow))
+        {
+            return Move.NONE;
+        }
+        int to = toRow * 8 + toColumn;
+
+        //what is left between the piece and the target: a column, a row, or both, and 'x'
+        int fromColumn = -1;
+        int fromRow = -1;
+        for(int i = start; i < end - 2; i++)
+        {
+            byte b = text[i];
+
+            if(b >= 'a' && b <= 'h')
+            {
+                fromColumn = b - 'a';
+            }
+            else if(b >= '1' && b <= '8')
+            {
+                fromRow = b - '1';
+            }
+            else if(b != 'x' && b != ':' && b != '-')
+            {
+                return Move.NONE;
+            }
+        }
+
+        long pieces = board.getPieces(side, type);
+        int found = Move.NONE;
+
+        for(int i = 0; i < count; i++)
+        {
+            int move = legalMoves[i];
+            int from = Move.getFrom(move);
+
+            if(Move.getTo(move) != to || (pieces & (1L << from)) == 0 ||
+                    Move.getPromotion(move) != promotion || Move.isCastle(move))
+            {
+                continue;
+            }
+            if((fromColumn >= 0 && from % 8 != fromColumn) || (fromRow >= 0 && from / 8 != fromRow))
+            {
+                continue;
+            }
+            if(found != Move.NONE)
+            {
+                return Move.NONE;
+            }
+            found = move;
+        }
+
+        return found;
+    }
+
+    /**
+     * Finds the castling move written by a token like "O-O" or "0-0-0".
+     * @param text The bytes holding the token.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token, without marks.
+     * @param count The number of legal moves in legalMoves.
+     * @return The move, or Move.NONE if the token is not a legal castling.
+     */
+    private int findCastle(byte[] text, int start, int end, int count)
+    {
+        int letters = 0;
+        for(int i = start; i < end; i++)
+        {
+            byte b = text[i];
+
+            if(b == 'O' || b == '0')
+            {
+                letters++;
+            }
+            else if(b != '-')
+            {
+                return Move.NONE;
+            }
+        }
+        if(letters != 2 && letters != 3)
+        {
+            return Move.NONE;
+        }
+
+        //the king goes to the g column on the king side and the c column on the queen side
+        int kingColumn = (letters == 2) ? 6 : 2;
+
+        for(int i = 0; i < count; i++)
+        {
+            int move = legalMoves[i];
+
+            if(Move.isCastle(move) && Move.getTo(move) % 8 == kingColumn)
+            {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Reads the tag pairs at the start of a game, like [White "Kasparov"].
+     * @param text The bytes of the game.
+     * @param tags The map the tags are put into.
+     * @return The index after the last tag.
+     */
+    private int parseTags(byte[] text, LinkedHashMap<String, String> tags)
+    {
+        int index = 0;
+        int end = text.length;
+
+        while(true)
+        {
+            while(index < end && PgnReader.isSpace(text[index]))
+            {
+                index++;
+            }
+            if(index == end || text[index] != '[')
+            {
+                return index;
+            }
+
+            int nameStart = ++index;
+            while(index < end && !PgnReader.isSpace(text[index]) && text[index] != '"' &&
+                    text[index] != ']')
+            {
+                index++;
+            }
+            String name = new String(text, nameStart, index - nameStart, StandardCharsets.US_ASCII);
+
+            while(index < end && text[index] != '"' && text[index] != ']')
+            {
+                index++;
+            }
+
+            int length = 0;
+            if(index < end && text[index] == '"')
+            {
+                index++;
+                while(index < end && text[index] != '"' && text[index] != '\n')
+                {
+                    if(text[index] == '\\' && index + 1 < end)
+                    {
+                        index++;
+                    }
+                    if(length == value.length)
+                    {
+                        value = Arrays.copyOf(value, length * 2);
+                    }
+                    value[length++] = text[index++];
+                }
+            }
+
+            index = skipPast(text, index, ']');
+            tags.put(name, new String(value, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Skips a variation in parentheses, with the variations inside it.
+     * @param text The bytes of the game.
+     * @param index The index of the opening parenthesis.
+     * @return The index after the closing parenthesis.
+     */
+    private static int skipVariation(byte[] text, int index)
+    {
+        int depth = 0;
+
+        while(index < text.length)
+        {
+            byte b = text[index];
+
+            if(b == '{')
+            {
+                index = skipPast(text, index, '}');
+                continue;
+            }
+            if(b == ';')
+            {
+                index = skipPast(text, index, '\n');
+                continue;
+            }
+
+            index++;
+            if(b == '(')
+            {
+                depth++;
+            }
+            else if(b == ')' && --depth == 0)
+            {
+                break;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Skips bytes up to and including the given one.
+     * @param text The bytes of the game.
+     * @param index The index to start at.
+     * @param last The byte to stop after.
+     * @return The index after that byte, or the end of the game.
+     */
+    private static int skipPast(byte[] text, int index, char last)
+    {
+        while(index < text.length && text[index] != last)
+        {
+            index++;
+        }
+        return Math.min(index + 1, text.length);
+    }
+
+    /**
+     * Skips digits.
+     * @param text The bytes of the game.
+     * @param index The index to start at.
+     * @return The index of the first byte that is not a digit.
+     */
+    private static int skipDigits(byte[] text, int index)
+    {
+        while(index < text.length && text[index] >= '0' && text[index] <= '9')
+        {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Finds the end of a token, at white space or at the start of a comment
+     * or variation.
+     * @param text The bytes of the game.
+     * @param index The index of the first byte of the token.
+     * @return The index after the last byte of the token.
+     */
+    private static int tokenEnd(byte[] text, int index)
+    {
+        while(index < text.length)
+        {
+            byte b = text[index];
+
+            if(PgnReader.isSpace(b) || b == '{' || b == '(' || b == ')' || b == ';')
+            {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Tells you if a token is a game result.
+     * @param text The bytes of the game.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @return True for "1-0", "0-1", "1/2-1/2" and "*".
+     */
+    private static boolean isResult(byte[] text, int start, int end)
+    {
+        return matches(text, start, end, "1-0") || matches(text, start, end, "0-1") ||
+                matches(text, start, end, "1/2-1/2") || matches(text, start, end, NO_RESULT);
+    }
+
+    /**
+     * Tells you if a token is the "e.p." some write after en passant
+     * captures.
+     * @param text The bytes of the game.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @return True for "e.p." and "ep", with or without a check mark.
+     */
+    private static boolean isEnPassantMark(byte[] text, int start, int end)
+    {
+        while(end > start && isSuffix(text[end - 1]))
+        {
+            end--;
+        }
+        return matches(text, start, end, "e.p.") || matches(text, start, end, "ep");
+    }
+
+    /**
+     * Tells you if a token is the given word.
+     * @param text The bytes of the game.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @param word The word, in ASCII.
+     * @return True if they are the same.
+     */
+    private static boolean matches(byte[] text, int start, int end, String word)
+    {
+        if(end - start != word.length())
+        {
+            return false;
+        }
+        for(int i = 0; i < word.length(); i++)
+        {
+            if(text[start + i] != word.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells you if a byte is a mark that can follow a move: check, mate,
+     * or an annotation.
+     * @param b The byte.
+     * @return True for '+', '#', '!' and '?'.
+     */
+    private static boolean isSuffix(byte b)
+    {
+        return b == '+' || b == '#' || b == '!' || b == '?';
+    }
+
+    /**
+     * Tells you if a row or column is on the board.
+     * @param index The row or column.
+     * @return True if it is between 0 and 7.
+     */
+    private static boolean onBoard(int index)
+    {
+        return index >= 0 && index < 8;
+    }
+}
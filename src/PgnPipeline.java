@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Class imports the games of a PGN file in three stages that run at the same
+ * time. A reader thread splits the file into the bytes of each game with a
+ * PgnReader. Worker threads parse the games and check their moves with a
+ * PgnParser each. The thread that called run gives the parsed games to a
+ * PgnSink.
+ *
+ * The stages are joined by bounded queues, so a slow stage makes the ones
+ * before it wait instead of filling the memory, and files of any size can
+ * be imported.
+ * @version 1.0
+ */
+public class PgnPipeline
+{
+    /**The number of games each queue can hold.*/
+    private static final int QUEUE_SIZE = 1024;
+
+    /**Put in the queue of raw games once for each worker, when there are no
+     * more games.*/
+    private static final byte[] END_OF_GAMES = new byte[0];
+
+    /**Put in the queue of parsed games by each worker when it is done.*/
+    private static final PgnGame END_OF_PARSED = new PgnGame(0, null, null, null, null);
+
+    /**The number of worker threads.*/
+    private final int workers;
+
+    /**The number of games taken by the workers so far in the current run.*/
+    private long takenGames;
+
+    /**
+     * Makes a new pipeline.
+     * @param workers The number of threads that parse games.
+     * @throws IllegalArgumentException Thrown if there are no workers.
+     */
+    public PgnPipeline(int workers) throws IllegalArgumentException
+    {
+        if(workers < 1)
+        {
+            throw new IllegalArgumentException("There must be at least one worker!");
+        }
+
+        this.workers = workers;
+    }
+
+    /**
+     * Imports all the games of a channel. Returns once every game was given
+     * to the sink.
+     * @param channel The channel to read, for example a FileChannel. It is not
+     * closed.
+     * @param sink What receives the games, called from this thread.
+     * @return The number of games read.
+     * @throws IOException Thrown if the channel can not be read. The games
+     * before the error are given to the sink first.
+     * @throws InterruptedException Thrown if this thread is interrupted.
+     */
+    public long run(FileChannel channel, PgnSink sink) throws IOException, InterruptedException
+    {
+        BlockingQueue<byte[]> rawGames = new ArrayBlockingQueue<byte[]>(QUEUE_SIZE);
+        BlockingQueue<PgnGame> parsedGames = new ArrayBlockingQueue<PgnGame>(QUEUE_SIZE);
+        IOException[] readError = new IOException[1];
+        long[] gameCount = new long[1];
+        takenGames = 0;
+
+        Thread reader = new Thread(() -> read(channel, rawGames, readError, gameCount), "pgn reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        for(int i = 1; i <= workers; i++)
+        {
+            Thread worker = new Thread(() -> parse(rawGames, parsedGames), "pgn worker " + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        int finishedWorkers = 0;
+        while(finishedWorkers < workers)
+        {
+            PgnGame game = parsedGames.take();
+
+            if(game == END_OF_PARSED)
+            {
+                finishedWorkers++;
+            }
+            else
+            {
+                sink.accept(game);
+            }
+        }
+
+        //the reader has put its end markers, so it is done and its fields can be read
+        reader.join();
+        if(readError[0] != null)
+        {
+            throw readError[0];
+        }
+        return gameCount[0];
+    }
+
+    /**
+     * The work of the reader thread: reads the games of the channel into the
+     * queue, then puts an end marker for each worker. An error is kept for
+     * run to throw.
+     * @param channel The channel.
+     * @param rawGames The queue of the bytes of the games.
+     * @param readError Where an error reading the channel is kept.
+     * @param gameCount Where the number of games read is kept.
+     */
+    private void read(FileChannel channel, BlockingQueue<byte[]> rawGames, IOException[] readError,
+            long[] gameCount)
+    {
+        PgnReader reader = new PgnReader(channel);
+
+        try
+        {
+            byte[] game;
+            while((game = reader.nextGame()) != null)
+            {
+                rawGames.put(game);
+                gameCount[0]++;
+            }
+        }
+        catch(IOException e)
+        {
+            readError[0] = e;
+        }
+        catch(InterruptedException e)
+        {
+            return;
+        }
+        finally
+        {
+            putEndMarkers(rawGames);
+        }
+    }
+
+    /**
+     * Puts the end markers of the workers in the queue of raw games.
+     * @param rawGames The queue.
+     */
+    private void putEndMarkers(BlockingQueue<byte[]> rawGames)
+    {
+        try
+        {
+            for(int i = 0; i < workers; i++)
+            {
+                rawGames.put(END_OF_GAMES);
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The work of a worker thread: parses games until the end marker, then
+     * puts its own end marker in the queue of parsed games. The games are
+     * numbered by the order they are taken in, which is the order of the
+     * file since the reader puts them in that order.
+     * @param rawGames The queue of the bytes of the games.
+     * @param parsedGames The queue of the parsed games.
+     */
+    private void parse(BlockingQueue<byte[]> rawGames, BlockingQueue<PgnGame> parsedGames)
+    {
+        PgnParser parser = new PgnParser();
+
+        try
+        {
+            try
+            {
+                while(true)
+                {
+                    byte[] text;
+                    long number;
+
+                    //taking a game and its number together keeps the numbers in file order
+                    synchronized(this)
+                    {
+                        text = rawGames.take();
+                        number = (text == END_OF_GAMES) ? 0 : ++takenGames;
+                    }
+                    if(text == END_OF_GAMES)
+                    {
+                        break;
+                    }
+
+                    PgnGame game;
+                    try
+                    {
+                        game = parser.parse(text, number);
+                    }
+                    catch(RuntimeException e)
+                    {
+                        //one broken game must not stop the import of the rest
+                        game = new PgnGame(number, new LinkedHashMap<String, String>(), new int[0],
+                                PgnParser.NO_RESULT, "Could not parse the game: " + e);
+                    }
+                    parsedGames.put(game);
+                }
+            }
+            finally
+            {
+                parsedGames.put(END_OF_PARSED);
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Imports a PGN file and prints how many games were valid.
+     * @param args The path of the file, then optionally "threads <count>".
+     * @throws IOException Thrown if the file can not be read.
+     * @throws InterruptedException Thrown if the import is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if(args.length < 1)
+        {
+            System.out.println("Usage: java PgnPipeline <file> [threads <count>]");
+            return;
+        }
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        if(args.length >= 3 && args[1].equals("threads"))
+        {
+            threads = Integer.parseInt(args[2]);
+        }
+
+        long[] counts = new long[2];
+        long start = System.nanoTime();
+        long games;
+
+        try(FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ))
+        {
+            games = new PgnPipeline(threads).run(channel, game ->
+            {
+                if(game.isValid())
+                {
+                    counts[0] += game.getPlyCount();
+                }
+                else
+                {
+                    counts[1]++;
+                    System.out.println("Game " + game.getNumber() + ": " + game.getError());
+                }
+            });
+        }
+
+        long nanos = Math.max(1, System.nanoTime() - start);
+        System.out.println("Games: " + games);
+        System.out.println("Invalid games: " + counts[1]);
+        System.out.println("Moves: " + counts[0]);
+        System.out.println("Time: " + nanos / 1_000_000 + " ms");
+        System.out.println("Games per second: " + (long)(games * 1e9 / nanos));
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Class reads the games of a PGN (Portable Game Notation) file one at a
+ * time, from a channel, so that files much larger than the memory can be
+ * read. The bytes of the channel are read in large blocks and split into
+ * games without being turned into strings: each game comes out as an array
+ * with its bytes, its tag pairs followed by its moves, to be parsed by a
+ * PgnParser.
+ *
+ * A new game starts at a line beginning with '[' that comes after the moves
+ * of the game before it. Brackets inside comments do not count.
+ * @version 1.0
+ */
+public class PgnReader
+{
+    /**The size of the blocks read from the channel.*/
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /**The size the array holding the game being read starts with.*/
+    private static final int INITIAL_GAME_SIZE = 4096;
+
+    /**The channel the games are read from.*/
+    private final ReadableByteChannel channel;
+
+    /**The block of bytes read from the channel, with the bytes not yet
+     * looked at between its position and its limit.*/
+    private final ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+
+    /**The bytes of the game being read, and how many there are.*/
+    private byte[] game = new byte[INITIAL_GAME_SIZE];
+    private int gameLength;
+
+    /**What the reader is in the middle of: the start of a line, a tag line,
+     * a comment in braces, a comment to the end of the line, and whether the
+     * moves of the game have started.*/
+    private boolean lineStart = true;
+    private boolean inTag;
+    private boolean inBraceComment;
+    private boolean inLineComment;
+    private boolean inMoves;
+
+    /**Set once the channel has no more bytes.*/
+    private boolean endOfInput;
+
+    /**
+     * Makes a new reader.
+     * @param channel The channel to read from, for example a FileChannel.
+     * The reader does not close it.
+     */
+    public PgnReader(ReadableByteChannel channel)
+    {
+        this.channel = channel;
+        block.limit(0);
+    }
+
+    /**
+     * Reads the next game.
+     * @return The bytes of the game, or null if there are no more games.
+     * @throws IOException Thrown if the channel can not be read.
+     */
+    public byte[] nextGame() throws IOException
+    {
+        while(true)
+        {
+            if(!block.hasRemaining())
+            {
+                block.clear();
+                int read = endOfInput ? -1 : channel.read(block);
+                block.flip();
+
+                if(read == -1)
+                {
+                    endOfInput = true;
+                    return hasContent() ? takeGame() : null;
+                }
+                continue;
+            }
+
+            byte b = block.get();
+
+            //a tag at the start of a line after the moves begins the next game
+            if(lineStart && b == '[' && !inBraceComment && inMoves)
+            {
+                byte[] finished = takeGame();
+                append(b);
+                inTag = true;
+                lineStart = false;
+                return finished;
+            }
+
+            append(b);
+            scan(b);
+        }
+    }
+
+    /**
+     * Keeps track of comments, tag lines and the start of the moves after a
+     * byte of the game.
+     * @param b The byte.
+     */
+    private void scan(byte b)
+    {
+        if(inBraceComment)
+        {
+            //comments in braces do not nest
+            inBraceComment = b != '}';
+        }
+        else if(inLineComment || inTag)
+        {
+            if(b == '\n')
+            {
+                inLineComment = false;
+                inTag = false;
+            }
+        }
+        else if(lineStart && b == '[')
+        {
+            inTag = true;
+        }
+        else if(b == '{')
+        {
+            inBraceComment = true;
+            inMoves = true;
+        }
+        else if(b == ';')
+        {
+            inLineComment = true;
+            inMoves = true;
+        }
+        else if(!isSpace(b))
+        {
+            inMoves = true;
+        }
+
+        lineStart = b == '\n';
+    }
+
+    /**
+     * Adds a byte to the game being read, growing its array if needed.
+     * @param b The byte.
+     */
+    private void append(byte b)
+    {
+        if(gameLength == game.length)
+        {
+            game = Arrays.copyOf(game, game.length * 2);
+        }
+        game[gameLength++] = b;
+    }
+
+    /**
+     * Tells you if the game being read has anything other than white space.
+     * @return True if there is something to parse.
+     */
+    private boolean hasContent()
+    {
+        for(int i = 0; i < gameLength; i++)
+        {
+            if(!isSpace(game[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes the bytes of the game being read, and starts a new one.
+     * @return A copy of the bytes of the game.
+     */
+    private byte[] takeGame()
+    {
+        byte[] finished = Arrays.copyOf(game, gameLength);
+        gameLength = 0;
+        inMoves = false;
+        inTag = false;
+        inBraceComment = false;
+        inLineComment = false;
+        return finished;
+    }
+
+    /**
+     * Tells you if a byte is white space.
+     * @param b The byte.
+     * @return True for a space, tab, carriage return or new line.
+     */
+    static boolean isSpace(byte b)
+    {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Interface for what receives the games of a PgnPipeline, like a database
+ * import or a statistics count. The games are given one at a time from a
+ * single thread, so an implementation needs no locks.
+ * @version 1.0
+ */
+public interface PgnSink
+{
+    /**
+     * Receives a parsed game. The games may come in a different order than
+     * in the file; their numbers give the order of the file.
+     * @param game The game, valid or not.
+     */
+    void accept(PgnGame game);
+}
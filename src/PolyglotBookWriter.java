@@ -0,0 +1,193 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class makes opening books in the Polyglot format, to be read by the
+ * PolyglotBook class. Moves are added with a weight, and the same move of
+ * the same position added more than once gets the sum of its weights.
+ *
+ * Moves can be added from the games of a PGN file, the way Polyglot makes
+ * its books: each move of the first plies of a game gets a weight of 2 if
+ * the player who made it won, 1 for a draw and 0 for a loss.
+ * @version 1.0
+ */
+public class PolyglotBookWriter
+{
+    /**The largest weight of an entry.*/
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    /**The keys positions are hashed with.*/
+    private final long[] keys;
+
+    /**The entries added so far, and how many there are.*/
+    private long[] entryKeys = new long[1024];
+    private int[] entryMoves = new int[1024];
+    private int[] entryWeights = new int[1024];
+    private int entryCount;
+
+    /**
+     * Makes a writer for a book keyed with the Random64 keys of Polyglot, like
+     * the books made by other programs.
+     */
+    public PolyglotBookWriter()
+    {
+        this(PolyglotBook.defaultKeys());
+    }
+
+    /**
+     * Makes a writer.
+     * @param keys The PolyglotBook.KEY_COUNT keys to key the book with.
+     * @throws IllegalArgumentException Thrown if there are not KEY_COUNT keys.
+     */
+    public PolyglotBookWriter(long[] keys) throws IllegalArgumentException
+    {
+        if(keys.length != PolyglotBook.KEY_COUNT)
+        {
+            throw new IllegalArgumentException("A book needs " + PolyglotBook.KEY_COUNT + " keys!");
+        }
+
+        this.keys = keys.clone();
+    }
+
+    /**
+     * Adds a move to the book.
+     * @param board The board, with the position the move is played in.
+     * @param move The move, packed as described in the Move class.
+     * @param weight The weight to add to the move, 0 or more.
+     */
+    public void add(ChessBoard board, int move, int weight)
+    {
+        if(entryCount == entryKeys.length)
+        {
+            entryKeys = Arrays.copyOf(entryKeys, entryCount * 2);
+            entryMoves = Arrays.copyOf(entryMoves, entryCount * 2);
+            entryWeights = Arrays.copyOf(entryWeights, entryCount * 2);
+        }
+
+        entryKeys[entryCount] = PolyglotBook.hash(board, keys);
+        entryMoves[entryCount] = PolyglotBook.encodeMove(move);
+        entryWeights[entryCount] = weight;
+        entryCount++;
+    }
+
+    /**
+     * Adds the first moves of a game to the book. Games that are not valid
+     * or have no result are left out.
+     * @param game The game.
+     * @param maxPlies The number of plies to add, counting the moves of both
+     * players.
+     */
+    public void addGame(PgnGame game, int maxPlies)
+    {
+        String result = game.getResult();
+        if(!game.isValid() || result.equals(PgnParser.NO_RESULT))
+        {
+            return;
+        }
+
+        String fen = game.getTag("FEN");
+        ChessBoard board = (fen == null) ? new ChessBoard() : ChessBoard.fromFen(fen);
+        int[] moves = game.getMoves();
+
+        for(int i = 0; i < moves.length && i < maxPlies; i++)
+        {
+            boolean white = board.getSideToMove() == ChessPlayer.white;
+            int weight;
+
+            if(result.equals("1/2-1/2"))
+            {
+                weight = 1;
+            }
+            else
+            {
+                weight = (result.equals("1-0") == white) ? 2 : 0;
+            }
+
+            add(board, moves[i], weight);
+            board.applyMove(moves[i]);
+        }
+    }
+
+    /**
+     * Writes the book: the entries sorted by key, with the weights of the same
+     * move of the same position added up.
+     * @param file The path of the book, which is replaced if it exists.
+     * @throws IOException Thrown if the file can not be written.
+     */
+    public void write(Path file) throws IOException
+    {
+        Integer[] order = new Integer[entryCount];
+        for(int i = 0; i < entryCount; i++)
+        {
+            order[i] = i;
+        }
+
+        //Polyglot sorts the keys as unsigned numbers
+        Arrays.sort(order, (a, b) ->
+        {
+            int compare = Long.compareUnsigned(entryKeys[a], entryKeys[b]);
+            return (compare != 0) ? compare : Integer.compare(entryMoves[a], entryMoves[b]);
+        });
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file))))
+        {
+            int i = 0;
+            while(i < entryCount)
+            {
+                int first = order[i];
+                long weight = 0;
+
+                while(i < entryCount && entryKeys[order[i]] == entryKeys[first] &&
+                        entryMoves[order[i]] == entryMoves[first])
+                {
+                    weight += entryWeights[order[i]];
+                    i++;
+                }
+
+                out.writeLong(entryKeys[first]);
+                out.writeShort(entryMoves[first]);
+                out.writeShort((int)Math.min(weight, MAX_WEIGHT));
+                out.writeInt(0);
+            }
+        }
+    }
+
+    /**
+     * Makes a book from the games of a PGN file.
+     * @param args The path of the PGN file, the path of the book, then
+     * optionally "plies <count>".
+     * @throws IOException Thrown if a file can not be read or written.
+     * @throws InterruptedException Thrown if reading the games is
+     * interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if(args.length < 2)
+        {
+            System.out.println("Usage: java PolyglotBookWriter <pgn file> <book file> [plies <count>]");
+            return;
+        }
+
+        int plies = (args.length >= 4 && args[2].equals("plies")) ? Integer.parseInt(args[3]) : 20;
+        PolyglotBookWriter writer = new PolyglotBookWriter();
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        long games;
+
+        try(FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ))
+        {
+            games = new PgnPipeline(threads).run(channel, game -> writer.addGame(game, plies));
+        }
+
+        writer.write(Paths.get(args[1]));
+        System.out.println("Games: " + games);
+        System.out.println("Entries added: " + writer.entryCount);
+    }
+}
@@ -0,0 +1,264 @@
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Class writes positions in a compact binary form of SIZE bytes, to store
+ * them or send them over a network, and reads them back. The same position
+ * is always written the same way, so the bytes can be compared or hashed to
+ * find equal positions. The clocks are not written, since they are not part
+ * of the position.
+ *
+ * The bytes are:
+ * <ul>
+ * <li>8 bytes with the occupied squares, as a bitboard in big endian order,
+ * whatever the order of the buffer.</li>
+ * <li>16 bytes with the piece code of each occupied square, from a1 to h8,
+ * in 4 bits each, the first one in the high bits of a byte. Unused bits are
+ * 0. The code EN_PASSANT_PAWN stands for the pawn that has just moved two
+ * squares, if a pawn of the player to move can take it en passant; it is a
+ * pawn of the player who is not to move. A pawn that can not be taken is
+ * written as any other pawn, so the position is written the same way
+ * whether or not the last move was a pawn moving two squares.</li>
+ * <li>1 byte with the side to move in bit 0, 1 for black, and the castling
+ * right flags of BitBoard in bits 1 to 4.</li>
+ * </ul>
+ * A player has at most 16 pieces, so there are never more than 32 codes.
+ *
+ * Encoding, and decoding into an existing BitBoard, make no objects.
+ * Decoding into a ChessBoard makes a new board with its pieces, since a
+ * ChessBoard keeps an object for each piece. A codec keeps the fields of
+ * the position it decodes, so it must be used by one thread only.
+ * @version 1.0
+ */
+public class PositionCodec
+{
+    /**The number of bytes of an encoded position.*/
+    public static final int SIZE = 25;
+
+    /**The code written for the pawn that can be taken en passant.*/
+    public static final int EN_PASSANT_PAWN = 12;
+
+    /**The number of bytes of the occupied squares.*/
+    private static final int OCCUPIED_BYTES = 8;
+
+    /**The number of bytes of the piece codes.*/
+    private static final int CODE_BYTES = 16;
+
+    /**The most pieces a position can have.*/
+    private static final int MAX_PIECES = 2 * CODE_BYTES;
+
+    /**The piece code of each square of the position being decoded.*/
+    private final int[] codes = new int[64];
+
+    /**The player to move in the position being decoded.*/
+    private ChessPlayer side;
+
+    /**The castling rights of the position being decoded.*/
+    private int castlingRights;
+
+    /**The en passant square of the position being decoded, or -1.*/
+    private int enPassant;
+
+    /**
+     * Writes the position of a board at the position of a buffer, and moves
+     * the position of the buffer past it.
+     * @param board The board.
+     * @param target The buffer.
+     * @throws BufferOverflowException Thrown if the buffer has less than SIZE
+     * bytes left. Nothing is written then.
+     */
+    public void encode(ChessBoard board, ByteBuffer target) throws BufferOverflowException
+    {
+        if(target.remaining() < SIZE)
+        {
+            throw new BufferOverflowException();
+        }
+
+        ChessPlayer side = board.getSideToMove();
+        long occupied = board.getOccupied();
+        int enPassant = board.getEnPassantSquare();
+        int enPassantPawn = -1;
+        if(enPassant != -1 && (board.getPieces(side, PieceType.pawn) &
+                BitBoard.pawnAttacks(BitBoard.opponent(side), enPassant)) != 0)
+        {
+            enPassantPawn = enPassant + ((side == ChessPlayer.white) ? -8 : 8);
+        }
+
+        target.putLong((target.order() == ByteOrder.BIG_ENDIAN) ? occupied : Long.reverseBytes(occupied));
+
+        int written = 0;
+        int high = -1;
+        for(long pieces = occupied; pieces != 0; pieces &= pieces - 1)
+        {
+            int square = Long.numberOfTrailingZeros(pieces);
+            int code = (square == enPassantPawn) ? EN_PASSANT_PAWN : board.getPieceCode(square);
+
+            if(high == -1)
+            {
+                high = code;
+            }
+            else
+            {
+                target.put((byte)((high << 4) | code));
+                written++;
+                high = -1;
+            }
+        }
+        if(high != -1)
+        {
+            target.put((byte)(high << 4));
+            written++;
+        }
+        for(; written < CODE_BYTES; written++)
+        {
+            target.put((byte)0);
+        }
+
+        int flags = (side == ChessPlayer.black ? 1 : 0) | (board.getCastlingRights() << 1);
+        target.put((byte)flags);
+    }
+
+    /**
+     * Reads a position at the position of a buffer, and moves the position
+     * of the buffer past it.
+     * @param source The buffer.
+     * @return A new board with the position, and clocks at their start.
+     * @throws BufferUnderflowException Thrown if the buffer has less than
+     * SIZE bytes left. Nothing is read then.
+     * @throws IllegalArgumentException Thrown if the bytes are not an encoded
+     * position, or the position is not valid, as described for
+     * BitBoard.fromFen. The position of the buffer is not moved then.
+     */
+    public ChessBoard decode(ByteBuffer source) throws BufferUnderflowException, IllegalArgumentException
+    {
+        read(source);
+        ChessBoard board = ChessBoard.fromSquares(codes, side, castlingRights, enPassant);
+        source.position(source.position() + SIZE);
+        return board;
+    }
+
+    /**
+     * Reads a position at the position of a buffer into a board, and moves
+     * the position of the buffer past it. No objects are made, so this can
+     * be used to read many positions into the same board.
+     * @param source The buffer.
+     * @param target The board, which gets an empty undo stack and clocks at
+     * their start.
+     * @throws BufferUnderflowException Thrown if the buffer has less than
+     * SIZE bytes left. Nothing is read then.
+     * @throws IllegalArgumentException Thrown if the bytes are not an encoded
+     * position, or the position is not valid, as described for
+     * BitBoard.fromFen. The board is not changed and the position of the
+     * buffer is not moved then.
+     */
+    public void decode(ByteBuffer source, BitBoard target) throws BufferUnderflowException,
+            IllegalArgumentException
+    {
+        read(source);
+        target.setSquares(codes, side, castlingRights, enPassant);
+        source.position(source.position() + SIZE);
+    }
+
+    /**
+     * Reads a position at the position of a buffer into the fields of the
+     * codec, without moving the position of the buffer.
+     * @param source The buffer.
+     * @throws BufferUnderflowException Thrown if the buffer has less than
+     * SIZE bytes left.
+     * @throws IllegalArgumentException Thrown if the bytes are not an encoded
+     * position.
+     */
+    private void read(ByteBuffer source) throws BufferUnderflowException, IllegalArgumentException
+    {
+        if(source.remaining() < SIZE)
+        {
+            throw new BufferUnderflowException();
+        }
+
+        int start = source.position();
+        int flags = source.get(start + SIZE - 1) & 0xFF;
+        if(flags >= 1 << 5)
+        {
+            throw new IllegalArgumentException("Unknown flags in an encoded position!");
+        }
+        side = ((flags & 1) != 0) ? ChessPlayer.black : ChessPlayer.white;
+        castlingRights = flags >>> 1;
+
+        long occupied = source.getLong(start);
+        if(source.order() != ByteOrder.BIG_ENDIAN)
+        {
+            occupied = Long.reverseBytes(occupied);
+        }
+        if(Long.bitCount(occupied) > MAX_PIECES)
+        {
+            throw new IllegalArgumentException("An encoded position can not have more than " +
+                    MAX_PIECES + " pieces!");
+        }
+
+        Arrays.fill(codes, BitBoard.EMPTY);
+        enPassant = -1;
+        long pieces = occupied;
+
+        for(int i = 0; i < 2 * CODE_BYTES; i++)
+        {
+            int b = source.get(start + OCCUPIED_BYTES + i / 2) & 0xFF;
+            int code = (i % 2 == 0) ? b >>> 4 : b & 0xF;
+
+            if(pieces == 0)
+            {
+                if(code != 0)
+                {
+                    throw new IllegalArgumentException("The unused bits of an encoded position must be 0!");
+                }
+                continue;
+            }
+
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+
+            if(code == EN_PASSANT_PAWN)
+            {
+                if(enPassant != -1)
+                {
+                    throw new IllegalArgumentException("An encoded position has two en passant pawns!");
+                }
+                code = BitBoard.pieceCode(BitBoard.opponent(side), PieceType.pawn);
+                enPassant = square + ((side == ChessPlayer.white) ? 8 : -8);
+            }
+            else if(code > EN_PASSANT_PAWN)
+            {
+                throw new IllegalArgumentException("Unknown piece code " + code + " in an encoded position!");
+            }
+            codes[square] = code;
+        }
+
+        if(enPassant != -1 && !canTakeEnPassant())
+        {
+            throw new IllegalArgumentException("No pawn can take the en passant pawn of an encoded position!");
+        }
+    }
+
+    /**
+     * Checks if a pawn of the player to move stands where it can take en
+     * passant, in the position being decoded.
+     * @return True if there is such a pawn.
+     */
+    private boolean canTakeEnPassant()
+    {
+        int pawn = BitBoard.pieceCode(side, PieceType.pawn);
+
+        //the pawns that can take are on the squares a pawn of the other colour would attack
+        for(long takers = BitBoard.pawnAttacks(BitBoard.opponent(side), enPassant); takers != 0;
+                takers &= takers - 1)
+        {
+            if(codes[Long.numberOfTrailingZeros(takers)] == pawn)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
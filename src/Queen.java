@@ -39,19 +39,13 @@ public class Queen extends ChessPiece
             return false;
         }
         
-        //a queen can move horizontally however many spaces, but it cant jump over a piece
-        if(this.row==row && board.clearLiniarPath(this, row, column))
-        {
-            return true;
-        }
-        // a queen can move vertically  however many spaces, but it cant jump over a piece
-        else if(this.column==column && board.clearLiniarPath(this, row, column))
-        {
-            return true;
-        }
-        // a queen can move diagonally however many spaces, but cant jump over another piece
-        else if(Math.abs(this.row-row)==Math.abs(this.column-column) && 
-                board.clearDiagonalPath(this, row, column))
+        /*a queen can move horizontally, vertically or diagonally however many
+         * spaces, but it cant jump over a piece, so the move is valid if the final
+         * square is one the queen attacks*/
+        long attacks = SlidingAttacks.queenAttacks(BitBoard.getSquare(this.row, this.column),
+                board.getOccupied());
+        
+        if((attacks & (1L << BitBoard.getSquare(row, column))) != 0)
         {
             return true;
         }
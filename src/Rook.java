@@ -39,13 +39,12 @@ public class Rook extends ChessPiece
             return false;
         }
         
-        //rooks can move horizontally and cant jump over a piece
-        if(this.row==row && board.clearLiniarPath(this, row, column))
-        {
-            return true;
-        }
-        //rooks can move vertically and cant jump over a piece
-        else if(this.column==column && board.clearLiniarPath(this, row, column))
+        /*rooks can move horizontally or vertically and cant jump over a piece, so
+         * the move is valid if the final square is one the rook attacks*/
+        long attacks = SlidingAttacks.rookAttacks(BitBoard.getSquare(this.row, this.column),
+                board.getOccupied());
+        
+        if((attacks & (1L << BitBoard.getSquare(row, column))) != 0)
         {
             return true;
         }
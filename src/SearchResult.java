@@ -0,0 +1,125 @@
+/**
+ * Class holds the result of a search: the best move found, its score, the
+ * principal variation (the line of play both players are expected to
+ * follow), the depth that was completed and the number of positions that
+ * were searched.
+ * @version 1.0
+ */
+public class SearchResult
+{
+    /**The best move, or Move.NONE if the player to move has no legal move.*/
+    private final int bestMove;
+
+    /**The score of the best move, from the point of view of the player to
+     * move.*/
+    private final int score;
+
+    /**The depth of the last completed iteration.*/
+    private final int depth;
+
+    /**The principal variation, starting with the best move.*/
+    private final int[] principalVariation;
+
+    /**The number of positions searched.*/
+    private final long nodes;
+
+    /**The time the search took, in milliseconds.*/
+    private final long time;
+
+    /**
+     * Makes a new search result.
+     * @param bestMove The best move.
+     * @param score The score of the best move.
+     * @param depth The depth that was completed.
+     * @param principalVariation The principal variation. The array is kept,
+     * not copied.
+     * @param nodes The number of positions searched.
+     * @param time The time the search took, in milliseconds.
+     */
+    public SearchResult(int bestMove, int score, int depth, int[] principalVariation,
+            long nodes, long time)
+    {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.principalVariation = principalVariation;
+        this.nodes = nodes;
+        this.time = time;
+    }
+
+    /**
+     * Gets the best move found.
+     * @return The move, or Move.NONE if there is no legal move.
+     */
+    public int getBestMove()
+    {
+        return bestMove;
+    }
+
+    /**
+     * Gets the score of the best move, in hundredths of a pawn from the
+     * point of view of the player to move. Scores near SearchWorker.MATE
+     * mean a forced mate.
+     * @return The score.
+     */
+    public int getScore()
+    {
+        return score;
+    }
+
+    /**
+     * Gets the depth of the last completed iteration of the search.
+     * @return The depth.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Gets the principal variation.
+     * @return A copy of the moves of the principal variation.
+     */
+    public int[] getPrincipalVariation()
+    {
+        return principalVariation.clone();
+    }
+
+    /**
+     * Gets the number of positions searched.
+     * @return The number of positions.
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Gets the time the search took.
+     * @return The time in milliseconds.
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Gives the depth, score, number of positions and principal variation in
+     * one line, with the moves in coordinate notation.
+     * @return The result as a string.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        text.append("depth ").append(depth).append(" score ").append(score)
+            .append(" nodes ").append(nodes).append(" time ").append(time).append(" pv");
+
+        for(int move : principalVariation)
+        {
+            text.append(' ').append(Move.toString(move));
+        }
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,797 @@
+import java.util.Arrays;
+
+/**
+ * Class searches for the best move of a position with a negamax alpha-beta
+ * search and iterative deepening. Each iteration searches one ply deeper
+ * than the last, and the moves and bounds found by the earlier iterations,
+ * kept in the transposition table, make the next one much faster.
+ *
+ * The search is a principal variation search: the first move of each
+ * position is searched with the full window, and the other moves with a
+ * null window around alpha, which only proves that they are not better. A
+ * move that turns out to be better is searched again with the full window.
+ * At the end of the main search, a quiescence search plays out the captures
+ * until the position is quiet, so a position is never scored in the middle
+ * of an exchange.
+ *
+ * Positions that are unlikely to matter are searched less deeply. Null
+ * move pruning lets the player to move pass: if the position is still
+ * good enough after a shallower search, the opponent would never allow it
+ * and it is cut off. Late move reductions search the quiet moves that the
+ * move ordering put last with less depth, and search them again fully only
+ * if they turn out to be good. Near the leaves, futility pruning skips
+ * quiet moves when the static evaluation is so far below alpha that a
+ * quiet move can not make up for it, and razoring drops straight into the
+ * quiescence search when the evaluation is far below alpha. Each of these
+ * can be switched off, to measure what it brings.
+ *
+ * A worker makes and takes back moves on its own board, so it must not be
+ * shared between threads. The transposition table can be shared: several
+ * workers can search the same position at the same time, each on its own
+ * copy of the board, and each finds the entries the others store. Helper
+ * workers search one ply deeper on every other iteration, so that they do
+ * not all search the same tree in the same order.
+ * @version 1.0
+ */
+public class SearchWorker
+{
+    /**The largest number of plies the search goes from the root.*/
+    public static final int MAX_PLY = 64;
+
+    /**The score of a checkmate at the root. A mate in n plies scores
+     * MATE - n, so shorter mates are preferred.*/
+    public static final int MATE = 30000;
+
+    /**A score larger than any real score.*/
+    public static final int INFINITY = 32000;
+
+    /**Scores above this are mate scores, found by the search or in the
+     * endgame tables, which can be mates far beyond MAX_PLY.*/
+    private static final int MATE_BOUND = MATE - MAX_PLY - Tablebase.MAX_PLIES_TO_MATE;
+
+    /**A capture that can not bring the score within this much of alpha,
+     * even when it wins the captured piece for free, is not searched by the
+     * quiescence search.*/
+    private static final int DELTA_MARGIN = 200;
+
+    /**Null move pruning is tried from this remaining depth on.*/
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+
+    /**Late move reductions are made from this remaining depth on, and only
+     * for moves after this many have been searched.*/
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_MIN_MOVES = 3;
+
+    /**The margins of futility pruning and razoring, indexed by the remaining
+     * depth. Neither is done at depths past the end of its array.*/
+    private static final int[] FUTILITY_MARGINS = {0, 200, 300, 500};
+    private static final int[] RAZOR_MARGINS = {0, 300, 400, 600};
+
+    /**The number of plies late move reductions take off, indexed by the
+     * remaining depth and the index of the move. It grows with the logarithm
+     * of both.*/
+    private static final int[][] REDUCTIONS = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+
+    static
+    {
+        for(int depth = 1; depth < MAX_PLY; depth++)
+        {
+            for(int index = 1; index < MoveGenerator.MAX_MOVES; index++)
+            {
+                REDUCTIONS[depth][index] = (int)(0.75 + Math.log(depth) * Math.log(index) / 2.25);
+            }
+        }
+    }
+
+    /**The clock is read once every this many positions, since reading it for
+     * every position would slow the search down. Must be a power of two.*/
+    private static final int CHECK_INTERVAL = 2048;
+
+    /**The board the moves are made on.*/
+    private final ChessBoard board;
+
+    /**The transposition table, which may be shared with other workers.*/
+    private final TranspositionTable table;
+
+    /**One list of moves for each ply, so that no arrays are made while
+     * searching.*/
+    private final int[][] moveLists = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+
+    /**The principal variation of each ply: row ply holds the best line found
+     * from that ply, from index ply up to pvLengths[ply].*/
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLengths = new int[MAX_PLY + 1];
+
+    /**The hashes of the positions on the path from the root, to find
+     * positions that repeat.*/
+    private final long[] pathHashes = new long[MAX_PLY + 1];
+
+    /**The moves on the path from the root: the move at index ply leads from
+     * the position at that ply to the next one.*/
+    private final int[] pathMoves = new int[MAX_PLY + 1];
+
+    /**The killer, history and counter move tables of this worker.*/
+    private final MoveOrderer orderer = new MoveOrderer();
+
+    /**The pawn structure scores this worker has evaluated.*/
+    private final PawnHashTable pawnTable = new PawnHashTable(PawnHashTable.DEFAULT_ENTRIES);
+
+    /**The number of positions searched.*/
+    private long nodes;
+
+    /**The values of System.nanoTime after which no new iteration is started
+     * and after which the search stops, or 0 if there is no limit. They can
+     * be changed by another thread while the search runs, for example when
+     * a search that was started without a time limit gets one.*/
+    private volatile long softDeadline;
+    private volatile long hardDeadline;
+
+    /**Set once the time is up. The scores of a stopped search are not used.*/
+    private boolean stopped;
+
+    /**Set by another thread to stop the search. It is read together with
+     * the clock, so the search stops within a few thousand positions.*/
+    private volatile boolean stopRequested;
+
+    /**How many plies deeper than the iteration this worker searches.*/
+    private final int depthOffset;
+
+    /**Which of the selective search options are used.*/
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private boolean futilityPruning = true;
+    private boolean razoring = true;
+
+    /**The endgame tables looked up in the search, or null.*/
+    private Tablebases tablebases;
+
+    /**The arrays the endgame tables are looked up in.*/
+    private final Tablebases.Scratch tablebaseScratch = new Tablebases.Scratch();
+
+    /**
+     * Makes a new search worker.
+     * @param board The board to search. It is used by this worker only, and
+     * is the same as before when a search is over.
+     * @param table The transposition table.
+     * @param id The number of the worker. Worker 0 is the main worker, whose
+     * result is used, the others are helpers that fill the transposition
+     * table.
+     */
+    public SearchWorker(ChessBoard board, TranspositionTable table, int id)
+    {
+        this.board = board;
+        this.table = table;
+        this.depthOffset = id & 1;
+    }
+
+    /**
+     * Searches the position of the board with iterative deepening, until the
+     * depth limit is reached, the time set with setDeadlines is up or the
+     * search is stopped. When the time is up, the result of the last
+     * iteration that was completed is used.
+     * @param maxDepth The largest depth to search, from 1 to MAX_PLY - 1.
+     * @return The result of the search.
+     */
+    public SearchResult search(int maxDepth)
+    {
+        long start = System.nanoTime();
+        nodes = 0;
+        stopped = false;
+
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] principalVariation = new int[0];
+
+        for(int iteration = 1; iteration <= maxDepth; iteration++)
+        {
+            int depth = Math.min(iteration + depthOffset, maxDepth);
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+
+            //the best move of the root is searched first, so a stopped iteration may still give one
+            if(stopped && (completedDepth > 0 || pvLengths[0] == 0))
+            {
+                break;
+            }
+
+            bestScore = score;
+            bestMove = (pvLengths[0] > 0) ? pvTable[0][0] : Move.NONE;
+            principalVariation = Arrays.copyOf(pvTable[0], pvLengths[0]);
+            completedDepth = depth;
+
+            //nothing more to find if there are no moves or a mate was found
+            if(stopped || bestMove == Move.NONE || Math.abs(score) > MATE_BOUND)
+            {
+                break;
+            }
+
+            //the next iteration would most likely not finish in time
+            long soft = softDeadline;
+            if(soft != 0 && System.nanoTime() >= soft)
+            {
+                break;
+            }
+        }
+
+        return new SearchResult(bestMove, bestScore, completedDepth, principalVariation,
+                nodes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Sets the time limits of the search. It can be called before the
+     * search, or from another thread while it runs. Both are 0 until they are
+     * set, which means the search only stops at its depth limit.
+     * @param softDeadline The value of System.nanoTime after which no new
+     * iteration is started, or 0 for no limit.
+     * @param hardDeadline The value of System.nanoTime at which the search
+     * stops in the middle of an iteration, or 0 for no limit.
+     */
+    public void setDeadlines(long softDeadline, long hardDeadline)
+    {
+        this.softDeadline = softDeadline;
+        this.hardDeadline = hardDeadline;
+    }
+
+    /**
+     * Asks the search to stop. It can be called from any thread. The flag is
+     * read every CHECK_INTERVAL positions, so the search stops within a
+     * fraction of a millisecond, and gives the result of the last completed
+     * iteration.
+     */
+    public void stop()
+    {
+        stopRequested = true;
+    }
+
+    /**
+     * Turns null move pruning on or off. It is on by default.
+     * @param enabled True to use null move pruning.
+     */
+    public void setNullMovePruning(boolean enabled)
+    {
+        nullMovePruning = enabled;
+    }
+
+    /**
+     * Turns late move reductions on or off. They are on by default.
+     * @param enabled True to use late move reductions.
+     */
+    public void setLateMoveReductions(boolean enabled)
+    {
+        lateMoveReductions = enabled;
+    }
+
+    /**
+     * Turns futility pruning on or off. It is on by default.
+     * @param enabled True to use futility pruning.
+     */
+    public void setFutilityPruning(boolean enabled)
+    {
+        futilityPruning = enabled;
+    }
+
+    /**
+     * Turns razoring on or off. It is on by default.
+     * @param enabled True to use razoring.
+     */
+    public void setRazoring(boolean enabled)
+    {
+        razoring = enabled;
+    }
+
+    /**
+     * Sets the endgame tables to look up positions with few pieces in. The
+     * result of a position found in them is used instead of searching it.
+     * @param tablebases The tables, or null to not use any.
+     */
+    public void setTablebases(Tablebases tablebases)
+    {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Gets the number of positions searched so far.
+     * @return The number of positions.
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Gets the share of the evaluations that found their pawn structure in
+     * the pawn hash table of this worker.
+     * @return The hit rate, between 0 and 1.
+     */
+    public double getPawnHitRate()
+    {
+        return pawnTable.getHitRate();
+    }
+
+    /**
+     * Searches the current position of the board.
+     * @param depth The remaining depth.
+     * @param ply The number of plies from the root.
+     * @param alpha The score the player to move is already sure of.
+     * @param beta The score the opponent is already sure of, so that a
+     * better score for the player to move will not be allowed.
+     * @return The score of the position for the player to move. If it is not
+     * above alpha, it is an upper bound, and if it is not below beta, it is a
+     * lower bound.
+     */
+    private int negamax(int depth, int ply, int alpha, int beta)
+    {
+        pvLengths[ply] = ply;
+
+        if((++nodes & (CHECK_INTERVAL - 1)) == 0 &&
+                (stopRequested || timeIsUp()))
+        {
+            stopped = true;
+        }
+
+        if(stopped)
+        {
+            return 0;
+        }
+
+        long hash = board.getHash();
+        pathHashes[ply] = hash;
+
+        //a position that repeats on the path is scored as a draw, but not across a null move
+        if(ply > 0)
+        {
+            for(int i = ply - 2; i >= 0 && pathMoves[i + 1] != Move.NONE && pathMoves[i] != Move.NONE; i -= 2)
+            {
+                if(pathHashes[i] == hash)
+                {
+                    return 0;
+                }
+            }
+        }
+
+        //positions with few pieces have an exact result in the endgame tables
+        if(tablebases != null && ply > 0 && Long.bitCount(board.getOccupied()) <= Tablebase.MAX_PIECES)
+        {
+            int result = tablebases.probe(board, tablebaseScratch);
+
+            if(result != Tablebase.UNKNOWN)
+            {
+                return tablebaseScore(result, ply);
+            }
+        }
+
+        if(ply >= MAX_PLY)
+        {
+            return Evaluation.evaluate(board, pawnTable);
+        }
+
+        //a king in check is looked at one ply deeper, so that checks can not hide threats
+        boolean inCheck = board.isInCheck(board.getSideToMove());
+        if(inCheck)
+        {
+            depth++;
+        }
+
+        if(depth <= 0)
+        {
+            return quiescence(ply, alpha, beta);
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        int hashMove = Move.NONE;
+        long entry = table.probe(hash);
+
+        if(entry != 0)
+        {
+            hashMove = TranspositionTable.getMove(entry);
+
+            //off the principal variation, a deep enough entry can end the search of this position
+            if(!pvNode && ply > 0 && TranspositionTable.getDepth(entry) >= depth)
+            {
+                int score = scoreFromTable(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+
+                if(bound == TranspositionTable.EXACT ||
+                        (bound == TranspositionTable.LOWER_BOUND && score >= beta) ||
+                        (bound == TranspositionTable.UPPER_BOUND && score <= alpha))
+                {
+                    return score;
+                }
+            }
+        }
+
+        int previousMove = (ply > 0) ? pathMoves[ply - 1] : Move.NONE;
+
+        //the pruning below is only done off the principal variation and out of check
+        boolean canPrune = !pvNode && !inCheck && Math.abs(beta) < MATE_BOUND;
+        int staticEval = canPrune ? Evaluation.evaluate(board, pawnTable) : 0;
+
+        //razoring: a position far below alpha is only looked at for captures
+        if(razoring && canPrune && hashMove == Move.NONE && depth < RAZOR_MARGINS.length &&
+                staticEval + RAZOR_MARGINS[depth] <= alpha)
+        {
+            int score = quiescence(ply, alpha, beta);
+            if(depth == 1 || score <= alpha)
+            {
+                return score;
+            }
+        }
+
+        /*null move pruning: if the position is still at least beta after passing, a real
+         * move would be even better. Without pieces other than pawns, passing may be the
+         * best move (zugzwang), so it is not tried then.*/
+        if(nullMovePruning && canPrune && ply > 0 && depth >= NULL_MOVE_MIN_DEPTH &&
+                previousMove != Move.NONE && staticEval >= beta && hasPieces(board.getSideToMove()))
+        {
+            int reduction = (depth >= 7) ? 3 : 2;
+            pathMoves[ply] = Move.NONE;
+            board.makeNullMove();
+            int score = -negamax(depth - 1 - reduction, ply + 1, -beta, -beta + 1);
+            board.unmakeNullMove();
+
+            if(stopped)
+            {
+                return 0;
+            }
+
+            if(score >= beta)
+            {
+                //a mate found after passing is not proven
+                return (score > MATE_BOUND) ? beta : score;
+            }
+        }
+
+        int[] moves = moveLists[ply];
+        int moveCount = board.generateMoves(moves);
+
+        if(moveCount == 0)
+        {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        //futility pruning: near the leaves, quiet moves can not bring a score far below alpha up to it
+        boolean futile = futilityPruning && canPrune && depth < FUTILITY_MARGINS.length &&
+                staticEval + FUTILITY_MARGINS[depth] <= alpha;
+
+        orderer.scoreMoves(board, moves, moveCount, ply, hashMove, previousMove);
+
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        int originalAlpha = alpha;
+
+        for(int i = 0; i < moveCount; i++)
+        {
+            int move = orderer.selectMove(moves, i, moveCount, ply);
+            pathMoves[ply] = move;
+            board.makeMove(move);
+
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+            boolean givesCheck = board.isInCheck(board.getSideToMove());
+
+            if(futile && i > 0 && quiet && !givesCheck)
+            {
+                board.unmakeMove();
+                continue;
+            }
+
+            int score;
+            if(i == 0)
+            {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            }
+            else
+            {
+                //late quiet moves are searched less deeply first, and fully only if they beat alpha
+                int reduction = 0;
+                if(lateMoveReductions && depth >= LMR_MIN_DEPTH && i >= LMR_MIN_MOVES && quiet &&
+                        !inCheck && !givesCheck && orderer.isOrderedLate(ply, i))
+                {
+                    reduction = REDUCTIONS[Math.min(depth, MAX_PLY - 1)][i];
+                    if(pvNode)
+                    {
+                        reduction--;
+                    }
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
+                }
+
+                //prove with a null window that the move is no better, and search it again if it is
+                score = -negamax(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha);
+                if(reduction > 0 && score > alpha)
+                {
+                    score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                }
+                if(score > alpha && score < beta)
+                {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+
+            board.unmakeMove();
+
+            if(stopped)
+            {
+                return 0;
+            }
+
+            if(score > bestScore)
+            {
+                bestScore = score;
+                bestMove = move;
+
+                if(score > alpha)
+                {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+
+                    if(score >= beta)
+                    {
+                        orderer.updateCutoff(board, moves, i, ply, depth, previousMove);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound;
+        if(bestScore >= beta)
+        {
+            bound = TranspositionTable.LOWER_BOUND;
+        }
+        else if(bestScore > originalAlpha)
+        {
+            bound = TranspositionTable.EXACT;
+        }
+        else
+        {
+            bound = TranspositionTable.UPPER_BOUND;
+        }
+
+        table.store(hash, bestMove, scoreToTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * Searches only the captures and promotions of the current position,
+     * until no good capture is left. The player to move can always stop
+     * capturing, so the static evaluation is a lower bound on the score
+     * (the stand pat score), unless the king is in check, in which case all
+     * the moves that get out of check are searched.
+     * @param ply The number of plies from the root.
+     * @param alpha The score the player to move is already sure of.
+     * @param beta The score the opponent is already sure of.
+     * @return The score of the position for the player to move, bounded like
+     * the score of negamax.
+     */
+    private int quiescence(int ply, int alpha, int beta)
+    {
+        pvLengths[ply] = ply;
+
+        if((++nodes & (CHECK_INTERVAL - 1)) == 0 &&
+                (stopRequested || timeIsUp()))
+        {
+            stopped = true;
+        }
+
+        if(stopped)
+        {
+            return 0;
+        }
+
+        if(ply >= MAX_PLY)
+        {
+            return Evaluation.evaluate(board, pawnTable);
+        }
+
+        boolean inCheck = board.isInCheck(board.getSideToMove());
+        int[] moves = moveLists[ply];
+        int moveCount;
+        int bestScore;
+        int standPat = 0;
+
+        if(inCheck)
+        {
+            moveCount = board.generateMoves(moves);
+            if(moveCount == 0)
+            {
+                return -MATE + ply;
+            }
+            bestScore = -INFINITY;
+        }
+        else
+        {
+            standPat = Evaluation.evaluate(board, pawnTable);
+            if(standPat >= beta)
+            {
+                return standPat;
+            }
+
+            alpha = Math.max(alpha, standPat);
+            bestScore = standPat;
+            moveCount = board.generateCaptures(moves);
+        }
+
+        orderer.scoreMoves(board, moves, moveCount, ply, Move.NONE, Move.NONE);
+
+        for(int i = 0; i < moveCount; i++)
+        {
+            int move = orderer.selectMove(moves, i, moveCount, ply);
+
+            if(!inCheck)
+            {
+                //promoting to a queen is always at least as good as to another piece
+                PieceType promotion = Move.getPromotion(move);
+                if(promotion != null && promotion != PieceType.queen)
+                {
+                    continue;
+                }
+
+                //delta pruning: skip captures that can not raise the score to alpha
+                if(standPat + captureValue(move) + DELTA_MARGIN <= alpha)
+                {
+                    continue;
+                }
+
+                //captures that lose material once the exchange is played out are not worth searching
+                if(StaticExchange.evaluate(board, move) < 0)
+                {
+                    continue;
+                }
+            }
+
+            board.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+
+            if(stopped)
+            {
+                return 0;
+            }
+
+            if(score > bestScore)
+            {
+                bestScore = score;
+
+                if(score > alpha)
+                {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+
+                    if(score >= beta)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Tells you if the hard deadline has passed.
+     * @return True if there is a hard deadline and it has passed.
+     */
+    private boolean timeIsUp()
+    {
+        long deadline = hardDeadline;
+        return deadline != 0 && System.nanoTime() > deadline;
+    }
+
+    /**
+     * Tells you if a player has a piece other than pawns and the king.
+     * @param player The player.
+     * @return True if the player has a knight, bishop, rook or queen.
+     */
+    private boolean hasPieces(ChessPlayer player)
+    {
+        return (board.getPlayerPieces(player) & ~board.getPieces(player, PieceType.pawn)
+                & ~board.getPieces(player, PieceType.king)) != 0;
+    }
+
+    /**
+     * Gets the most material a capture or promotion can win: the value of
+     * the captured piece plus what a promoted pawn gains.
+     * @param move The move.
+     * @return The value in hundredths of a pawn.
+     */
+    private int captureValue(int move)
+    {
+        int value = 0;
+        int to = Move.getTo(move);
+
+        if(Move.isEnPassant(move))
+        {
+            value = Evaluation.pieceValue(PieceType.pawn);
+        }
+        else if(Move.isCapture(move))
+        {
+            value = Evaluation.pieceValue(board.getPiece(to / 8, to % 8).getType());
+        }
+
+        PieceType promotion = Move.getPromotion(move);
+        if(promotion != null)
+        {
+            value += Evaluation.pieceValue(promotion) - Evaluation.pieceValue(PieceType.pawn);
+        }
+
+        return value;
+    }
+
+    /**
+     * Makes the principal variation of a ply the given move followed by the
+     * principal variation of the next ply.
+     * @param ply The ply.
+     * @param move The best move of the ply.
+     */
+    private void updatePrincipalVariation(int ply, int move)
+    {
+        pvTable[ply][ply] = move;
+        System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1,
+                pvLengths[ply + 1] - ply - 1);
+        pvLengths[ply] = Math.max(pvLengths[ply + 1], ply + 1);
+    }
+
+    /**
+     * Turns the result of an endgame table into a score, with the mate
+     * counted from the root like the other mate scores.
+     * @param result The result, as given by Tablebases.probe.
+     * @param ply The distance of the position from the root.
+     * @return The score for the player to move.
+     */
+    private static int tablebaseScore(int result, int ply)
+    {
+        if(result == 0)
+        {
+            return 0;
+        }
+
+        int mate = MATE - ply - Tablebase.pliesToMate(result);
+        return (result > 0) ? mate : -mate;
+    }
+
+    /**
+     * Turns a mate score counted from the root into one counted from the
+     * current position, so that it stays right when the position is reached
+     * at another ply.
+     * @param score The score.
+     * @param ply The ply of the position.
+     * @return The score to store in the table.
+     */
+    private static int scoreToTable(int score, int ply)
+    {
+        if(score > MATE_BOUND)
+        {
+            return score + ply;
+        }
+        else if(score < -MATE_BOUND)
+        {
+            return score - ply;
+        }
+        else
+        {
+            return score;
+        }
+    }
+
+    /**
+     * Turns a mate score from the table back into one counted from the root.
+     * @param score The score from the table.
+     * @param ply The ply of the position.
+     * @return The score.
+     */
+    private static int scoreFromTable(int score, int ply)
+    {
+        if(score > MATE_BOUND)
+        {
+            return score - ply;
+        }
+        else if(score < -MATE_BOUND)
+        {
+            return score + ply;
+        }
+        else
+        {
+            return score;
+        }
+    }
+}
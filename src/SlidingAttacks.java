@@ -0,0 +1,264 @@
+/**
+ * Class holds lookup tables that give the squares a rook or a bishop attacks
+ * from any square, for any set of occupied squares, in constant time. The
+ * tables are built once, when the class is loaded, using magic bitboards:
+ * the occupied squares that can block a piece on a square are multiplied by
+ * a "magic" number, and the top bits of the product are used as an index
+ * into a table of precomputed attack sets for that square.
+ *
+ * The magic numbers are found when the class is loaded, by trying sparse
+ * random numbers until one is found that maps every blocker set to a table
+ * slot without harmful collisions. The random generator is seeded per row
+ * with values known to lead to magic numbers after few tries, so building
+ * the tables is fast and always gives the same numbers.
+ * @version 1.0
+ */
+public class SlidingAttacks
+{
+    /**A chess board is an 8x8 board.*/
+    private static final int SIZE_OF_BOARD = 8;
+
+    /**The number of squares on the board.*/
+    private static final int SQUARES = SIZE_OF_BOARD * SIZE_OF_BOARD;
+
+    /**Row and column steps of the rays along which rooks and bishops move.*/
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    /**Seeds of the random generator used to search for the magic numbers of
+     * the squares on each row.*/
+    private static final long[] SEEDS = {728, 10316, 55013, 32803, 12281, 15100, 16645, 255};
+
+    /**For each square, the squares whose occupancy can block a rook or a
+     * bishop on that square. The last square of each ray is left out, since
+     * a piece on it can not block anything behind it.*/
+    private static final long[] ROOK_MASKS = new long[SQUARES];
+    private static final long[] BISHOP_MASKS = new long[SQUARES];
+
+    /**The magic multiplier of each square.*/
+    private static final long[] ROOK_MAGICS = new long[SQUARES];
+    private static final long[] BISHOP_MAGICS = new long[SQUARES];
+
+    /**How far the product is shifted right to get the table index, which is
+     * 64 minus the number of bits in the mask of the square.*/
+    private static final int[] ROOK_SHIFTS = new int[SQUARES];
+    private static final int[] BISHOP_SHIFTS = new int[SQUARES];
+
+    /**The attack sets of each square, indexed by the magic index.*/
+    private static final long[][] ROOK_TABLE = new long[SQUARES][];
+    private static final long[][] BISHOP_TABLE = new long[SQUARES][];
+
+    static
+    {
+        for(int square = 0; square < SQUARES; square++)
+        {
+            long[] random = {SEEDS[square / SIZE_OF_BOARD]};
+
+            ROOK_MASKS[square] = blockerMask(square, ROOK_DIRECTIONS);
+            ROOK_SHIFTS[square] = SQUARES - Long.bitCount(ROOK_MASKS[square]);
+            ROOK_TABLE[square] = new long[1 << Long.bitCount(ROOK_MASKS[square])];
+            ROOK_MAGICS[square] = findMagic(square, ROOK_MASKS[square], ROOK_SHIFTS[square],
+                    ROOK_TABLE[square], ROOK_DIRECTIONS, random);
+
+            random[0] = SEEDS[square / SIZE_OF_BOARD];
+
+            BISHOP_MASKS[square] = blockerMask(square, BISHOP_DIRECTIONS);
+            BISHOP_SHIFTS[square] = SQUARES - Long.bitCount(BISHOP_MASKS[square]);
+            BISHOP_TABLE[square] = new long[1 << Long.bitCount(BISHOP_MASKS[square])];
+            BISHOP_MAGICS[square] = findMagic(square, BISHOP_MASKS[square], BISHOP_SHIFTS[square],
+                    BISHOP_TABLE[square], BISHOP_DIRECTIONS, random);
+        }
+    }
+
+    /**
+     * Gets the squares a rook on the given square attacks. Each line of
+     * attack stops at, and includes, the first occupied square.
+     * @param square The square of the rook.
+     * @param occupancy The occupied squares of the board.
+     * @return A bitboard of the attacked squares.
+     */
+    public static long rookAttacks(int square, long occupancy)
+    {
+        int index = (int)(((occupancy & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[square][index];
+    }
+
+    /**
+     * Gets the squares a bishop on the given square attacks. Each line of
+     * attack stops at, and includes, the first occupied square.
+     * @param square The square of the bishop.
+     * @param occupancy The occupied squares of the board.
+     * @return A bitboard of the attacked squares.
+     */
+    public static long bishopAttacks(int square, long occupancy)
+    {
+        int index = (int)(((occupancy & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[square][index];
+    }
+
+    /**
+     * Gets the squares a queen on the given square attacks, which are the
+     * squares a rook and a bishop on that square would attack.
+     * @param square The square of the queen.
+     * @param occupancy The occupied squares of the board.
+     * @return A bitboard of the attacked squares.
+     */
+    public static long queenAttacks(int square, long occupancy)
+    {
+        return rookAttacks(square, occupancy) | bishopAttacks(square, occupancy);
+    }
+
+    /**
+     * Searches for a magic number for the given square and fills its table
+     * with the attack sets of every blocker combination.
+     * @param square The square.
+     * @param mask The blocker mask of the square.
+     * @param shift The shift of the square.
+     * @param table The table of the square, which is filled by this method.
+     * @param directions The rays of the piece.
+     * @param random The state of the random generator, in a one element array
+     * so that it can be updated.
+     * @return The magic number that was found.
+     */
+    private static long findMagic(int square, long mask, int shift, long[] table,
+            int[][] directions, long[] random)
+    {
+        int size = table.length;
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+
+        /*Go through every subset of the mask with the carry-rippler trick,
+         * and compute the attacks for each the slow way.*/
+        long subset = 0;
+        for(int i = 0; i < size; i++)
+        {
+            occupancies[i] = subset;
+            attacks[i] = rayAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        /*For each slot, the attempt in which it was last written. This saves
+         * us from clearing the table after every failed attempt.*/
+        int[] epoch = new int[size];
+        for(int attempt = 1; ; attempt++)
+        {
+            //numbers with few bits set make good magics
+            long magic = nextRandom(random) & nextRandom(random) & nextRandom(random);
+
+            //the product of the mask must fill the top bits, or too many indexes collide
+            if(Long.bitCount((mask * magic) & 0xFF00_0000_0000_0000L) < 6)
+            {
+                continue;
+            }
+
+            boolean failed = false;
+            for(int i = 0; i < size && !failed; i++)
+            {
+                int index = (int)((occupancies[i] * magic) >>> shift);
+
+                //two blocker sets may share a slot only if they give the same attacks
+                if(epoch[index] != attempt)
+                {
+                    epoch[index] = attempt;
+                    table[index] = attacks[i];
+                }
+                else if(table[index] != attacks[i])
+                {
+                    failed = true;
+                }
+            }
+
+            if(!failed)
+            {
+                return magic;
+            }
+        }
+    }
+
+    /**
+     * Gets the next number of a xorshift64* random generator.
+     * @param state The state of the generator, which is updated.
+     * @return A random number.
+     */
+    private static long nextRandom(long[] state)
+    {
+        state[0] ^= state[0] >>> 12;
+        state[0] ^= state[0] << 25;
+        state[0] ^= state[0] >>> 27;
+        return state[0] * 2685821657736338717L;
+    }
+
+    /**
+     * Gets the squares whose occupancy matters for a sliding piece on the
+     * given square.
+     * @param square The square of the piece.
+     * @param directions The rays of the piece.
+     * @return A bitboard of the squares on the rays, without the edges.
+     */
+    private static long blockerMask(int square, int[][] directions)
+    {
+        long mask = 0;
+
+        for(int[] direction : directions)
+        {
+            int row = square / SIZE_OF_BOARD + direction[0];
+            int column = square % SIZE_OF_BOARD + direction[1];
+
+            //stop before the last square of the ray
+            while(onBoard(row + direction[0], column + direction[1]))
+            {
+                mask |= 1L << (row * SIZE_OF_BOARD + column);
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Gets the squares a sliding piece on the given square attacks by
+     * walking each ray square by square. Only used to build the tables.
+     * @param square The square of the piece.
+     * @param occupancy The squares that block the piece.
+     * @param directions The rays of the piece.
+     * @return A bitboard of the attacked squares.
+     */
+    private static long rayAttacks(int square, long occupancy, int[][] directions)
+    {
+        long attacks = 0;
+
+        for(int[] direction : directions)
+        {
+            int row = square / SIZE_OF_BOARD + direction[0];
+            int column = square % SIZE_OF_BOARD + direction[1];
+
+            while(onBoard(row, column))
+            {
+                long bit = 1L << (row * SIZE_OF_BOARD + column);
+                attacks |= bit;
+
+                if((occupancy & bit) != 0)
+                {
+                    break;
+                }
+
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+
+        return attacks;
+    }
+
+    /**
+     * Checks if the given coordinates are inside the board.
+     * @param row The row.
+     * @param column The column.
+     * @return True if the coordinates are on the board.
+     */
+    private static boolean onBoard(int row, int column)
+    {
+        return row >= 0 && row < SIZE_OF_BOARD && column >= 0 && column < SIZE_OF_BOARD;
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * Class works out what a sequence of captures on one square is worth,
+ * without playing any moves on the board. This is called static exchange
+ * evaluation. Starting with a capture, both players keep capturing on the
+ * square with their least valuable piece, and each may stop when going on
+ * would lose material. Pieces behind the capturing ones, like a rook behind
+ * a queen on the same column, join in once the pieces in front have
+ * captured.
+ *
+ * Pins are not taken into account, so the result is an estimate, but it is
+ * cheap: a few table lookups for each capture in the sequence.
+ * @version 1.0
+ */
+public class StaticExchange
+{
+    /**The value the king has in an exchange. It is larger than everything
+     * else, so capturing with the king is tried last.*/
+    private static final int KING_VALUE = 20000;
+
+    /**The piece types in the order they are used to capture, from the least
+     * valuable one.*/
+    private static final PieceType[] CAPTURE_ORDER = {PieceType.pawn, PieceType.knight,
+        PieceType.bishop, PieceType.rook, PieceType.queen, PieceType.king};
+
+    /**
+     * Works out the material a move wins or loses once all the captures
+     * that follow it on the same square are played out.
+     * @param board The board, in the position the move is played from.
+     * @param move The move, packed as described in the Move class.
+     * @return The material won by the player making the move, in hundredths
+     * of a pawn. It is negative if the move loses material.
+     */
+    public static int evaluate(ChessBoard board, int move)
+    {
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        ChessPlayer us = board.getSideToMove();
+        long occupancy = board.getOccupied() ^ (1L << from);
+
+        int gain;
+        if(Move.isEnPassant(move))
+        {
+            gain = Evaluation.pieceValue(PieceType.pawn);
+            occupancy ^= 1L << ((from & ~7) | (to & 7));
+        }
+        else if(Move.isCapture(move))
+        {
+            gain = Evaluation.pieceValue(board.getPiece(to / 8, to % 8).getType());
+        }
+        else
+        {
+            gain = 0;
+        }
+
+        //a promoted pawn is worth the piece it becomes, on the square as well
+        PieceType mover = board.getPiece(from / 8, from % 8).getType();
+        int moverValue = value(mover);
+        PieceType promotion = Move.getPromotion(move);
+        if(promotion != null)
+        {
+            moverValue = Evaluation.pieceValue(promotion);
+            gain += moverValue - Evaluation.pieceValue(PieceType.pawn);
+        }
+
+        return exchange(board, to, BitBoard.opponent(us), occupancy, moverValue, gain);
+    }
+
+    /**
+     * Tells you if the piece on a square is hanging, meaning the opponent
+     * wins material by capturing it, even after all the recaptures.
+     * @param board The board.
+     * @param row The row of the piece.
+     * @param column The column of the piece.
+     * @return True if the opponent wins material by capturing the piece, false
+     * if it is safe or the square is empty.
+     */
+    public static boolean isHanging(ChessBoard board, int row, int column)
+    {
+        ChessPiece piece = board.getPiece(row, column);
+        if(piece == null || piece.getType() == PieceType.king)
+        {
+            return false;
+        }
+
+        int square = BitBoard.getSquare(row, column);
+        ChessPlayer them = BitBoard.opponent(piece.getPlayer());
+        long occupancy = board.getOccupied();
+
+        //the first capture is made by the least valuable attacker
+        long attackers = attackers(board, square, occupancy) & board.getPlayerPieces(them);
+        if(attackers == 0)
+        {
+            return false;
+        }
+
+        for(PieceType type : CAPTURE_ORDER)
+        {
+            long candidates = attackers & board.getPieces(them, type);
+            if(candidates != 0)
+            {
+                //the king can only capture a piece no other piece defends
+                if(type == PieceType.king && (attackers(board, square, occupancy ^ Long.lowestOneBit(candidates))
+                        & board.getPlayerPieces(piece.getPlayer())) != 0)
+                {
+                    return false;
+                }
+
+                occupancy ^= Long.lowestOneBit(candidates);
+                int gain = Evaluation.pieceValue(piece.getType());
+                return exchange(board, square, piece.getPlayer(), occupancy, value(type), gain) > 0;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Plays out the captures on a square after the first one, and works out
+     * the material the player who made the first capture ends up with.
+     *
+     * After each capture, the player whose turn it is may stop, keeping the
+     * material won so far, or go on. So the result is the material after the
+     * first capture, kept within a lower bound that rises when the first
+     * player could stop and an upper bound that falls when the other player
+     * could. The bounds are narrowed as the captures are played, so no list
+     * of them is kept, and once they meet the rest of the captures can not
+     * change the result.
+     * @param board The board.
+     * @param square The square.
+     * @param side The player who captures next.
+     * @param occupancy The occupied squares, without the pieces that have
+     * already captured.
+     * @param valueOnSquare The value of the piece that made the first capture.
+     * @param firstGain The material won by the first capture.
+     * @return The material won by the player who made the first capture, if
+     * both players stop capturing when it is best for them.
+     */
+    private static int exchange(ChessBoard board, int square, ChessPlayer side, long occupancy,
+            int valueOnSquare, int firstGain)
+    {
+        ChessPlayer first = BitBoard.opponent(side);
+        int balance = firstGain;
+        int lower = -KING_VALUE * 2;
+        int upper = firstGain;
+        long attackers = attackers(board, square, occupancy);
+
+        while(lower < upper)
+        {
+            long sideAttackers = attackers & board.getPlayerPieces(side);
+            if(sideAttackers == 0)
+            {
+                break;
+            }
+
+            //find the least valuable piece of the player that attacks the square
+            PieceType type = null;
+            long candidate = 0;
+            for(PieceType capturer : CAPTURE_ORDER)
+            {
+                long candidates = sideAttackers & board.getPieces(side, capturer);
+                if(candidates != 0)
+                {
+                    type = capturer;
+                    candidate = Long.lowestOneBit(candidates);
+                    break;
+                }
+            }
+
+            //the king can not capture onto a square the opponent still attacks
+            if(type == PieceType.king &&
+                    (attackers & board.getPlayerPieces(BitBoard.opponent(side)) & ~candidate) != 0)
+            {
+                break;
+            }
+
+            //the player who captured keeps the result if the other one stops now
+            if(side == first)
+            {
+                balance += valueOnSquare;
+                upper = Math.max(Math.min(upper, balance), lower);
+            }
+            else
+            {
+                balance -= valueOnSquare;
+                lower = Math.min(Math.max(lower, balance), upper);
+            }
+            valueOnSquare = value(type);
+
+            //pieces behind the one that captured can now reach the square
+            occupancy ^= candidate;
+            attackers = attackers(board, square, occupancy);
+            side = BitBoard.opponent(side);
+        }
+
+        return Math.max(lower, Math.min(balance, upper));
+    }
+
+    /**
+     * Finds the pieces of both players that attack a square and are still
+     * on the board.
+     * @param board The board.
+     * @param square The square.
+     * @param occupancy The occupied squares, without the pieces that have
+     * already captured.
+     * @return A bitboard of the attacking pieces.
+     */
+    private static long attackers(ChessBoard board, int square, long occupancy)
+    {
+        long queens = board.getPieces(ChessPlayer.white, PieceType.queen)
+                | board.getPieces(ChessPlayer.black, PieceType.queen);
+        long rooks = board.getPieces(ChessPlayer.white, PieceType.rook)
+                | board.getPieces(ChessPlayer.black, PieceType.rook) | queens;
+        long bishops = board.getPieces(ChessPlayer.white, PieceType.bishop)
+                | board.getPieces(ChessPlayer.black, PieceType.bishop) | queens;
+        long knights = board.getPieces(ChessPlayer.white, PieceType.knight)
+                | board.getPieces(ChessPlayer.black, PieceType.knight);
+        long kings = board.getPieces(ChessPlayer.white, PieceType.king)
+                | board.getPieces(ChessPlayer.black, PieceType.king);
+
+        //a pawn attacks the square if a pawn of the other colour on the square would attack it
+        long pawns = (BitBoard.pawnAttacks(ChessPlayer.black, square)
+                & board.getPieces(ChessPlayer.white, PieceType.pawn))
+                | (BitBoard.pawnAttacks(ChessPlayer.white, square)
+                & board.getPieces(ChessPlayer.black, PieceType.pawn));
+
+        long attackers = pawns
+                | (BitBoard.knightAttacks(square) & knights)
+                | (BitBoard.kingAttacks(square) & kings)
+                | (SlidingAttacks.rookAttacks(square, occupancy) & rooks)
+                | (SlidingAttacks.bishopAttacks(square, occupancy) & bishops);
+
+        return attackers & occupancy;
+    }
+
+    /**
+     * Gets the value of a piece type in an exchange.
+     * @param type The type.
+     * @return The value, which for the king is larger than any other.
+     */
+    private static int value(PieceType type)
+    {
+        return (type == PieceType.king) ? KING_VALUE : Evaluation.pieceValue(type);
+    }
+}
@@ -0,0 +1,538 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class holds an endgame tablebase: the distance to mate of every position
+ * with a given set of pieces, like a king and a queen against a king (KQK).
+ * The tables are made by a TablebaseGenerator and looked up through the
+ * Tablebases class, which also finds the table of the same pieces with the
+ * colours swapped.
+ *
+ * A material set is written with the letters of the pieces of the white
+ * player, starting with its king, followed by those of the black player, as
+ * in "KRKP". The table has one byte for each placement of the pieces and each
+ * side to move. Placements that are the same position seen in a mirror are
+ * stored once: without pawns the white king is moved into the triangle
+ * a1-d1-d4 by mirroring and turning the board, and with pawns, which can only
+ * be mirrored from left to right, onto the columns a to d.
+ *
+ * Each byte holds the result for the player to move: 0 for a draw, n from
+ * 1 to 127 for a win with mate in n plies, -1 - n for a loss with mate in n
+ * plies, and INVALID for placements that can not happen in a game, or that
+ * are stored under a mirrored placement.
+ * @version 1.0
+ */
+public class Tablebase
+{
+    /**The largest number of pieces, kings included, of a table.*/
+    public static final int MAX_PIECES = 4;
+
+    /**The result of a position that is not in any table.*/
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /**The result of a won position is WIN minus the plies until mate, and
+     * that of a lost position the negative of it, like the mate scores of the
+     * search. A draw is 0.*/
+    public static final int WIN = 1000;
+
+    /**The largest number of plies to mate a table can hold. A loss in
+     * more plies would be written as INVALID.*/
+    public static final int MAX_PLIES_TO_MATE = 126;
+
+    /**The byte of a placement that is not a position of the table.*/
+    static final byte INVALID = -128;
+
+    /**The number of different keys of the piece codes of a table, as given
+     * by key.*/
+    static final int KEY_COUNT = 1 << (4 * MAX_PIECES);
+
+    /**The letters of the pieces, in the order of PieceType.*/
+    static final String PIECE_LETTERS = "KQRBNP";
+
+    /**The values of the pieces, to decide which colour is the stronger
+     * one.*/
+    private static final int[] MATERIAL_VALUES = {0, 9, 5, 3, 3, 1};
+
+    /**The number of squares the white king is kept on without pawns, and
+     * the index of each of them, or -1 for the other squares.*/
+    private static final int TRIANGLE_SQUARES = 10;
+    private static final int[] TRIANGLE_INDEX = new int[64];
+    private static final int[] TRIANGLE = new int[TRIANGLE_SQUARES];
+
+    /**The number of squares the white king is kept on with pawns, the
+     * columns a to d, and the square of each index.*/
+    private static final int HALF_SQUARES = 32;
+    private static final int[] HALF = new int[HALF_SQUARES];
+
+    static
+    {
+        int count = 0;
+        for(int square = 0; square < 64; square++)
+        {
+            int row = square / 8;
+            int column = square % 8;
+
+            if(column < 4 && row <= column)
+            {
+                TRIANGLE[count] = square;
+                TRIANGLE_INDEX[square] = count++;
+            }
+            else
+            {
+                TRIANGLE_INDEX[square] = -1;
+            }
+        }
+
+        for(int i = 0; i < HALF_SQUARES; i++)
+        {
+            HALF[i] = i / 4 * 8 + i % 4;
+        }
+    }
+
+    /**The material set, as "KRKP".*/
+    private final String material;
+
+    /**The piece codes of the pieces, as given by BitBoard.pieceCode, in
+     * increasing order. This is the order of the squares of a placement:
+     * the white king first, and the black king after the white pieces.*/
+    private final int[] codes;
+
+    /**The key of the piece codes.*/
+    private final int key;
+
+    /**Whether there are pawns, which decides the mirrors that may be used.*/
+    private final boolean pawns;
+
+    /**The number of placements.*/
+    private final int size;
+
+    /**The results of each placement, for each side to move.*/
+    final byte[][] values;
+
+    /**
+     * Makes a table whose results are still to be worked out.
+     * @param material The material set, as "KRKP".
+     * @throws IllegalArgumentException Thrown if the material set is not
+     * valid.
+     */
+    Tablebase(String material) throws IllegalArgumentException
+    {
+        this.material = normalize(material);
+        codes = codesOf(this.material);
+        key = key(codes, codes.length);
+
+        pawns = this.material.indexOf('P') >= 0;
+        int placements = pawns ? HALF_SQUARES : TRIANGLE_SQUARES;
+        for(int i = 1; i < codes.length; i++)
+        {
+            placements *= 64;
+        }
+        size = placements;
+        values = new byte[2][size];
+    }
+
+    /**
+     * Reads a table written by write.
+     * @param material The material set of the table.
+     * @param file The path of the file.
+     * @return The table.
+     * @throws IOException Thrown if the file can not be read.
+     * @throws IllegalArgumentException Thrown if the material set is not
+     * valid, or the file does not have the size of its table.
+     */
+    public static Tablebase read(String material, Path file) throws IOException, IllegalArgumentException
+    {
+        Tablebase table = new Tablebase(material);
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if(channel.size() != 2L * table.size)
+            {
+                throw new IllegalArgumentException("The file " + file + " is not a " + table.material +
+                        " table!");
+            }
+
+            for(byte[] side : table.values)
+            {
+                ByteBuffer buffer = ByteBuffer.wrap(side);
+                while(buffer.hasRemaining() && channel.read(buffer) != -1)
+                {
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Writes the table: the bytes of the positions with white to move,
+     * followed by those with black to move.
+     * @param file The path of the file, which is replaced if it exists.
+     * @throws IOException Thrown if the file can not be written.
+     */
+    public void write(Path file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            for(byte[] side : values)
+            {
+                ByteBuffer buffer = ByteBuffer.wrap(side);
+                while(buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the material set of the table.
+     * @return The material set, as "KRKP".
+     */
+    public String getMaterial()
+    {
+        return material;
+    }
+
+    /**
+     * Gets the number of placements of the table, for each side to move.
+     * @return The number of placements.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the piece codes of the table, in the order of the squares of a
+     * placement.
+     * @return A copy of the piece codes.
+     */
+    int[] getCodes()
+    {
+        return codes.clone();
+    }
+
+    /**
+     * Gets the key of the piece codes of the table.
+     * @return The key, as given by key.
+     */
+    int getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Tells you if the table has pawns.
+     * @return True if it has pawns.
+     */
+    boolean hasPawns()
+    {
+        return pawns;
+    }
+
+    /**
+     * Gets the result of a position from the table.
+     * @param squares The squares of the pieces, in the order of the piece
+     * codes of the table.
+     * @param side The player to move.
+     * @param work An array of at least 2 * MAX_PIECES numbers to work in.
+     * @return The byte of the position.
+     */
+    byte getValue(int[] squares, ChessPlayer side, int[] work)
+    {
+        return values[side.ordinal()][index(squares, work)];
+    }
+
+    /**
+     * Works out the index of a placement, after mirroring it into the part
+     * of the board the white king is kept on. A placement that is the same
+     * as another by mirroring, or by swapping pieces of the same kind, always
+     * gets the same index.
+     * @param squares The squares of the pieces, in the order of the piece
+     * codes of the table. The array is not changed.
+     * @param work An array of at least 2 * MAX_PIECES numbers to work in.
+     * @return The index of the placement.
+     */
+    int index(int[] squares, int[] work)
+    {
+        int count = codes.length;
+        int king = squares[0];
+        int mirror = 0;
+
+        if(king % 8 > 3)
+        {
+            mirror ^= 7;
+        }
+        if(!pawns && king / 8 > 3)
+        {
+            mirror ^= 56;
+        }
+        king ^= mirror;
+        boolean turn = !pawns && king / 8 > king % 8;
+
+        for(int i = 0; i < count; i++)
+        {
+            int square = squares[i] ^ mirror;
+            work[i] = turn ? transpose(square) : square;
+        }
+
+        int index = rawIndex(work, 0);
+
+        //with the white king on the diagonal, the placement turned over the diagonal is as good
+        if(!pawns && work[0] / 8 == work[0] % 8)
+        {
+            for(int i = 0; i < count; i++)
+            {
+                work[count + i] = transpose(work[i]);
+            }
+            index = Math.min(index, rawIndex(work, count));
+        }
+        return index;
+    }
+
+    /**
+     * Works out the index of a placement whose white king is already on one
+     * of the squares it is kept on.
+     * @param work The array holding the squares.
+     * @param start Where the squares start in the array. Squares of pieces of
+     * the same kind are sorted in place.
+     * @return The index.
+     */
+    private int rawIndex(int[] work, int start)
+    {
+        int count = codes.length;
+
+        //pieces of the same kind can be swapped, so they are put in order of their squares
+        for(int i = 1; i < count; i++)
+        {
+            for(int j = i; j > 0 && codes[j] == codes[j - 1] && work[start + j] < work[start + j - 1]; j--)
+            {
+                int square = work[start + j];
+                work[start + j] = work[start + j - 1];
+                work[start + j - 1] = square;
+            }
+        }
+
+        int index = pawns ? work[start] / 8 * 4 + work[start] % 8 : TRIANGLE_INDEX[work[start]];
+        for(int i = 1; i < count; i++)
+        {
+            index = index * 64 + work[start + i];
+        }
+        return index;
+    }
+
+    /**
+     * Gets the placement of an index.
+     * @param index The index.
+     * @param squares The array the squares of the pieces are written to, in
+     * the order of the piece codes of the table.
+     */
+    void placement(int index, int[] squares)
+    {
+        for(int i = codes.length - 1; i > 0; i--)
+        {
+            squares[i] = index & 63;
+            index >>>= 6;
+        }
+        squares[0] = pawns ? HALF[index] : TRIANGLE[index];
+    }
+
+    /**
+     * Turns a square over the a1-h8 diagonal.
+     * @param square The square.
+     * @return The square with its row and column swapped.
+     */
+    private static int transpose(int square)
+    {
+        return (square % 8) * 8 + square / 8;
+    }
+
+    /**
+     * Turns a byte of a table into a result.
+     * @param value The byte.
+     * @return 0 for a draw, WIN minus the plies to mate for a win, and the
+     * negative of it for a loss.
+     */
+    static int toResult(byte value)
+    {
+        if(value == 0)
+        {
+            return 0;
+        }
+        return (value > 0) ? WIN - value : -(WIN + value + 1);
+    }
+
+    /**
+     * Gets the number of plies until mate of a result.
+     * @param result A result, other than a draw or UNKNOWN.
+     * @return The number of plies, counting the moves of both players.
+     */
+    public static int pliesToMate(int result)
+    {
+        return WIN - Math.abs(result);
+    }
+
+    /**
+     * Checks a material set and writes it the way the tables are named: the
+     * pieces of each player after its king in the order of PieceType, as in
+     * "KQRKP".
+     * @param material The material set, as "KRKP".
+     * @return The material set in order.
+     * @throws IllegalArgumentException Thrown if it does not have two kings,
+     * one at the start, has letters other than those of the pieces, or has
+     * more than MAX_PIECES pieces.
+     */
+    public static String normalize(String material) throws IllegalArgumentException
+    {
+        String upper = material.toUpperCase();
+        int blackKing = upper.indexOf('K', 1);
+
+        if(!upper.startsWith("K") || blackKing < 0 || upper.indexOf('K', blackKing + 1) >= 0 ||
+                upper.length() > MAX_PIECES)
+        {
+            throw new IllegalArgumentException("Bad material set " + material +
+                    ": it must be like KRKP, with at most " + MAX_PIECES + " pieces!");
+        }
+
+        return "K" + sortPieces(upper.substring(1, blackKing), material) + "K" +
+                sortPieces(upper.substring(blackKing + 1), material);
+    }
+
+    /**
+     * Sorts the letters of the pieces of one player in the order of
+     * PieceType.
+     * @param pieces The letters, without the king.
+     * @param material The whole material set, for the message of an error.
+     * @return The letters in order.
+     * @throws IllegalArgumentException Thrown if a letter is not a piece
+     * other than the king.
+     */
+    private static String sortPieces(String pieces, String material) throws IllegalArgumentException
+    {
+        StringBuilder sorted = new StringBuilder();
+
+        for(int type = 1; type < PIECE_LETTERS.length(); type++)
+        {
+            for(int i = 0; i < pieces.length(); i++)
+            {
+                if(pieces.charAt(i) == PIECE_LETTERS.charAt(type))
+                {
+                    sorted.append(pieces.charAt(i));
+                }
+            }
+        }
+        if(sorted.length() != pieces.length())
+        {
+            throw new IllegalArgumentException("Bad material set " + material + ": unknown piece!");
+        }
+        return sorted.toString();
+    }
+
+    /**
+     * Swaps the colours of a material set.
+     * @param material The material set in order, as given by normalize.
+     * @return The material set of the other player, as "KPKR" for "KRKP".
+     */
+    public static String swapColours(String material)
+    {
+        int blackKing = material.indexOf('K', 1);
+        return material.substring(blackKing) + material.substring(0, blackKing);
+    }
+
+    /**
+     * Gets the material set a table is made for: of a set and the set with
+     * its colours swapped, only one has a table, the one in which the white
+     * player is the stronger one.
+     * @param material The material set in order, as given by normalize.
+     * @return The material set of the table.
+     */
+    public static String tableMaterial(String material)
+    {
+        String swapped = swapColours(material);
+        int blackKing = material.indexOf('K', 1);
+        int balance = 0;
+
+        for(int i = 0; i < material.length(); i++)
+        {
+            int value = MATERIAL_VALUES[PIECE_LETTERS.indexOf(material.charAt(i))];
+            balance += (i < blackKing) ? value : -value;
+        }
+
+        if(balance > 0 || (balance == 0 && material.compareTo(swapped) <= 0))
+        {
+            return material;
+        }
+        return swapped;
+    }
+
+    /**
+     * Gets the piece codes of a material set.
+     * @param material The material set in order, as given by normalize.
+     * @return The piece codes, in increasing order.
+     */
+    static int[] codesOf(String material)
+    {
+        int[] codes = new int[material.length()];
+        int blackKing = material.indexOf('K', 1);
+
+        for(int i = 0; i < codes.length; i++)
+        {
+            ChessPlayer player = (i < blackKing) ? ChessPlayer.white : ChessPlayer.black;
+            PieceType type = PieceType.values()[PIECE_LETTERS.indexOf(material.charAt(i))];
+            codes[i] = BitBoard.pieceCode(player, type);
+        }
+        return codes;
+    }
+
+    /**
+     * Packs piece codes into a number, to find the table of some pieces
+     * without making a material set.
+     * @param codes The piece codes, in increasing order.
+     * @param count The number of pieces, at most MAX_PIECES.
+     * @return A number below KEY_COUNT.
+     */
+    static int key(int[] codes, int count)
+    {
+        int key = 0;
+        for(int i = 0; i < count; i++)
+        {
+            key |= (codes[i] + 1) << (4 * i);
+        }
+        return key;
+    }
+
+    /**
+     * Writes the material set of some pieces.
+     * @param codes The piece codes of the pieces, in any order.
+     * @param count The number of pieces.
+     * @return The material set in order, as given by normalize, or null if
+     * the pieces do not have exactly one king of each colour.
+     */
+    static String materialOf(int[] codes, int count)
+    {
+        StringBuilder white = new StringBuilder();
+        StringBuilder black = new StringBuilder();
+
+        for(int code = 0; code < 12; code++)
+        {
+            for(int i = 0; i < count; i++)
+            {
+                if(codes[i] == code)
+                {
+                    (code < 6 ? white : black).append(PIECE_LETTERS.charAt(code % 6));
+                }
+            }
+        }
+
+        if(white.indexOf("K") != 0 || black.indexOf("K") != 0 || white.lastIndexOf("K") != 0 ||
+                black.lastIndexOf("K") != 0)
+        {
+            return null;
+        }
+        return white.append(black).toString();
+    }
+}
@@ -0,0 +1,897 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class makes endgame tablebases by retrograde analysis. First every
+ * position of a table is looked at once: mates are found, and the moves
+ * that leave the table, captures and promotions, are looked up in the
+ * smaller tables, which are made first if they are missing. Then, one ply
+ * at a time, the results are spread backwards: a position from which a
+ * move reaches a lost position is won, and a position all of whose moves
+ * reach won positions is lost. To find the positions a move can come from,
+ * the moves are played backwards, so each position is only looked at once
+ * more, when its result becomes known. The positions still without a result
+ * at the end are draws.
+ *
+ * Each step is shared between threads, which take the positions in blocks.
+ * Moves played backwards from different positions can reach the same
+ * position at the same time, so the count of moves still to be resolved of
+ * a position is changed under a lock, one of a fixed set picked by the
+ * index of the position.
+ *
+ * Tables where both players have pawns are not made, since they would need
+ * the en passant captures, which the tables do not hold.
+ * @version 1.0
+ */
+public class TablebaseGenerator
+{
+    /**The number of positions a thread takes at a time.*/
+    private static final int BLOCK_SIZE = 1 << 14;
+
+    /**The number of locks the counts of moves are changed under.*/
+    private static final int LOCKS = 1 << 12;
+
+    /**The count of moves of a position that has a move that draws, and so
+     * can not be lost.*/
+    private static final byte NEVER_LOST = Byte.MAX_VALUE;
+
+    /**The largest number of plies to mate a table can hold.*/
+    private static final int MAX_DEPTH = Tablebase.MAX_PLIES_TO_MATE;
+
+    /**The piece types of PieceType, by ordinal.*/
+    private static final PieceType[] TYPES = PieceType.values();
+
+    /**The types a pawn can be promoted to.*/
+    private static final PieceType[] PROMOTIONS = {PieceType.queen, PieceType.rook, PieceType.bishop,
+        PieceType.knight};
+
+    /**The tables made or read so far, used for the moves that leave a
+     * table.*/
+    private final Tablebases tablebases;
+
+    /**The number of threads.*/
+    private final int threads;
+
+    /**The directory the tables are written to, or null.*/
+    private final Path directory;
+
+    /**The locks of the counts of moves.*/
+    private final Object[] locks = new Object[LOCKS];
+
+    /**
+     * Makes a new generator.
+     * @param tablebases The tables that are already made. The tables that
+     * are made are added to them.
+     * @param threads The number of threads.
+     * @param directory The directory each table is written to once it is
+     * made, as its material set followed by Tablebases.EXTENSION, or null to
+     * keep them in memory only.
+     * @throws IllegalArgumentException Thrown if there are no threads.
+     */
+    public TablebaseGenerator(Tablebases tablebases, int threads, Path directory)
+            throws IllegalArgumentException
+    {
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("There must be at least one thread!");
+        }
+
+        this.tablebases = tablebases;
+        this.threads = threads;
+        this.directory = directory;
+
+        for(int i = 0; i < LOCKS; i++)
+        {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Makes the table of a material set, and the smaller tables it needs,
+     * unless they are already made.
+     * @param material The material set, as "KRKP". The table is made for the
+     * set or the set with the colours swapped, as Tablebase.tableMaterial.
+     * @return The table.
+     * @throws IllegalArgumentException Thrown if the material set is not
+     * valid, or both players have pawns.
+     * @throws IOException Thrown if a table can not be written.
+     * @throws InterruptedException Thrown if the thread is interrupted.
+     */
+    public Tablebase generate(String material) throws IllegalArgumentException, IOException,
+            InterruptedException
+    {
+        String tableMaterial = Tablebase.tableMaterial(Tablebase.normalize(material));
+        Tablebase table = tablebases.get(tableMaterial);
+        if(table != null)
+        {
+            return table;
+        }
+
+        int blackKing = tableMaterial.indexOf('K', 1);
+        if(tableMaterial.lastIndexOf('P', blackKing) >= 0 && tableMaterial.indexOf('P', blackKing) >= 0)
+        {
+            throw new IllegalArgumentException("Tables where both players have pawns are not supported!");
+        }
+
+        table = new Tablebase(tableMaterial);
+        int[] codes = table.getCodes();
+        for(int[] child : childCodes(codes))
+        {
+            if(child.length > 2)
+            {
+                generate(Tablebase.materialOf(child, child.length));
+            }
+        }
+
+        build(table);
+        tablebases.add(table);
+        if(directory != null)
+        {
+            table.write(directory.resolve(tableMaterial + Tablebases.EXTENSION));
+        }
+        return table;
+    }
+
+    /**
+     * Works out the results of a table.
+     * @param table The table, whose smaller tables must all be made.
+     * @throws InterruptedException Thrown if the thread is interrupted.
+     */
+    private void build(Tablebase table) throws InterruptedException
+    {
+        Build build = new Build(table);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try
+        {
+            int maxDepth = runStep(pool, table, scratch -> build.initialize(scratch));
+
+            for(int depth = 0; depth <= maxDepth; depth++)
+            {
+                int step = depth;
+                maxDepth = Math.max(maxDepth, runStep(pool, table, scratch -> build.propagate(step, scratch)));
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs a step of the analysis on all the positions of a table, for both
+     * sides to move, on all the threads.
+     * @param pool The threads.
+     * @param table The table.
+     * @param work What is done to each position, given the scratch of the
+     * thread with the side and index of the position, and giving the largest
+     * number of plies to mate it set.
+     * @return The largest number of plies to mate set in the step.
+     * @throws InterruptedException Thrown if the thread is interrupted.
+     */
+    private int runStep(ExecutorService pool, Tablebase table, Step work) throws InterruptedException
+    {
+        int blocksPerSide = (table.getSize() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        AtomicInteger nextBlock = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+
+        for(int i = 0; i < threads; i++)
+        {
+            tasks.add(() ->
+            {
+                Scratch scratch = new Scratch();
+                int maxDepth = 0;
+                int block;
+
+                while((block = nextBlock.getAndIncrement()) < 2 * blocksPerSide)
+                {
+                    scratch.side = (block < blocksPerSide) ? ChessPlayer.white : ChessPlayer.black;
+                    int start = (block % blocksPerSide) * BLOCK_SIZE;
+                    int end = Math.min(start + BLOCK_SIZE, table.getSize());
+
+                    for(scratch.index = start; scratch.index < end; scratch.index++)
+                    {
+                        maxDepth = Math.max(maxDepth, work.apply(scratch));
+                    }
+                }
+                return maxDepth;
+            });
+        }
+
+        int maxDepth = 0;
+        for(Future<Integer> result : pool.invokeAll(tasks))
+        {
+            try
+            {
+                maxDepth = Math.max(maxDepth, result.get());
+            }
+            catch(ExecutionException e)
+            {
+                throw new IllegalStateException("Making the table failed", e.getCause());
+            }
+        }
+
+        if(maxDepth > MAX_DEPTH)
+        {
+            throw new IllegalStateException("A mate is too long for the table!");
+        }
+        return maxDepth;
+    }
+
+    /**
+     * Lists the piece codes left after each capture and promotion that can
+     * happen in a table.
+     * @param codes The piece codes of the table.
+     * @return The piece codes of the positions after the moves, each in
+     * increasing order.
+     */
+    private static List<int[]> childCodes(int[] codes)
+    {
+        List<int[]> children = new ArrayList<int[]>();
+
+        for(int captured = -1; captured < codes.length; captured++)
+        {
+            if(captured >= 0 && codes[captured] % 6 == PieceType.king.ordinal())
+            {
+                continue;
+            }
+
+            if(captured >= 0)
+            {
+                children.add(replace(codes, captured, -1, -1));
+            }
+
+            for(int pawn = 0; pawn < codes.length; pawn++)
+            {
+                //only a pawn can be promoted, capturing a piece of the other colour or nothing
+                if(pawn == captured || codes[pawn] % 6 != PieceType.pawn.ordinal() ||
+                        (captured >= 0 && codes[captured] / 6 == codes[pawn] / 6))
+                {
+                    continue;
+                }
+                for(PieceType type : PROMOTIONS)
+                {
+                    children.add(replace(codes, captured, pawn, codes[pawn] - PieceType.pawn.ordinal() +
+                            type.ordinal()));
+                }
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Makes the piece codes after a capture or promotion.
+     * @param codes The piece codes before.
+     * @param captured The index of the captured piece, or -1.
+     * @param promoted The index of the promoted pawn, or -1.
+     * @param code The code of the piece the pawn is promoted to.
+     * @return The new piece codes, in increasing order.
+     */
+    private static int[] replace(int[] codes, int captured, int promoted, int code)
+    {
+        int[] child = new int[codes.length - (captured >= 0 ? 1 : 0)];
+        int count = 0;
+
+        for(int i = 0; i < codes.length; i++)
+        {
+            if(i != captured)
+            {
+                child[count++] = (i == promoted) ? code : codes[i];
+            }
+        }
+        Arrays.sort(child);
+        return child;
+    }
+
+    /**
+     * Gets the squares a piece attacks.
+     * @param code The piece code of the piece.
+     * @param square The square of the piece.
+     * @param occupied The occupied squares.
+     * @return A bitboard of the attacked squares.
+     */
+    private static long attacks(int code, int square, long occupied)
+    {
+        switch(TYPES[code % 6])
+        {
+            case king:
+                return BitBoard.kingAttacks(square);
+            case queen:
+                return SlidingAttacks.queenAttacks(square, occupied);
+            case rook:
+                return SlidingAttacks.rookAttacks(square, occupied);
+            case bishop:
+                return SlidingAttacks.bishopAttacks(square, occupied);
+            case knight:
+                return BitBoard.knightAttacks(square);
+            default:
+                return BitBoard.pawnAttacks((code < 6) ? ChessPlayer.white : ChessPlayer.black, square);
+        }
+    }
+
+    /**
+     * What a step of the analysis does to one position.
+     */
+    private interface Step
+    {
+        /**
+         * Works on one position.
+         * @param scratch The scratch of the thread, with the side to move and
+         * the index of the position.
+         * @return The largest number of plies to mate set, or 0.
+         */
+        int apply(Scratch scratch);
+    }
+
+    /**
+     * Class holds the arrays a thread works in.
+     */
+    private static class Scratch
+    {
+        /**The position being worked on.*/
+        ChessPlayer side;
+        int index;
+
+        /**The squares of the pieces, and of the pieces after a move.*/
+        final int[] squares = new int[Tablebase.MAX_PIECES];
+        final int[] moved = new int[Tablebase.MAX_PIECES];
+
+        /**The pieces of a position reached by a capture or promotion.*/
+        final int[] childCodes = new int[Tablebase.MAX_PIECES];
+        final int[] childSquares = new int[Tablebase.MAX_PIECES];
+
+        /**Room for Tablebase.index and Tablebases.probe to work in.*/
+        final int[] work = new int[2 * Tablebase.MAX_PIECES];
+
+        /**The indexes of the positions reached by moves, forwards or
+         * backwards.*/
+        final int[] indexes = new int[MoveGenerator.MAX_MOVES];
+    }
+
+    /**
+     * Class holds what is known about the positions of a table while it is
+     * made.
+     */
+    private class Build
+    {
+        /**The table.*/
+        private final Tablebase table;
+
+        /**The piece codes of the table, and the index of the black king.*/
+        private final int[] codes;
+        private final int blackKing;
+
+        /**For each position, the number of moves that stay in the table whose
+         * result is not known yet, or NEVER_LOST.*/
+        private final byte[][] counts;
+
+        /**For each position, the most plies to mate of the moves that leave
+         * the table and lose.*/
+        private final byte[][] exitLosses;
+
+        /**The tables of the positions reached by captures and promotions, by
+         * Tablebase.key, and whether their colours are swapped. A null table is
+         * for the two kings alone.*/
+        private final Tablebase[] children = new Tablebase[Tablebase.KEY_COUNT];
+        private final boolean[] swapped = new boolean[children.length];
+
+        /**
+         * Gets ready to make a table.
+         * @param table The table.
+         */
+        Build(Tablebase table)
+        {
+            this.table = table;
+            codes = table.getCodes();
+            int king = 1;
+            while(codes[king] / 6 == 0)
+            {
+                king++;
+            }
+            blackKing = king;
+            counts = new byte[2][table.getSize()];
+            exitLosses = new byte[2][table.getSize()];
+
+            for(int[] child : childCodes(codes))
+            {
+                int key = Tablebase.key(child, child.length);
+
+                if(child.length > 2)
+                {
+                    String material = Tablebase.materialOf(child, child.length);
+                    children[key] = tablebases.get(material);
+                    swapped[key] = !children[key].getMaterial().equals(material);
+                }
+            }
+        }
+
+        /**
+         * Looks at a position for the first time: marks it as invalid, or
+         * counts its moves that stay in the table and looks up those that
+         * leave it.
+         * @param scratch The scratch, with the position.
+         * @return The plies to mate set, or 0.
+         */
+        int initialize(Scratch scratch)
+        {
+            int side = scratch.side.ordinal();
+            int index = scratch.index;
+            int[] squares = scratch.squares;
+            byte[] values = table.values[side];
+            table.placement(index, squares);
+
+            long occupied = 0;
+            for(int i = 0; i < codes.length; i++)
+            {
+                long bit = 1L << squares[i];
+                int row = squares[i] / 8;
+
+                if((occupied & bit) != 0 ||
+                        (codes[i] % 6 == PieceType.pawn.ordinal() && (row == 0 || row == 7)))
+                {
+                    values[index] = Tablebase.INVALID;
+                    return 0;
+                }
+                occupied |= bit;
+            }
+
+            int ownKing = (side == 0) ? 0 : blackKing;
+            int enemyKing = (side == 0) ? blackKing : 0;
+
+            //mirrored placements are stored once, and the player who just moved can not be in check
+            if(table.index(squares, scratch.work) != index ||
+                    isAttacked(squares[enemyKing], side, squares, occupied, -1))
+            {
+                values[index] = Tablebase.INVALID;
+                return 0;
+            }
+
+            int internal = 0;
+            int bestWin = 0;
+            int worstLoss = 0;
+            boolean draws = false;
+            boolean anyMove = false;
+
+            for(int piece = 0; piece < codes.length; piece++)
+            {
+                if(codes[piece] / 6 != side)
+                {
+                    continue;
+                }
+
+                long targets = targets(piece, squares, occupied, side);
+                while(targets != 0)
+                {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+
+                    int captured = pieceOn(to, squares);
+                    long after = (occupied & ~(1L << squares[piece])) | (1L << to);
+                    int king = (piece == ownKing) ? to : squares[ownKing];
+
+                    if(isAttacked(king, 1 - side, squares, after, captured))
+                    {
+                        continue;
+                    }
+                    anyMove = true;
+
+                    boolean promotion = codes[piece] % 6 == PieceType.pawn.ordinal() && (to / 8 == 0 || to / 8 == 7);
+                    if(captured < 0 && !promotion)
+                    {
+                        System.arraycopy(squares, 0, scratch.moved, 0, codes.length);
+                        scratch.moved[piece] = to;
+                        scratch.indexes[internal++] = table.index(scratch.moved, scratch.work);
+                        continue;
+                    }
+
+                    for(int p = 0; p < (promotion ? PROMOTIONS.length : 1); p++)
+                    {
+                        int code = promotion ? codes[piece] - PieceType.pawn.ordinal() + PROMOTIONS[p].ordinal() :
+                                codes[piece];
+                        int result = exitResult(scratch, piece, to, code, captured, 1 - side);
+
+                        if(result == 0)
+                        {
+                            draws = true;
+                        }
+                        else if(result > 0)
+                        {
+                            worstLoss = Math.max(worstLoss, Tablebase.pliesToMate(result) + 1);
+                        }
+                        else
+                        {
+                            int win = Tablebase.pliesToMate(result) + 1;
+                            bestWin = (bestWin == 0) ? win : Math.min(bestWin, win);
+                        }
+                    }
+                }
+            }
+
+            if(!anyMove)
+            {
+                boolean inCheck = isAttacked(squares[ownKing], 1 - side, squares, occupied, -1);
+                counts[side][index] = NEVER_LOST;
+                values[index] = inCheck ? (byte)-1 : 0;
+                return 0;
+            }
+
+            int distinct = distinct(scratch.indexes, internal);
+            counts[side][index] = draws ? NEVER_LOST : (byte)distinct;
+            exitLosses[side][index] = (byte)Math.min(worstLoss, MAX_DEPTH + 1);
+
+            if(bestWin > 0)
+            {
+                values[index] = (byte)Math.min(bestWin, MAX_DEPTH + 1);
+                return bestWin;
+            }
+            if(distinct == 0 && !draws)
+            {
+                values[index] = (byte)-(Math.min(worstLoss, MAX_DEPTH + 1) + 1);
+                return worstLoss;
+            }
+            return 0;
+        }
+
+        /**
+         * Spreads the result of a position to the positions its last move
+         * can come from, if the position is won or lost in the given number
+         * of plies.
+         * @param depth The plies to mate of the positions spread in this step.
+         * @param scratch The scratch, with the position.
+         * @return The plies to mate set, or 0.
+         */
+        int propagate(int depth, Scratch scratch)
+        {
+            int side = scratch.side.ordinal();
+            int index = scratch.index;
+            byte value = table.values[side][index];
+            boolean lost = depth % 2 == 0;
+
+            if(value != (lost ? -(depth + 1) : depth))
+            {
+                return 0;
+            }
+
+            int[] squares = scratch.squares;
+            table.placement(index, squares);
+            long occupied = 0;
+            for(int i = 0; i < codes.length; i++)
+            {
+                occupied |= 1L << squares[i];
+            }
+
+            //the moves backwards of the other player, which can not be captures or promotions
+            int other = 1 - side;
+            int count = 0;
+            for(int piece = 0; piece < codes.length; piece++)
+            {
+                if(codes[piece] / 6 != other)
+                {
+                    continue;
+                }
+
+                long origins = origins(piece, squares, occupied, other);
+                while(origins != 0)
+                {
+                    System.arraycopy(squares, 0, scratch.moved, 0, codes.length);
+                    scratch.moved[piece] = Long.numberOfTrailingZeros(origins);
+                    origins &= origins - 1;
+                    scratch.indexes[count++] = table.index(scratch.moved, scratch.work);
+                }
+            }
+            count = distinct(scratch.indexes, count);
+
+            byte[] values = table.values[other];
+            int maxDepth = 0;
+            for(int i = 0; i < count; i++)
+            {
+                int previous = scratch.indexes[i];
+                byte result = values[previous];
+
+                if(result == Tablebase.INVALID)
+                {
+                    continue;
+                }
+
+                if(lost)
+                {
+                    if(result == 0 || result > depth + 1)
+                    {
+                        values[previous] = (byte)(depth + 1);
+                        maxDepth = depth + 1;
+                    }
+                }
+                else
+                {
+                    synchronized(locks[previous & (LOCKS - 1)])
+                    {
+                        if(values[previous] == 0 && counts[other][previous] != NEVER_LOST &&
+                                --counts[other][previous] == 0)
+                        {
+                            int loss = Math.max(depth + 1, exitLosses[other][previous]);
+                            values[previous] = (byte)-(Math.min(loss, MAX_DEPTH + 1) + 1);
+                            maxDepth = Math.max(maxDepth, loss);
+                        }
+                    }
+                }
+            }
+            return maxDepth;
+        }
+
+        /**
+         * Looks up the result of a capture or promotion in the smaller table.
+         * @param scratch The scratch, with the squares of the position.
+         * @param piece The index of the piece that moves.
+         * @param to The square it moves to.
+         * @param code The piece code it has after the move.
+         * @param captured The index of the captured piece, or -1.
+         * @param next The side to move after the move.
+         * @return The result for the side to move after the move.
+         */
+        private int exitResult(Scratch scratch, int piece, int to, int code, int captured, int next)
+        {
+            int[] childCodes = scratch.childCodes;
+            int[] childSquares = scratch.childSquares;
+            int count = 0;
+
+            for(int i = 0; i < codes.length; i++)
+            {
+                if(i == captured)
+                {
+                    continue;
+                }
+
+                int pieceCode = (i == piece) ? code : codes[i];
+                int square = (i == piece) ? to : scratch.squares[i];
+                int j = count++;
+
+                //the pieces are kept in increasing order of their codes
+                while(j > 0 && childCodes[j - 1] > pieceCode)
+                {
+                    childCodes[j] = childCodes[j - 1];
+                    childSquares[j] = childSquares[j - 1];
+                    j--;
+                }
+                childCodes[j] = pieceCode;
+                childSquares[j] = square;
+            }
+
+            if(count == 2)
+            {
+                return 0;
+            }
+
+            int key = Tablebase.key(childCodes, count);
+            Tablebase child = children[key];
+            if(swapped[key])
+            {
+                Tablebases.swapColours(childCodes, childSquares, count);
+                next = 1 - next;
+            }
+
+            byte value = child.getValue(childSquares, ChessPlayer.values()[next], scratch.work);
+            if(value == Tablebase.INVALID)
+            {
+                throw new IllegalStateException("A legal move led to an invalid position of " +
+                        child.getMaterial() + "!");
+            }
+            return Tablebase.toResult(value);
+        }
+
+        /**
+         * Gets the squares a piece can move to, not counting whether its king
+         * is left in check.
+         * @param piece The index of the piece.
+         * @param squares The squares of the pieces.
+         * @param occupied The occupied squares.
+         * @param side The colour of the piece, 0 for white.
+         * @return A bitboard of the squares.
+         */
+        private long targets(int piece, int[] squares, long occupied, int side)
+        {
+            int square = squares[piece];
+            long own = 0;
+            long enemy = 0;
+            for(int i = 0; i < codes.length; i++)
+            {
+                if(codes[i] / 6 == side)
+                {
+                    own |= 1L << squares[i];
+                }
+                else
+                {
+                    enemy |= 1L << squares[i];
+                }
+            }
+
+            if(codes[piece] % 6 != PieceType.pawn.ordinal())
+            {
+                return attacks(codes[piece], square, occupied) & ~own;
+            }
+
+            int step = (side == 0) ? 8 : -8;
+            int startRow = (side == 0) ? 1 : 6;
+            long moves = attacks(codes[piece], square, occupied) & enemy;
+
+            if((occupied & (1L << (square + step))) == 0)
+            {
+                moves |= 1L << (square + step);
+
+                if(square / 8 == startRow && (occupied & (1L << (square + 2 * step))) == 0)
+                {
+                    moves |= 1L << (square + 2 * step);
+                }
+            }
+            return moves;
+        }
+
+        /**
+         * Gets the squares a piece can have come from with a move that is not
+         * a capture or a promotion.
+         * @param piece The index of the piece.
+         * @param squares The squares of the pieces.
+         * @param occupied The occupied squares.
+         * @param side The colour of the piece, 0 for white.
+         * @return A bitboard of the squares.
+         */
+        private long origins(int piece, int[] squares, long occupied, int side)
+        {
+            int square = squares[piece];
+
+            if(codes[piece] % 6 != PieceType.pawn.ordinal())
+            {
+                //moves are the same backwards, and the squares passed over are empty both ways
+                return attacks(codes[piece], square, occupied) & ~occupied;
+            }
+
+            int step = (side == 0) ? -8 : 8;
+            int row = square / 8;
+            long origins = 0;
+
+            //a pawn can not have come from its first row, and moved two squares only from its start
+            if((side == 0) ? row >= 2 : row <= 5)
+            {
+                if((occupied & (1L << (square + step))) == 0)
+                {
+                    origins |= 1L << (square + step);
+
+                    if(row == ((side == 0) ? 3 : 4) && (occupied & (1L << (square + 2 * step))) == 0)
+                    {
+                        origins |= 1L << (square + 2 * step);
+                    }
+                }
+            }
+            return origins;
+        }
+
+        /**
+         * Finds the piece on a square.
+         * @param square The square.
+         * @param squares The squares of the pieces.
+         * @return The index of the piece, or -1 if the square is empty.
+         */
+        private int pieceOn(int square, int[] squares)
+        {
+            for(int i = 0; i < codes.length; i++)
+            {
+                if(squares[i] == square)
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Tells you if a square is attacked by the pieces of a colour.
+         * @param square The square.
+         * @param side The colour of the attacking pieces, 0 for white.
+         * @param squares The squares of the pieces.
+         * @param occupied The occupied squares.
+         * @param captured The index of a piece that was captured and does not
+         * attack, or -1.
+         * @return True if the square is attacked.
+         */
+        private boolean isAttacked(int square, int side, int[] squares, long occupied, int captured)
+        {
+            for(int i = 0; i < codes.length; i++)
+            {
+                if(i != captured && codes[i] / 6 == side &&
+                        (attacks(codes[i], squares[i], occupied) & (1L << square)) != 0)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Sorts some numbers and removes the repeated ones.
+     * @param numbers The numbers.
+     * @param count The number of numbers.
+     * @return The number of different numbers, which are at the start of the
+     * array.
+     */
+    private static int distinct(int[] numbers, int count)
+    {
+        Arrays.sort(numbers, 0, count);
+        int distinct = 0;
+        for(int i = 0; i < count; i++)
+        {
+            if(distinct == 0 || numbers[i] != numbers[distinct - 1])
+            {
+                numbers[distinct++] = numbers[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Makes tables and writes them to a directory, with the smaller tables
+     * they need.
+     * @param args The path of the directory, the material sets, like KQK or
+     * KRKP, then optionally "threads <count>".
+     * @throws IOException Thrown if a table can not be read or written.
+     * @throws InterruptedException Thrown if the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if(args.length < 2)
+        {
+            System.out.println("Usage: java TablebaseGenerator <directory> <material>... [threads <count>]");
+            return;
+        }
+
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+        Tablebases tablebases = Tablebases.read(directory);
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> materials = new ArrayList<String>();
+
+        for(int i = 1; i < args.length; i++)
+        {
+            if(args[i].equals("threads") && i + 1 < args.length)
+            {
+                threads = Integer.parseInt(args[++i]);
+            }
+            else
+            {
+                materials.add(args[i]);
+            }
+        }
+
+        TablebaseGenerator generator = new TablebaseGenerator(tablebases, threads, directory);
+        for(String material : materials)
+        {
+            long start = System.nanoTime();
+            Tablebase table = generator.generate(material);
+            int longest = 0;
+
+            for(byte[] side : table.values)
+            {
+                for(byte value : side)
+                {
+                    if(value != Tablebase.INVALID && value != 0)
+                    {
+                        longest = Math.max(longest, Tablebase.pliesToMate(Tablebase.toResult(value)));
+                    }
+                }
+            }
+
+            System.out.println(table.getMaterial() + ": longest mate " + longest + " plies, " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Class holds a set of endgame tablebases and looks positions up in them.
+ * A position is found in the table of its pieces, or in the table of the
+ * same pieces with the colours swapped, with the board turned upside down.
+ * Positions with only the two kings are always a draw.
+ *
+ * The tables have no castling or en passant rights, so positions that still
+ * have them are not looked up. The fifty move rule is not taken into
+ * account.
+ *
+ * Tables can be added while other threads probe, so the search threads of
+ * the engine can all use the same set. The tables are kept by the key of
+ * their piece codes, and by the key with the colours swapped, so a probe
+ * finds its table without making a material set. Each thread probes with
+ * its own Scratch, so a probe makes no objects.
+ * @version 1.0
+ */
+public class Tablebases
+{
+    /**The file name extension of the tables written to a directory.*/
+    public static final String EXTENSION = ".tb";
+
+    /**The tables, by the key of their piece codes and of the piece codes
+     * with the colours swapped, as given by Tablebase.key.*/
+    private final AtomicReferenceArray<Tablebase> tables = new AtomicReferenceArray<Tablebase>(Tablebase.KEY_COUNT);
+
+    /**
+     * Reads all the tables of a directory, written there as the material set
+     * followed by EXTENSION.
+     * @param directory The path of the directory.
+     * @return The tables.
+     * @throws IOException Thrown if a file can not be read.
+     * @throws IllegalArgumentException Thrown if a file is not a table.
+     */
+    public static Tablebases read(Path directory) throws IOException, IllegalArgumentException
+    {
+        Tablebases tablebases = new Tablebases();
+
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION))
+        {
+            for(Path file : files)
+            {
+                String name = file.getFileName().toString();
+                tablebases.add(Tablebase.read(name.substring(0, name.length() - EXTENSION.length()), file));
+            }
+        }
+        return tablebases;
+    }
+
+    /**
+     * Adds a table, replacing the one of the same material set.
+     * @param table The table.
+     */
+    public void add(Tablebase table)
+    {
+        int[] codes = table.getCodes();
+        tables.set(Tablebase.key(codes, codes.length), table);
+
+        swapColours(codes, new int[codes.length], codes.length);
+        tables.set(Tablebase.key(codes, codes.length), table);
+    }
+
+    /**
+     * Gets the table of a material set, or of the set with the colours
+     * swapped.
+     * @param material The material set, as "KRKP".
+     * @return The table, or null if there is none.
+     * @throws IllegalArgumentException Thrown if the material set is not
+     * valid.
+     */
+    public Tablebase get(String material) throws IllegalArgumentException
+    {
+        int[] codes = Tablebase.codesOf(Tablebase.normalize(material));
+        return tables.get(Tablebase.key(codes, codes.length));
+    }
+
+    /**
+     * Looks up the position of a board.
+     * @param board The board.
+     * @return 0 for a draw, Tablebase.WIN minus the plies to mate if the
+     * player to move wins, the negative of that if it loses, or
+     * Tablebase.UNKNOWN if the position is not in the tables.
+     */
+    public int probe(ChessBoard board)
+    {
+        return probe(board, new Scratch());
+    }
+
+    /**
+     * Looks up the position of a board, working in the arrays of a scratch,
+     * so that nothing is made.
+     * @param board The board.
+     * @param scratch The scratch of the thread.
+     * @return The result, as for the other probe method.
+     */
+    public int probe(ChessBoard board, Scratch scratch)
+    {
+        long occupied = board.getOccupied();
+        if(Long.bitCount(occupied) > Tablebase.MAX_PIECES || board.getCastlingRights() != 0)
+        {
+            return Tablebase.UNKNOWN;
+        }
+
+        ChessPlayer side = board.getSideToMove();
+        int enPassant = board.getEnPassantSquare();
+        if(enPassant != -1 && (board.getPieces(side, PieceType.pawn) &
+                BitBoard.pawnAttacks(BitBoard.opponent(side), enPassant)) != 0)
+        {
+            return Tablebase.UNKNOWN;
+        }
+
+        int[] codes = scratch.codes;
+        int[] squares = scratch.squares;
+        int found = 0;
+
+        for(long pieces = occupied; pieces != 0; pieces &= pieces - 1)
+        {
+            int square = Long.numberOfTrailingZeros(pieces);
+            int code = board.getPieceCode(square);
+            int j = found++;
+
+            //the pieces are kept in increasing order of their codes
+            while(j > 0 && codes[j - 1] > code)
+            {
+                codes[j] = codes[j - 1];
+                squares[j] = squares[j - 1];
+                j--;
+            }
+            codes[j] = code;
+            squares[j] = square;
+        }
+
+        return probe(codes, squares, found, side, scratch.work);
+    }
+
+    /**
+     * Looks up a position given by its pieces.
+     * @param codes The piece codes of the pieces, as given by
+     * BitBoard.pieceCode, in increasing order. The array is changed.
+     * @param squares The squares of the pieces. The array is changed.
+     * @param count The number of pieces.
+     * @param side The player to move.
+     * @param work An array of at least 2 * Tablebase.MAX_PIECES numbers to
+     * work in.
+     * @return The result, as for the other probe method.
+     */
+    int probe(int[] codes, int[] squares, int count, ChessPlayer side, int[] work)
+    {
+        if(count == 2)
+        {
+            return 0;
+        }
+
+        int key = Tablebase.key(codes, count);
+        Tablebase table = tables.get(key);
+        if(table == null)
+        {
+            return Tablebase.UNKNOWN;
+        }
+
+        if(table.getKey() != key)
+        {
+            swapColours(codes, squares, count);
+            side = BitBoard.opponent(side);
+        }
+
+        byte value = table.getValue(squares, side, work);
+        return (value == Tablebase.INVALID) ? Tablebase.UNKNOWN : Tablebase.toResult(value);
+    }
+
+    /**
+     * Swaps the colours of some pieces and turns the board upside down,
+     * keeping the pieces in increasing order of their codes.
+     * @param codes The piece codes of the pieces, in increasing order.
+     * @param squares The squares of the pieces.
+     * @param count The number of pieces.
+     */
+    static void swapColours(int[] codes, int[] squares, int count)
+    {
+        for(int i = 0; i < count; i++)
+        {
+            codes[i] = (codes[i] + 6) % 12;
+            squares[i] ^= 56;
+        }
+
+        for(int i = 1; i < count; i++)
+        {
+            for(int j = i; j > 0 && codes[j] < codes[j - 1]; j--)
+            {
+                int code = codes[j];
+                codes[j] = codes[j - 1];
+                codes[j - 1] = code;
+                int square = squares[j];
+                squares[j] = squares[j - 1];
+                squares[j - 1] = square;
+            }
+        }
+    }
+
+    /**
+     * Class holds the arrays a thread probes in.
+     */
+    public static class Scratch
+    {
+        /**The piece codes and squares of the position looked up.*/
+        private final int[] codes = new int[Tablebase.MAX_PIECES];
+        private final int[] squares = new int[Tablebase.MAX_PIECES];
+
+        /**Room for Tablebase.index to work in.*/
+        private final int[] work = new int[2 * Tablebase.MAX_PIECES];
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Class works out how long the engine may think about one move, given the
+ * state of its clock: the time it has left, the time added after each move
+ * (the increment) and the number of moves until the next time control.
+ *
+ * It gives two limits. The soft limit is the time the search should take:
+ * once it has passed, no new iteration is started, since the next iteration
+ * would most likely not finish. The hard limit is the time the search must
+ * never go over: the iteration that is running is stopped, and the result
+ * of the last completed one is used. The hard limit lets the search finish
+ * an iteration that is nearly done, without risking the clock.
+ * @version 1.0
+ */
+public class TimeManager
+{
+    /**The number of moves the remaining time is shared over when the number
+     * of moves until the next time control is not known.*/
+    public static final int DEFAULT_MOVES_TO_GO = 30;
+
+    /**Time kept aside for each move, in milliseconds, for what happens
+     * outside the search, like sending the move.*/
+    private static final long MOVE_OVERHEAD = 50;
+
+    /**How many times the soft limit the hard limit may be.*/
+    private static final int HARD_LIMIT_FACTOR = 4;
+
+    /**The limits in milliseconds.*/
+    private final long softLimit;
+    private final long hardLimit;
+
+    /**
+     * Works out the limits of a move.
+     * @param remaining The time left on the clock, in milliseconds.
+     * @param increment The time added to the clock after the move, in
+     * milliseconds.
+     * @param movesToGo The number of moves to play until the next time
+     * control, including this one, or 0 if the rest of the game must be
+     * played in the remaining time.
+     * @throws IllegalArgumentException Thrown if a time or the number of
+     * moves is negative.
+     */
+    public TimeManager(long remaining, long increment, int movesToGo) throws IllegalArgumentException
+    {
+        if(remaining < 0 || increment < 0 || movesToGo < 0)
+        {
+            throw new IllegalArgumentException("The clock can not have negative values!");
+        }
+
+        int moves = (movesToGo == 0) ? DEFAULT_MOVES_TO_GO : movesToGo;
+        long usable = Math.max(remaining - MOVE_OVERHEAD, 1);
+
+        //never plan to use more than most of the time that is left, even with a large increment
+        long hard = Math.max(Math.min((usable / moves + increment * 3 / 4) * HARD_LIMIT_FACTOR,
+                usable * 4 / 5), 1);
+        long soft = Math.max(Math.min(usable / moves + increment * 3 / 4, hard), 1);
+
+        this.softLimit = soft;
+        this.hardLimit = hard;
+    }
+
+    /**
+     * Gets the time after which no new iteration of the search is started.
+     * @return The soft limit in milliseconds, at least 1.
+     */
+    public long getSoftLimit()
+    {
+        return softLimit;
+    }
+
+    /**
+     * Gets the time after which the search is stopped.
+     * @return The hard limit in milliseconds, at least the soft limit.
+     */
+    public long getHardLimit()
+    {
+        return hardLimit;
+    }
+}
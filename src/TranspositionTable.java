@@ -0,0 +1,218 @@
+import java.util.Arrays;
+
+/**
+ * Class models a transposition table: a fixed-size cache of search results,
+ * keyed by the Zobrist hash of a position. For each position it keeps the
+ * depth it was searched to, whether the score is exact or a bound, the score
+ * and the best move found, all packed into one long.
+ *
+ * Each entry is two longs in one array: the first is the hash xored with the
+ * data, the second the data itself. Many threads can read and write the
+ * table at the same time without locks. If two threads write the same entry
+ * at once, a reader may see the two longs of different writes, but then the
+ * first long xored with the second is not the hash of the position, so the
+ * entry is treated as a miss instead of giving wrong data.
+ * @version 1.0
+ */
+public class TranspositionTable
+{
+    /**Bound types. An exact score is the true score of the position, a lower
+     * bound means the true score is at least the stored one (the search
+     * failed high), an upper bound means it is at most the stored one.*/
+    public static final int EXACT = 3;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    /**Each entry takes two longs.*/
+    private static final int ENTRY_BYTES = 16;
+
+    /**Layout of the data long: the move in bits 0 to 20, the bound in bits
+     * 21 and 22, the depth in bits 23 to 30, the score as a signed 16 bit
+     * number in bits 32 to 47, and the age of the entry in bits 48 to 55.*/
+    private static final int MOVE_MASK = (1 << 21) - 1;
+    private static final int BOUND_SHIFT = 21;
+    private static final int DEPTH_SHIFT = 23;
+    private static final int SCORE_SHIFT = 32;
+    private static final int AGE_SHIFT = 48;
+
+    /**The entries, two longs each.*/
+    private final long[] table;
+
+    /**The number of entries minus one. The number of entries is a power of
+     * two, so the index of a hash is its low bits.*/
+    private final int indexMask;
+
+    /**The age of new entries, increased with every new search so that
+     * entries from old searches are replaced first.*/
+    private volatile int age;
+
+    /**
+     * Makes a new, empty transposition table.
+     * @param megabytes The size of the table in megabytes. The number of
+     * entries is rounded down to a power of two.
+     * @throws IllegalArgumentException Thrown if the size is less than one
+     * megabyte, or too large for one array.
+     */
+    public TranspositionTable(int megabytes) throws IllegalArgumentException
+    {
+        if(megabytes < 1 || megabytes > 8192)
+        {
+            throw new IllegalArgumentException("The size of the table must be" +
+                " between 1 and 8192 megabytes!");
+        }
+
+        long entries = Long.highestOneBit((long)megabytes * 1024 * 1024 / ENTRY_BYTES);
+        table = new long[(int)(entries * 2)];
+        indexMask = (int)(entries - 1);
+    }
+
+    /**
+     * Looks up a position in the table.
+     * @param hash The Zobrist hash of the position.
+     * @return The data of the entry, to be read with the static getters of
+     * this class, or 0 if the position is not in the table.
+     */
+    public long probe(long hash)
+    {
+        int index = ((int)hash & indexMask) << 1;
+        long data = table[index + 1];
+        long key = table[index];
+
+        //a torn or foreign entry does not give back the hash
+        if((key ^ data) == hash && data != 0)
+        {
+            return data;
+        }
+        else
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * Stores the result of searching a position. An entry of the current
+     * search that was searched deeper is kept instead, unless it is for the
+     * same position.
+     * @param hash The Zobrist hash of the position.
+     * @param move The best move found, or Move.NONE.
+     * @param score The score of the position, which must fit in 16 bits.
+     * @param depth The depth the position was searched to, from 0 to 255.
+     * @param bound The bound type of the score.
+     */
+    public void store(long hash, int move, int score, int depth, int bound)
+    {
+        int index = ((int)hash & indexMask) << 1;
+        long oldData = table[index + 1];
+        long oldKey = table[index];
+        int currentAge = age;
+
+        if(oldData != 0 && (oldKey ^ oldData) != hash && getAge(oldData) == currentAge &&
+                getDepth(oldData) > depth)
+        {
+            return;
+        }
+
+        //keep the old best move if the new search did not find one
+        if(move == Move.NONE && (oldKey ^ oldData) == hash)
+        {
+            move = getMove(oldData);
+        }
+
+        long data = (move & MOVE_MASK)
+                | ((long)bound << BOUND_SHIFT)
+                | ((long)(depth & 0xFF) << DEPTH_SHIFT)
+                | ((long)(score & 0xFFFF) << SCORE_SHIFT)
+                | ((long)(currentAge & 0xFF) << AGE_SHIFT);
+
+        table[index] = hash ^ data;
+        table[index + 1] = data;
+    }
+
+    /**
+     * Marks the start of a new search, so that entries of earlier searches
+     * can be replaced by shallower ones.
+     */
+    public void newSearch()
+    {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear()
+    {
+        Arrays.fill(table, 0);
+    }
+
+    /**
+     * Estimates how full the table is by looking at its first thousand
+     * entries.
+     * @return The number of used entries in a thousand.
+     */
+    public int getPermilleFull()
+    {
+        int used = 0;
+        int sample = Math.min(1000, table.length / 2);
+
+        for(int i = 0; i < sample; i++)
+        {
+            if(table[2 * i + 1] != 0 && getAge(table[2 * i + 1]) == age)
+            {
+                used++;
+            }
+        }
+
+        return used * 1000 / sample;
+    }
+
+    /**
+     * Gets the best move stored in an entry.
+     * @param data The data of the entry.
+     * @return The move, or Move.NONE.
+     */
+    public static int getMove(long data)
+    {
+        return (int)data & MOVE_MASK;
+    }
+
+    /**
+     * Gets the bound type stored in an entry.
+     * @param data The data of the entry.
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND.
+     */
+    public static int getBound(long data)
+    {
+        return (int)(data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * Gets the depth stored in an entry.
+     * @param data The data of the entry.
+     * @return The depth.
+     */
+    public static int getDepth(long data)
+    {
+        return (int)(data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * Gets the score stored in an entry.
+     * @param data The data of the entry.
+     * @return The score.
+     */
+    public static int getScore(long data)
+    {
+        return (short)(data >>> SCORE_SHIFT);
+    }
+
+    /**
+     * Gets the age of an entry.
+     * @param data The data of the entry.
+     * @return The age.
+     */
+    private static int getAge(long data)
+    {
+        return (int)(data >>> AGE_SHIFT) & 0xFF;
+    }
+}
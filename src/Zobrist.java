@@ -0,0 +1,114 @@
+import java.util.SplittableRandom;
+
+/**
+ * Class holds the random keys used for Zobrist hashing of chess positions.
+ * The hash of a position is the exclusive or of the key of every piece on
+ * its square, the key of the castling rights, the key of the column of the
+ * en passant square if a pawn can take en passant, and the side key if it is
+ * the turn of the black player. Since exclusive or is its own inverse, a move changes the
+ * hash by xoring out the keys of what it removes and xoring in the keys of
+ * what it adds, so the hash never has to be computed from scratch.
+ *
+ * The keys come from a random generator with a fixed seed, so the same
+ * position has the same hash in every run of the program, and hashes can be
+ * stored and compared across runs.
+ * @version 1.0
+ */
+public class Zobrist
+{
+    /**Seed of the random generator the keys are made with.*/
+    private static final long SEED = 0x3C6EF372FE94F82BL;
+
+    /**One key for each piece code and square.*/
+    private static final long[][] PIECES = new long[12][64];
+
+    /**One key for each combination of the 4 castling right flags. The key
+     * of a combination is the exclusive or of the keys of its flags, so
+     * that losing one right changes the hash by the key of that right.*/
+    private static final long[] CASTLING = new long[16];
+
+    /**One key for each column the en passant square can be on.*/
+    private static final long[] EN_PASSANT = new long[8];
+
+    /**Key xored into the hash when it is the turn of the black player.*/
+    private static final long SIDE;
+
+    static
+    {
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        for(int code = 0; code < PIECES.length; code++)
+        {
+            for(int square = 0; square < PIECES[code].length; square++)
+            {
+                PIECES[code][square] = random.nextLong();
+            }
+        }
+
+        long[] rightKeys = new long[4];
+        for(int i = 0; i < rightKeys.length; i++)
+        {
+            rightKeys[i] = random.nextLong();
+        }
+
+        for(int rights = 0; rights < CASTLING.length; rights++)
+        {
+            for(int i = 0; i < rightKeys.length; i++)
+            {
+                if((rights & (1 << i)) != 0)
+                {
+                    CASTLING[rights] ^= rightKeys[i];
+                }
+            }
+        }
+
+        for(int column = 0; column < EN_PASSANT.length; column++)
+        {
+            EN_PASSANT[column] = random.nextLong();
+        }
+
+        SIDE = random.nextLong();
+    }
+
+    /**
+     * Gets the key of a piece on a square.
+     * @param code The piece code, as given by BitBoard.pieceCode.
+     * @param square The index of the square.
+     * @return The key.
+     */
+    public static long pieceKey(int code, int square)
+    {
+        return PIECES[code][square];
+    }
+
+    /**
+     * Gets the key of a combination of castling rights.
+     * @param rights A combination of the castling right flags of the
+     * BitBoard class.
+     * @return The key, which is 0 if no rights are left.
+     */
+    public static long castlingKey(int rights)
+    {
+        return CASTLING[rights];
+    }
+
+    /**
+     * Gets the key of an en passant square on the given column.
+     * @param column The column of the en passant square.
+     * @return The key.
+     */
+    public static long enPassantKey(int column)
+    {
+        return EN_PASSANT[column];
+    }
+
+    /**
+     * Gets the key that is xored into the hash when it is the turn of the
+     * black player.
+     * @return The key.
+     */
+    public static long sideKey()
+    {
+        return SIDE;
+    }
+}